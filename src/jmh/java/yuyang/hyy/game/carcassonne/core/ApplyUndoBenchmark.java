@@ -0,0 +1,111 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of trying a move for search on boards of growing size: Board.apply then Board.undo of one move, of every
+ * legal move of the next tile, and of a move nested under another, next to forking the board and placing the tile on
+ * the fork, which is what a search would do without undo.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ApplyUndoBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int boardSize;
+
+    @Param({"HASH_MAP", "PACKED"})
+    private Board.StorageMode storageMode;
+
+    private SyntheticBoard plan;
+    private Board board;
+    private Meeple meeple;
+    private final MoveBuffer moves = new MoveBuffer();
+    private Move firstMove;
+    private int nextMove;
+
+    /**
+     * Build the board once and list the legal moves of the next planned tile, with meeples.
+     */
+    @Setup(Level.Trial)
+    public void buildBoard() {
+        plan = SyntheticBoard.generate(boardSize, 1, 1L);
+        board = plan.build(storageMode);
+        meeple = new Player("a").getOneMeeple();
+        board.collectMoves(plan.extraTile(0).getType(), true, moves);
+        firstMove = moves.getMove(0);
+        nextMove = 0;
+    }
+
+    /**
+     * Apply and undo the legal moves one per call, in turn.
+     * @return the board
+     */
+    @Benchmark
+    public Board applyUndo() {
+        board.apply(moves.getMove(nextMove), meeple);
+        board.undo();
+        nextMove = (nextMove + 1) % moves.size();
+        return board;
+    }
+
+    /**
+     * Apply and undo every legal move, as a search expanding one node does.
+     * @return no. of applied moves
+     */
+    @Benchmark
+    public int applyUndoAll() {
+        int applied = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            if (board.apply(moves.getMove(i), meeple)) {
+                applied++;
+                board.undo();
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Apply one move under another and undo both. The nested move may be illegal after the first one, in which case
+     * only the first is undone.
+     * @return the board
+     */
+    @Benchmark
+    public Board applyUndoNested() {
+        board.apply(firstMove, null);
+        if (board.apply(moves.getMove(nextMove), meeple)) {
+            board.undo();
+        }
+        board.undo();
+        nextMove = (nextMove + 1) % moves.size();
+        return board;
+    }
+
+    /**
+     * Fork the board and place the next planned tile on the fork.
+     * @return the fork
+     */
+    @Benchmark
+    public Board forkAndPlace() {
+        Board forked = board.fork();
+        forked.placeTile(plan.extraTile(0), plan.extraLoc(0));
+        return forked;
+    }
+}
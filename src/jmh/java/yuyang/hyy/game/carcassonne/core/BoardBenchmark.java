@@ -0,0 +1,79 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of Board.placeTile with the real tile set on boards of growing size: the legality check, the tile map,
+ * the frontier and the feature update of one placement. Completed features are cleared after each placement, as
+ * Game does at the end of every turn.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@OperationsPerInvocation(BoardBenchmark.TURNS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+@Fork(1)
+public class BoardBenchmark {
+
+    static final int TURNS = 100;
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int boardSize;
+
+    @Param({"HASH_MAP", "PACKED"})
+    private Board.StorageMode storageMode;
+
+    private SyntheticBoard plan;
+    private Board board;
+    private List<Tile> nextTiles;
+
+    /**
+     * Plan the board once.
+     */
+    @Setup(Level.Trial)
+    public void planBoard() {
+        plan = SyntheticBoard.generate(boardSize, TURNS, 1L);
+    }
+
+    /**
+     * Build a fresh board, because every iteration places TURNS tiles on it.
+     */
+    @Setup(Level.Iteration)
+    public void buildBoard() {
+        board = plan.build(storageMode);
+        nextTiles = new ArrayList<>();
+        for (int i = 0; i < TURNS; i++) {
+            nextTiles.add(plan.extraTile(i));
+        }
+    }
+
+    /**
+     * Place the next TURNS planned tiles.
+     * @return the board, so that the work isn't optimized away
+     */
+    @Benchmark
+    public Board placeTile() {
+        for (int i = 0; i < TURNS; i++) {
+            board.placeTile(nextTiles.get(i), plan.extraLoc(i));
+            board.clearCompletedFeatures();
+        }
+        return board;
+    }
+}
@@ -0,0 +1,101 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of merging the features of a new tile into the features of a large board, through Board.updateFeatures
+ * and through the public ContinuousFeature.combineFeature. Each iteration puts the next planned tile on the board
+ * and generates its features in the setup, so only the merge itself is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = FeatureBenchmark.WARMUP)
+@Measurement(iterations = FeatureBenchmark.MEASUREMENT)
+@Fork(1)
+public class FeatureBenchmark {
+
+    static final int WARMUP = 50, MEASUREMENT = 200;
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int boardSize;
+
+    private SyntheticBoard plan;
+    private Board board;
+    private int nextTile;
+
+    /**
+     * Build the board once. It only grows by one tile per iteration.
+     */
+    @Setup(Level.Trial)
+    public void buildBoard() {
+        plan = SyntheticBoard.generate(boardSize, WARMUP + MEASUREMENT, 1L);
+        board = plan.build(Board.StorageMode.HASH_MAP);
+        nextTile = 0;
+    }
+
+    /**
+     * Put the next tile and generate its features, without merging them.
+     */
+    @Setup(Level.Iteration)
+    public void putNextTile() {
+        board.putTile(plan.extraTile(nextTile), plan.extraLoc(nextTile));
+        nextTile++;
+        board.generateFeatureFromNewTile();
+    }
+
+    /**
+     * Drop the features of the tile if the benchmark left them, and the completed ones as Game would.
+     */
+    @TearDown(Level.Iteration)
+    public void clearTileFeatures() {
+        board.clearCurrTileFea();
+        board.clearCompletedFeatures();
+    }
+
+    /**
+     * Merge the new features the way a placement does.
+     * @return the board, so that the work isn't optimized away
+     */
+    @Benchmark
+    public Board updateFeatures() {
+        board.updateFeatures();
+        return board;
+    }
+
+    /**
+     * Merge each new feature with the features behind its edges one by one.
+     * @return no. of successful merges
+     */
+    @Benchmark
+    public int combineFeature() {
+        int merged = 0;
+        for (ContinuousFeature newFea : new ArrayList<>(board.getCurrTileFea())) {
+            List<LocOriPair> points = newFea.getAllPoints();
+            for (LocOriPair point : points) {
+                LocOriPair neighbor = point.getNeighbor();
+                BasicFeature neighborFea = board.getFeatureAt(neighbor.getLoc(), neighbor.getOri());
+                if (neighborFea != null && newFea.combineFeature((ContinuousFeature) neighborFea)) {
+                    merged++;
+                }
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,67 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of Board.fork on boards of growing size, alone and followed by one placement on the fork, which copies the
+ * chunks it writes to.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ForkBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int boardSize;
+
+    @Param({"HASH_MAP", "PACKED"})
+    private Board.StorageMode storageMode;
+
+    private SyntheticBoard plan;
+    private Board board;
+
+    /**
+     * Build the board to fork once.
+     */
+    @Setup(Level.Trial)
+    public void buildBoard() {
+        plan = SyntheticBoard.generate(boardSize, 1, 1L);
+        board = plan.build(storageMode);
+    }
+
+    /**
+     * Fork the board.
+     * @return the fork
+     */
+    @Benchmark
+    public Board fork() {
+        return board.fork();
+    }
+
+    /**
+     * Fork the board and place the next planned tile on the fork.
+     * @return the fork
+     */
+    @Benchmark
+    public Board forkAndPlace() {
+        Board forked = board.fork();
+        forked.placeTile(plan.extraTile(0), plan.extraLoc(0));
+        return forked;
+    }
+}
@@ -0,0 +1,79 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-turn cost of the board as it grows. A "turn" is one legality check plus one placement,
+ * which is what Game does for every tile. The score should stay flat across the board sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@OperationsPerInvocation(FrontierBenchmark.TURNS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+@Fork(1)
+public class FrontierBenchmark {
+
+    static final int TURNS = 100;
+
+    @Param({"100", "1000", "10000"})
+    private int boardSize;
+
+    private Board board;
+    private List<Location> nextLocs;
+    private List<Tile> nextTiles;
+
+    /**
+     * Build a board with boardSize plain field tiles laid out in a square spiral around the start tile.
+     */
+    @Setup(Level.Iteration)
+    public void buildBoard() {
+        List<Location> spiral = SyntheticBoard.spiral(boardSize + TURNS);
+        board = new Board();
+        board.placeFirstTile(fieldTile());
+        for (int i = 1; i < boardSize; i++) {
+            board.placeTile(fieldTile(), spiral.get(i));
+        }
+        nextLocs = spiral.subList(boardSize, boardSize + TURNS);
+        nextTiles = new ArrayList<>();
+        for (int i = 0; i < TURNS; i++) {
+            nextTiles.add(fieldTile());
+        }
+    }
+
+    /**
+     * Play TURNS turns on the prepared board.
+     * @return the board, so that the work isn't optimized away
+     */
+    @Benchmark
+    public Board turn() {
+        for (int i = 0; i < TURNS; i++) {
+            Tile t = nextTiles.get(i);
+            if (board.tileIsLegal(t)) {
+                board.placeTile(t, nextLocs.get(i));
+            }
+        }
+        return board;
+    }
+
+    private static Tile fieldTile() {
+        return new Tile(Segment.FIELD, Segment.FIELD, Segment.FIELD, Segment.FIELD, Segment.FIELD, false);
+    }
+}
@@ -0,0 +1,93 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of a whole turn through the Game API on boards of growing size: place the tile, place a meeple if possible,
+ * then Game.nextTurn, which runs Game.endTurnUpdate to score and return meeples and draws the next tile.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@OperationsPerInvocation(GameBenchmark.TURNS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 30)
+@Fork(1)
+public class GameBenchmark {
+
+    static final int TURNS = 50;
+    private static final Orientation[] MEEPLE_SPOTS = new Orientation[] {
+            Orientation.CENTER, Orientation.TOP, Orientation.RIGHT, Orientation.DOWN, Orientation.LEFT};
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int boardSize;
+
+    private SyntheticBoard plan;
+    private Game game;
+    private List<Tile> nextTiles;
+
+    /**
+     * Plan the board once.
+     */
+    @Setup(Level.Trial)
+    public void planBoard() {
+        plan = SyntheticBoard.generate(boardSize, TURNS, 1L);
+    }
+
+    /**
+     * Start a fresh game on a fresh board. The deck is only drawn from, so it holds several tile sets.
+     */
+    @Setup(Level.Iteration)
+    public void startGame() {
+        List<Player> players = new ArrayList<>();
+        players.add(new Player("A"));
+        players.add(new Player("B"));
+        players.add(new Player("C"));
+        Deck deck = new Deck(TileCatalogue.getDefault());
+        for (int i = 0; i < TURNS; i++) {
+            for (Tile t : plan.newTileOfEachType()) {
+                deck.add(t);
+            }
+        }
+        game = new Game(players, plan.build(Board.StorageMode.HASH_MAP), deck);
+        game.gameStart();
+        nextTiles = new ArrayList<>();
+        for (int i = 0; i < TURNS; i++) {
+            nextTiles.add(plan.extraTile(i));
+        }
+    }
+
+    /**
+     * Play TURNS turns with the planned tiles instead of the drawn ones.
+     * @return the game, so that the work isn't optimized away
+     */
+    @Benchmark
+    public Game endTurnUpdate() {
+        for (int i = 0; i < TURNS; i++) {
+            game.placeTile(nextTiles.get(i), plan.extraLoc(i));
+            for (Orientation o : MEEPLE_SPOTS) {
+                if (!game.getCurrPlayer().hasMeeple() || game.placeMeeple(o)) {
+                    break;
+                }
+            }
+            game.nextTurn();
+        }
+        return game;
+    }
+}
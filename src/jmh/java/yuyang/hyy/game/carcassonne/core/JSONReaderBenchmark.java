@@ -0,0 +1,35 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Stack;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of parsing the real tile set, which every new deck paid before the tile catalogue was cached.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class JSONReaderBenchmark {
+
+    /**
+     * Parse tiles.json.
+     * @return the parsed tiles
+     */
+    @Benchmark
+    public Stack<Tile> parse() {
+        return JSONReader.parse(TileCatalogue.DEFAULT_FILE);
+    }
+}
@@ -0,0 +1,57 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of Board.tileIsLegal for every tile type of the real tile set. The board isn't changed, so it's built once.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class LegalityBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int boardSize;
+
+    private Board board;
+    private List<Tile> tiles;
+
+    /**
+     * Build the board.
+     */
+    @Setup(Level.Trial)
+    public void buildBoard() {
+        SyntheticBoard plan = SyntheticBoard.generate(boardSize, 0, 1L);
+        board = plan.build(Board.StorageMode.HASH_MAP);
+        tiles = plan.newTileOfEachType();
+    }
+
+    /**
+     * Check every tile type once.
+     * @param bh blackhole for the results
+     */
+    @Benchmark
+    public void tileIsLegal(Blackhole bh) {
+        for (Tile t : tiles) {
+            bh.consume(board.tileIsLegal(t));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rollout throughput of the engine, the key number of the MCTS bot: fork a real game after some turns, shuffle the
+ * forked deck and play it to the end with random moves, as every iteration of {@link MctsPolicy} does.
+ * Also the cost of listing the moves of a search node.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class RolloutBenchmark {
+
+    private static final double MEEPLE_PROBABILITY = 0.3;
+
+    @Param({"0", "30", "60"})
+    private int playedTurns;
+
+    private final PlayerPolicy policy = new RandomPolicy(MEEPLE_PROBABILITY);
+    private final Random random = new Random(1L);
+    private final MoveBuffer moveBuffer = new MoveBuffer();
+    private final MoveEvaluation evaluation = new MoveEvaluation();
+    private Game game;
+
+    /**
+     * Play the first turns of a seeded 3 player game.
+     */
+    @Setup(Level.Trial)
+    public void startGame() {
+        List<Player> players = new ArrayList<>();
+        players.add(new Player("A"));
+        players.add(new Player("B"));
+        players.add(new Player("C"));
+        game = new Game(players, TileCatalogue.getDefault(), 1L, Board.StorageMode.PACKED);
+        game.gameStart();
+        for (int i = 0; i < playedTurns && game.isRunning(); i++) {
+            Simulator.playTurn(game, policy, random);
+        }
+    }
+
+    /**
+     * One rollout.
+     * @return the finished fork, so that the work isn't optimized away
+     */
+    @Benchmark
+    public Game rollout() {
+        Game forked = game.fork();
+        forked.reshuffleDeck(random.nextLong());
+        while (forked.isRunning()) {
+            Simulator.playTurn(forked, policy, random);
+        }
+        return forked;
+    }
+
+    /**
+     * Generate the moves of the current tile, with the meeple options, in a reused buffer.
+     * @return the moves
+     */
+    @Benchmark
+    public MoveBuffer listMoves() {
+        return game.getLegalMoves(moveBuffer);
+    }
+
+    /**
+     * Evaluate every move of the current tile without placing it. Divide by the no. of moves for the cost of one.
+     * @return the sum of the projected deltas, so that the work isn't optimized away
+     */
+    @Benchmark
+    public int evaluateMoves() {
+        game.getLegalMoves(moveBuffer);
+        int sum = 0;
+        for (int i = 0; i < moveBuffer.size(); i++) {
+            sum += game.evaluate(moveBuffer, i, evaluation).getProjectedDelta(0);
+        }
+        return sum;
+    }
+
+    /**
+     * Evaluate and rank every placement of the current tile on the common fork/join pool.
+     * @return the heatmap
+     */
+    @Benchmark
+    public PlacementHeatmap heatmap() {
+        return game.getPlacementHeatmap();
+    }
+}
@@ -0,0 +1,151 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A reproducible plan of legal placements with the real tile set, for building boards of any size.
+ * Tiles are laid along a square spiral around the start tile; each spiral location gets the first tile type
+ * (from a seeded random start) and rotation that fits, or stays empty if nothing fits. The same seed always gives
+ * the same boards, so benchmark numbers can be compared between commits. Completed features are cleared after
+ * every placement, as Game does at the end of every turn.
+ */
+final class SyntheticBoard {
+    private static final int FOUR = 4;
+    private static final int SPIRAL_FACTOR = 3;
+
+    private final List<TileType> types = new ArrayList<>();
+    private final int noOfTiles;
+    private final int[] planTypes;
+    private final int[] planRotations;
+    private final List<Location> planLocs = new ArrayList<>();
+
+    private SyntheticBoard(int noOfTiles, int noOfExtraTiles, long seed) {
+        this.noOfTiles = noOfTiles;
+        types.addAll(TileCatalogue.getDefault().getTypes());
+        int total = noOfTiles + noOfExtraTiles;
+        planTypes = new int[total];
+        planRotations = new int[total];
+        Random random = new Random(seed);
+        Board scratch = new Board();
+        scratch.placeFirstTile(startTile());
+        planLocs.add(new Location(0, 0));
+        List<Location> spiral = spiral(SPIRAL_FACTOR * total + FOUR);
+        for (int s = 1; s < spiral.size() && planLocs.size() < total; s++) {
+            Location loc = spiral.get(s);
+            int start = random.nextInt(types.size());
+            boolean placed = false;
+            for (int k = 0; k < types.size() && !placed; k++) {
+                int type = (start + k) % types.size();
+                for (int r = 0; r < FOUR && !placed; r++) {
+                    if (scratch.placeTile(newTile(type, r), loc)) {
+                        scratch.clearCompletedFeatures();
+                        planTypes[planLocs.size()] = type;
+                        planRotations[planLocs.size()] = r;
+                        planLocs.add(loc);
+                        placed = true;
+                    }
+                }
+            }
+        }
+        if (planLocs.size() < total) {
+            throw new IllegalStateException("The spiral is too short for " + total + " tiles!");
+        }
+    }
+
+    /**
+     * Plan a board.
+     * @param noOfTiles no. of tiles on the board, the start tile included
+     * @param noOfExtraTiles no. of further placements to play on the board
+     * @param seed seed of the plan
+     * @return the plan
+     */
+    static SyntheticBoard generate(int noOfTiles, int noOfExtraTiles, long seed) {
+        return new SyntheticBoard(noOfTiles, noOfExtraTiles, seed);
+    }
+
+    /**
+     * Build a new board with the planned tiles.
+     * @param mode storage mode of the board
+     * @return the board
+     */
+    Board build(Board.StorageMode mode) {
+        Board board = new Board(mode);
+        board.placeFirstTile(startTile());
+        for (int i = 1; i < noOfTiles; i++) {
+            board.placeTile(newTile(planTypes[i], planRotations[i]), planLocs.get(i));
+            board.clearCompletedFeatures();
+        }
+        return board;
+    }
+
+    /**
+     * A new tile for one of the extra placements, already rotated.
+     * @param i index of the extra placement
+     * @return the tile
+     */
+    Tile extraTile(int i) {
+        return newTile(planTypes[noOfTiles + i], planRotations[noOfTiles + i]);
+    }
+
+    /**
+     * Location of one of the extra placements.
+     * @param i index of the extra placement
+     * @return the location
+     */
+    Location extraLoc(int i) {
+        return planLocs.get(noOfTiles + i);
+    }
+
+    /**
+     * One new unrotated tile of each type of the tile set.
+     * @return the tiles
+     */
+    List<Tile> newTileOfEachType() {
+        List<Tile> tiles = new ArrayList<>();
+        for (int type = 0; type < types.size(); type++) {
+            tiles.add(newTile(type, 0));
+        }
+        return tiles;
+    }
+
+    private Tile newTile(int type, int rotation) {
+        Tile t = new Tile(types.get(type));
+        for (int r = 0; r < rotation; r++) {
+            t.rotateClockwise();
+        }
+        return t;
+    }
+
+    private static Tile startTile() {
+        return new Tile(4, Segment.ROAD, Segment.CITY_END, Segment.ROAD, Segment.FIELD, Segment.FIELD, false);
+    }
+
+    /**
+     * Locations of a square spiral starting at (0, 0), so every location touches an earlier one.
+     * @param n number of locations
+     * @return the first n locations of the spiral
+     */
+    static List<Location> spiral(int n) {
+        List<Location> locs = new ArrayList<>(n);
+        int x = 0, y = 0, dx = 1, dy = 0, segLength = 1, segPassed = 0, turnsDone = 0;
+        for (int i = 0; i < n; i++) {
+            locs.add(new Location(x, y));
+            x += dx;
+            y += dy;
+            segPassed++;
+            if (segPassed == segLength) {
+                segPassed = 0;
+                int tmp = dx;
+                dx = -dy;
+                dy = tmp;
+                turnsDone++;
+                if (turnsDone % 2 == 0) {
+                    segLength++;
+                }
+            }
+        }
+        return locs;
+    }
+}
@@ -1,11 +1,17 @@
 package yuyang.hyy.game.carcassonne.core;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.UnaryOperator;
 
 /**
  * The game board, containing the game map, and lists of features.
@@ -13,37 +19,150 @@ import java.util.Set;
  */
 public class Board {
     private Tile currPlacedTile;
-    private Map<Location, Tile> gameMap;
-    private List<ContinuousFeature> completedFea = new ArrayList<>(), incompleteFea = new ArrayList<>(),
-            currTileFea = new ArrayList<>();
-    private List<Monastery> completedMons = new ArrayList<>(), incompleteMons = new ArrayList<>();
+    private final TileStorage gameMap;
+    // Road and city features are nodes of one union-find forest. The lists below hold the root feature of each set.
+    private final FeatureForest forest;
+    private List<ContinuousFeature> completedFea = new ArrayList<>();
+    // The forest nodes of the segment groups of the placed tile, until updateFeatures() has merged them.
+    private final int[] currTileNodes = new int[FOUR];
+    private int noOfCurrTileNodes;
+    private Set<ContinuousFeature> incompleteFea = new LinkedHashSet<>();
+    // The open frontier: every empty location next to at least one placed tile, indexed by edge constraints.
+    private final FrontierIndex frontier;
+    private List<Monastery> completedMons = new ArrayList<>();
+    private Set<Monastery> incompleteMons = new LinkedHashSet<>();
+    // Every monastery by its packed center location, so a placement only looks at the 8 locations around it.
+    private final LongIntHashMap monasteryIndex;
+    private final List<Monastery> monasteries;
+    // Moves applied by apply() and not undone yet, the newest first, and the undo actions of the feature lists.
+    private final Deque<UndoFrame> undoFrames = new ArrayDeque<>();
+    private final List<Runnable> featureJournal = new ArrayList<>();
+    // Scratch space of collectMoves().
+    private final EdgeGroups edgeGroups = new EdgeGroups();
+    private static final int FOUR = 4, COMPLETE_CITY_FACTOR = 2;
     // Since the Orientation enum also contains CENTER, another array is necessary here.
-    private static final Orientation[] DIRECTIONS = new Orientation[] {
+    static final Orientation[] DIRECTIONS = new Orientation[] {
             Orientation.TOP, Orientation.RIGHT, Orientation.DOWN, Orientation.LEFT};
 
+    /**
+     * How the board stores the placed tiles. Both modes behave the same. Public so that the JMH benchmarks can take
+     * it as a parameter.
+     */
+    public enum StorageMode {
+        /** A HashMap of the tile objects. */
+        HASH_MAP,
+        /** One int per tile in a primitive map keyed by packed locations, for bulk simulations. */
+        PACKED
+    }
+
     /**
      * Constructor for a new board.
      */
     Board() {
-        gameMap = new HashMap<>();
+        this(StorageMode.HASH_MAP);
+    }
+
+    /**
+     * Constructor for a new board with the given tile storage.
+     * @param mode storage mode
+     */
+    Board(StorageMode mode) {
+        gameMap = mode == StorageMode.PACKED ? new PackedTileStorage() : new HashTileStorage();
+        forest = new FeatureForest(gameMap);
+        frontier = new FrontierIndex();
+        monasteryIndex = new LongIntHashMap(-1);
+        monasteries = new ArrayList<>();
         currPlacedTile = new Tile(4, Segment.ROAD, Segment.CITY_END, Segment.ROAD, Segment.FIELD, Segment.FIELD, false);
 
     }
 
+    private Board(Board parent, UnaryOperator<Meeple> meepleMapping) {
+        gameMap = parent.gameMap.fork();
+        forest = parent.forest.fork(gameMap);
+        frontier = parent.frontier.fork();
+        monasteryIndex = parent.monasteryIndex.fork();
+        currPlacedTile = parent.currPlacedTile;
+        // A completed monastery without meeple never changes again once its turn has been scored, so only the others
+        // are copied. One completed this turn may still take a meeple on the tile just placed.
+        Set<Monastery> scoredThisTurn = Collections.newSetFromMap(new IdentityHashMap<>());
+        scoredThisTurn.addAll(parent.completedMons);
+        UnaryOperator<Meeple> mapping = meepleMapping == null ? UnaryOperator.identity() : meepleMapping;
+        monasteries = new ArrayList<>(parent.monasteries);
+        for (int i = 0; i < monasteries.size(); i++) {
+            Monastery mon = monasteries.get(i);
+            if (!mon.isComplete() || mon.hasMeeple() || scoredThisTurn.contains(mon)) {
+                monasteries.set(i, new Monastery(mon, mapping));
+            }
+        }
+        for (Monastery mon : parent.incompleteMons) {
+            incompleteMons.add(getMonastery(mon.getCenterLoc()));
+        }
+        for (Monastery mon : parent.completedMons) {
+            completedMons.add(getMonastery(mon.getCenterLoc()));
+        }
+        for (ContinuousFeature fea : parent.incompleteFea) {
+            incompleteFea.add(forkedFeature(fea, meepleMapping));
+        }
+        for (ContinuousFeature fea : parent.completedFea) {
+            completedFea.add(forkedFeature(fea, meepleMapping));
+        }
+        System.arraycopy(parent.currTileNodes, 0, currTileNodes, 0, FOUR);
+        noOfCurrTileNodes = parent.noOfCurrTileNodes;
+    }
+
+    private ContinuousFeature forkedFeature(ContinuousFeature parentFea, UnaryOperator<Meeple> meepleMapping) {
+        if (meepleMapping != null) {
+            forest.replaceMeeples(parentFea.getNodeId(), meepleMapping);
+        }
+        return forest.getRootFeature(parentFea.getNodeId());
+    }
+
+    /**
+     * Copy this board for another worker, e.g. one thread of a parallel search. Both boards share their storage
+     * (with {@link StorageMode#PACKED}), frontier and feature forest in chunks until either writes to a chunk, so a
+     * fork costs the no. of chunks plus the open features and monasteries, not the no. of tiles. After that both
+     * boards can be changed independently, on different threads. Fork on the thread that owns this board, since
+     * forking marks its chunks as shared. The meeples are shared with this board.
+     * @return an independent copy
+     */
+    Board fork() {
+        return fork(null);
+    }
+
+    /**
+     * Copy this board for a forked game, where every meeple on the board belongs to a copy of its player.
+     * See {@link #fork()}.
+     * @param meepleMapping the meeple of the forked game for each meeple on this board, or null to share them
+     * @return an independent copy
+     */
+    Board fork(UnaryOperator<Meeple> meepleMapping) {
+        checkNoAppliedMove();
+        return new Board(this, meepleMapping);
+    }
+
     /**
      * Get all the neighboring locations of the existing tiles in the game map, which can narrow down the
      * range of possible locations for the next tile placement.
-     * @return a set of all neighboring locations.
+     * @return a read-only view of all neighboring locations, kept up to date by the board.
      */
     Set<Location> getAllNeighboringLoc() {
-        Set<Location> possibleLoc = new HashSet<>();
-        for (Map.Entry<Location, Tile> eachEntry : gameMap.entrySet()) {
-            possibleLoc.addAll(eachEntry.getKey().getDirectNeighbors());
-        }
-        for (Map.Entry<Location, Tile> eachEntry : gameMap.entrySet()) {
-            possibleLoc.remove(eachEntry.getKey());
+        return frontier.getLocations();
+    }
+
+    /**
+     * Update the frontier after a tile has been put on its location.
+     * Only the location itself and its 4 direct neighbors can change, so this is O(1).
+     * @param t the newly placed tile
+     */
+    private void updateFrontier(Tile t) {
+        long key = t.getLoc().pack();
+        frontier.remove(key);
+        for (Orientation ori : DIRECTIONS) {
+            long neighbor = Location.neighborKey(key, ori);
+            if (!gameMap.contains(neighbor)) {
+                frontier.constrain(neighbor, ori.getOpposite(), t.getEdgeSeg(ori).getEdgeCode());
+            }
         }
-        return possibleLoc;
     }
 
     /**
@@ -53,9 +172,9 @@ public class Board {
      * @return segment
      */
     Segment getSeg(LocOriPair point) {
-        assert gameMap.containsKey(point.getLoc()): "No tile on this location!";
-        Tile thisTile = gameMap.get(point.getLoc());
-        return thisTile.getEdgeSeg(point.getOri());
+        long key = point.getLoc().pack();
+        assert gameMap.contains(key): "No tile on this location!";
+        return gameMap.getEdgeSeg(key, point.getOri());
     }
 
     /**
@@ -65,40 +184,229 @@ public class Board {
      * @return legal placement or not
      */
     boolean placementIsLegal(Tile thisTile, Location loc) {
-        if (gameMap.containsKey(loc)) {
-            return false;
-        }
-        for (Orientation ori : DIRECTIONS) {
-            LocOriPair thisPoint = new LocOriPair(loc, ori);
-            LocOriPair neighborPoint = thisPoint.getNeighbor();
-            if (gameMap.containsKey(neighborPoint.getLoc())) {
-                if (!thisTile.getEdgeSeg(ori).isSameTypeSeg(getSeg(neighborPoint))) {
-                    return false;
-                }
-            }
+        return placementIsLegal(thisTile.getType(), thisTile.getRotationNo(), loc);
+    }
+
+    /**
+     * Check whether a (tile type, rotation) placement violates the game rule, without any tile object.
+     * @param type the tile type to be placed
+     * @param rotation no. of clockwise rotations
+     * @param loc the location to be placed
+     * @return legal placement or not
+     */
+    boolean placementIsLegal(TileType type, int rotation, Location loc) {
+        long key = loc.pack();
+        int mask = frontier.getMask(key);
+        if (mask < 0) {
+            // No neighbor at all, so only an occupied location is illegal.
+            return !gameMap.contains(key);
         }
-        return true;
+        return FrontierIndex.fits(type.getEdgeWord(rotation), mask);
     }
 
     /**
      * Check whether there is at least one available location for this tile to place.
+     * Answered from the frontier index without scanning the frontier.
      * @param thisTile the tile to be placed.
      * @return whether this tile should be discarded or not
      */
     boolean tileIsLegal(Tile thisTile) {
-        Tile tmpTile = new Tile(thisTile.getEdgeSeg(Orientation.TOP), thisTile.getEdgeSeg(Orientation.RIGHT),
-                thisTile.getEdgeSeg(Orientation.DOWN), thisTile.getEdgeSeg(Orientation.LEFT),
-                thisTile.getCenterSeg(), thisTile.isShield());
-        for (int i = 0; i < 4; i++) {
-            tmpTile.rotateClockwise();
-            for (Location loc : getAllNeighboringLoc()) {
-                if (placementIsLegal(tmpTile, loc)) {
-                    return true;
+        return tileIsLegal(thisTile.getType());
+    }
+
+    /**
+     * Check whether a tile type can be placed anywhere, in any rotation.
+     * @param type the tile type to be placed
+     * @return whether a tile of this type should be discarded or not
+     */
+    boolean tileIsLegal(TileType type) {
+        return frontier.fitsAnywhere(type.getEdgeWord(0));
+    }
+
+    /**
+     * Hand over the frontier constraint masks whose set of locations turned empty or non-empty since the last call.
+     * Meant for one consumer, see {@link PlaceabilityCache}.
+     * @param out array of at least 256 ints to receive the masks
+     * @return no. of masks written
+     */
+    int drainFlippedMasks(int[] out) {
+        return frontier.drainFlippedMasks(out);
+    }
+
+    /**
+     * List all the legal (location, rotation) pairs for this tile.
+     * @param thisTile the tile to be placed
+     * @return list of legal placements
+     */
+    List<Placement> getLegalPlacements(Tile thisTile) {
+        List<Placement> placements = new ArrayList<>();
+        frontier.collectPlacements(thisTile.getEdgeWord(), thisTile.getRotationNo(), placements);
+        return placements;
+    }
+
+    /**
+     * List every legal move of a tile type into a reusable buffer: each placement in each distinct rotation, and
+     * if asked, each way to add a meeple there. Meeple options come from the ownership of the neighboring features,
+     * nothing is placed on trial. Edges joining one feature of the new tile get one move, on the first such side.
+     * @param type the tile type to be placed
+     * @param withMeeples whether to add the moves placing a meeple
+     * @param out the buffer to fill, emptied first
+     */
+    void collectMoves(TileType type, boolean withMeeples, MoveBuffer out) {
+        out.reset(type);
+        for (int r = 0; r < FOUR; r++) {
+            if (type.isRepeatedRotation(r)) {
+                continue;
+            }
+            int from = out.size();
+            frontier.collectMoves(type.getEdgeWord(r), r, out);
+            int to = out.size();
+            for (int i = from; withMeeples && i < to; i++) {
+                collectMeepleMoves(type, r, out.getLocKey(i), out);
+            }
+        }
+    }
+
+    private void collectMeepleMoves(TileType type, int rotation, long key, MoveBuffer out) {
+        edgeGroups.group(forest, type, rotation, key);
+        for (int side = 0; side < FOUR; side++) {
+            if (edgeGroups.getGroup(side) == side && !edgeGroups.hasMeeple(forest, side)) {
+                out.add(key, rotation, DIRECTIONS[side]);
+            }
+        }
+        if (type.getCenterSeg() == Segment.MONASTERY) {
+            out.add(key, rotation, Orientation.CENTER);
+        }
+    }
+
+    /**
+     * Work out what a legal move would do to the scores and the features, reading the feature roots and the
+     * monasteries around the location only. Nothing is written, so several threads may evaluate moves on one board
+     * at the same time, each with its own result object, as long as the board doesn't change meanwhile.
+     * @param type the tile type to be placed
+     * @param rotation no. of clockwise rotations
+     * @param key packed location
+     * @param meepleOri where the meeple goes on the placed tile, or null for none
+     * @param players the players, in seat order
+     * @param seat seat of the player making the move
+     * @param out the result, cleared first
+     */
+    void evaluate(TileType type, int rotation, long key, Orientation meepleOri, List<Player> players, int seat,
+                  MoveEvaluation out) {
+        assert placementIsLegal(type, rotation, Location.unpack(key)) && !gameMap.contains(key);
+        out.reset(players.size());
+        EdgeGroups groups = out.getEdgeGroups();
+        groups.group(forest, type, rotation, key);
+        int meepleGroup = meepleOri == null || meepleOri == Orientation.CENTER
+                ? -1 : groups.getGroup(meepleOri.ordinal());
+        for (int side = 0; side < FOUR; side++) {
+            if (groups.getGroup(side) == side) {
+                evaluateFeature(type, rotation, groups, side, side == meepleGroup ? seat : -1, players, out);
+            }
+        }
+        if (type.getCenterSeg() == Segment.MONASTERY) {
+            int filled = 0;
+            for (int i = 0; i < Monastery.NO_OF_NEIGHBORS; i++) {
+                filled += gameMap.contains(Monastery.neighborKey(key, i)) ? 1 : 0;
+            }
+            out.addMonastery(filled == Monastery.NO_OF_NEIGHBORS);
+            if (meepleOri == Orientation.CENTER) {
+                // A monastery scores 1 for itself and 1 per surrounding tile, 9 when complete.
+                out.addScores(1 << seat, filled == Monastery.NO_OF_NEIGHBORS ? filled + 1 : 0, filled + 1);
+            }
+        }
+        for (int i = 0; i < Monastery.NO_OF_NEIGHBORS; i++) {
+            int monId = monasteryIndex.get(Monastery.centerKey(key, i));
+            if (monId < 0) {
+                continue;
+            }
+            Monastery mon = monasteries.get(monId);
+            boolean completed = mon.getNoOfVacancies() == 1;
+            out.addMonastery(completed);
+            if (mon.hasMeeple()) {
+                int owner = 1 << players.indexOf(mon.getMeeples().get(0).getOwner());
+                out.addScores(owner, completed ? mon.getScore() : 0, 1);
+            }
+        }
+    }
+
+    /**
+     * Evaluate one feature of the placed tile: the sides of one group, merged with the roots behind them.
+     * @param meepleSeat seat of the meeple placed on this feature, or -1
+     */
+    private void evaluateFeature(TileType type, int rotation, EdgeGroups groups, int group, int meepleSeat,
+                                 List<Player> players, MoveEvaluation out) {
+        Segment groupSeg = type.getEdgeSeg(rotation, DIRECTIONS[group]);
+        boolean isCity = groupSeg.isSameTypeSeg(Segment.CITY);
+        int[] counts = out.getSeatCounts();
+        Arrays.fill(counts, 0);
+        // The new tile counts once per feature, however many of its segments join it.
+        int tiles = 1, shields = type.isShield() ? 1 : 0, open = 0, prevOwners = 0;
+        for (int side = group; side < FOUR; side++) {
+            if (groups.getGroup(side) != group) {
+                continue;
+            }
+            open++;
+            int root = groups.getRoot(side);
+            if (root < 0) {
+                continue;
+            }
+            // The side and the neighbor edge close each other.
+            open -= 2;
+            if (groups.isFirstSideOfRoot(side)) {
+                int rootTiles = forest.getTileCount(root), rootShields = forest.getShieldCount(root);
+                tiles += rootTiles;
+                shields += rootShields;
+                open += forest.getOpenEdges(root);
+                if (forest.getMeepleCount(root) > 0) {
+                    int rootOwners = countMeeples(root, players, counts, out.getRootSeatCounts());
+                    prevOwners |= rootOwners;
+                    out.addScores(rootOwners, 0, -(isCity ? rootTiles + rootShields : rootTiles));
                 }
             }
         }
+        if (meepleSeat >= 0) {
+            counts[meepleSeat]++;
+        }
+        int owners = ownerMask(counts);
+        if (open == 0) {
+            int score = isCity ? (tiles + shields) * COMPLETE_CITY_FACTOR : tiles;
+            out.addScores(owners, score, score);
+        } else {
+            out.addScores(owners, 0, isCity ? tiles + shields : tiles);
+        }
+        // The forest counts the shields of road nodes too, but only a city has any.
+        out.addFeature(isCity ? Segment.CITY : Segment.ROAD, tiles, isCity ? shields : 0, open, owners, prevOwners);
+    }
 
-        return false;
+    /**
+     * Count the meeples of a feature root per seat, into both the merged counts and fresh counts of this root.
+     * @return owner mask of this root alone
+     */
+    private int countMeeples(int root, List<Player> players, int[] counts, int[] rootCounts) {
+        Arrays.fill(rootCounts, 0);
+        for (Meeple m : forest.getMeeples(root)) {
+            int seat = players.indexOf(m.getOwner());
+            counts[seat]++;
+            rootCounts[seat]++;
+        }
+        return ownerMask(rootCounts);
+    }
+
+    /**
+     * The seats with the most meeples, as in {@link ContinuousFeature#getScoreOwner()}.
+     */
+    private static int ownerMask(int[] counts) {
+        int max = 0, mask = 0;
+        for (int seat = 0; seat < counts.length; seat++) {
+            if (counts[seat] > max) {
+                max = counts[seat];
+                mask = 1 << seat;
+            } else if (counts[seat] == max && max > 0) {
+                mask |= 1 << seat;
+            }
+        }
+        return mask;
     }
 
     /**
@@ -107,8 +415,10 @@ public class Board {
      */
     void placeFirstTile(Tile firstT) {
         assert gameMap.isEmpty();
+        checkNoAppliedMove();
         firstT.setLoc(new Location(0, 0));
-        gameMap.put(new Location(0, 0), firstT);
+        gameMap.put(firstT.getLoc().pack(), firstT);
+        updateFrontier(firstT);
         currPlacedTile = firstT;
         generateFeatureFromNewTile();
         updateFeatures();
@@ -123,17 +433,115 @@ public class Board {
      */
     boolean placeTile(Tile t, Location loc) {
         assert !gameMap.isEmpty();
-        if (!placementIsLegal(t, loc) || !getAllNeighboringLoc().contains(loc)) {
+        checkNoAppliedMove();
+        if (!frontier.contains(loc.pack()) || !placementIsLegal(t, loc)) {
             return false;
         }
-        t.setLoc(loc);
-        currPlacedTile = t;
-        gameMap.put(loc, t);
+        putTile(t, loc);
         generateFeatureFromNewTile();
         updateFeatures();
         return true;
     }
 
+    /**
+     * Apply a move for search: place the tile and put the meeple, recording every change so that {@link #undo()}
+     * can revert it. Either the whole move is applied or nothing changes. Moves can be nested up to any depth;
+     * {@link #placeTile(Tile, Location)} and clearing the features aren't allowed until they are all undone.
+     * @param move the move
+     * @param meeple the meeple to put, only used if the move has a meeple orientation
+     * @return true if the move was legal and has been applied
+     */
+    boolean apply(Move move, Meeple meeple) {
+        Placement placement = move.getPlacement();
+        long key = placement.getLoc().pack();
+        if (!frontier.contains(key) || !placementIsLegal(move.getType(), placement.getRotation(), placement.getLoc())) {
+            return false;
+        }
+        Tile t = new Tile(move.getType());
+        for (int r = 0; r < placement.getRotation(); r++) {
+            t.rotateClockwise();
+        }
+        if (undoFrames.isEmpty()) {
+            frontier.setJournaling(true);
+            forest.setJournaling(true);
+        }
+        undoFrames.push(new UndoFrame(this, key));
+        putTile(t, placement.getLoc());
+        generateFeatureFromNewTile();
+        updateFeatures();
+        if (move.getMeepleOri() != null && !placeMeeple(meeple, move.getMeepleOri())) {
+            undo();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Revert the last applied move exactly: the tile map, the frontier, the feature merges, the monastery
+     * vacancies and the meeples. The cost is proportional to the changes made by the move, not to the board size.
+     * The iteration order of the incomplete features and of the frontier may differ from before the move.
+     */
+    void undo() {
+        if (undoFrames.isEmpty()) {
+            throw new IllegalStateException("No move to undo!");
+        }
+        UndoFrame frame = undoFrames.pop();
+        for (int i = featureJournal.size() - 1; i >= frame.featureMark; i--) {
+            featureJournal.remove(i).run();
+        }
+        if (completedFea.size() > frame.noOfCompletedFea) {
+            completedFea.subList(frame.noOfCompletedFea, completedFea.size()).clear();
+        }
+        if (completedMons.size() > frame.noOfCompletedMons) {
+            completedMons.subList(frame.noOfCompletedMons, completedMons.size()).clear();
+        }
+        if (monasteries.size() > frame.noOfMonasteries) {
+            Monastery mon = monasteries.remove(monasteries.size() - 1);
+            monasteryIndex.remove(frame.key);
+            incompleteMons.remove(mon);
+        }
+        forest.rollback(frame.forestMark, frame.noOfNodes);
+        frontier.rollback(frame.frontierMark);
+        gameMap.remove(frame.key);
+        currPlacedTile = frame.prevPlacedTile;
+        if (undoFrames.isEmpty()) {
+            frontier.setJournaling(false);
+            forest.setJournaling(false);
+        }
+    }
+
+    /**
+     * No. of applied moves not undone yet.
+     * @return depth of the undo stack
+     */
+    int getNoOfAppliedMoves() {
+        return undoFrames.size();
+    }
+
+    private void journal(Runnable undoAction) {
+        if (!undoFrames.isEmpty()) {
+            featureJournal.add(undoAction);
+        }
+    }
+
+    private void checkNoAppliedMove() {
+        if (!undoFrames.isEmpty()) {
+            throw new IllegalStateException("Undo the applied moves first!");
+        }
+    }
+
+    /**
+     * Put a tile on the map and update the frontier, without checking the placement or touching the features.
+     * @param t the tile to be placed
+     * @param loc the location to be placed
+     */
+    void putTile(Tile t, Location loc) {
+        t.setLoc(loc);
+        currPlacedTile = t;
+        gameMap.put(loc.pack(), t);
+        updateFrontier(t);
+    }
+
     /**
      * Generate the features from the newly placed tile.
      */
@@ -141,54 +549,42 @@ public class Board {
         if (currPlacedTile.getCenterSeg().isSameTypeSeg(Segment.MONASTERY)) {
             Monastery mon = new Monastery(currPlacedTile);
             incompleteMons.add(mon);
+            monasteryIndex.put(currPlacedTile.getLoc().pack(), monasteries.size());
+            monasteries.add(mon);
         }
-        boolean cityHasBeenCreated = false;
-        boolean roadHasBeenCreated = false;
-        for (Orientation ori : DIRECTIONS) {
-            Segment thisSeg = currPlacedTile.getEdgeSeg(ori);
-            LocOriPair thisPoint = new LocOriPair(currPlacedTile.getLoc(), ori);
-            switch (thisSeg) {
+        // One node per city or road end, and one for all the other city sides and one for all the other road sides,
+        // in the order of their first side.
+        long key = currPlacedTile.getLoc().pack();
+        int citySides = 0, roadSides = 0;
+        for (int side = 0; side < FOUR; side++) {
+            Segment seg = currPlacedTile.getEdgeSeg(DIRECTIONS[side]);
+            citySides |= seg == Segment.CITY ? 1 << side : 0;
+            roadSides |= seg == Segment.ROAD ? 1 << side : 0;
+        }
+        boolean shield = currPlacedTile.isShield();
+        for (int side = 0; side < FOUR; side++) {
+            int bit = 1 << side;
+            switch (currPlacedTile.getEdgeSeg(DIRECTIONS[side])) {
                 case CITY_END:
-                    City city = new City(currPlacedTile, List.of(thisPoint));
-                    currTileFea.add(city);
+                    currTileNodes[noOfCurrTileNodes++] = forest.add(key, bit, Segment.CITY, shield);
                     break;
                 case CITY:
-                    if (!cityHasBeenCreated) {
-                        Set<LocOriPair> tmpCitySeg = new HashSet<>();
-                        for (Orientation o : DIRECTIONS) {
-                            LocOriPair tmpPoint = new LocOriPair(currPlacedTile.getLoc(), o);
-                            if (getSeg(tmpPoint).equals(Segment.CITY)) {
-                                tmpCitySeg.add(tmpPoint);
-                            }
-                        }
-                        City city1 = new City(currPlacedTile, new ArrayList<>(tmpCitySeg));
-                        cityHasBeenCreated = true;
-                        currTileFea.add(city1);
+                    if ((citySides & (bit - 1)) == 0) {
+                        currTileNodes[noOfCurrTileNodes++] = forest.add(key, citySides, Segment.CITY, shield);
                     }
                     break;
                 case ROAD_END:
-                    Road road = new Road(currPlacedTile, List.of(thisPoint));
-                    currTileFea.add(road);
+                    currTileNodes[noOfCurrTileNodes++] = forest.add(key, bit, Segment.ROAD, shield);
                     break;
                 case ROAD:
-                    if (!roadHasBeenCreated) {
-                        Set<LocOriPair> tmpRoadSeg = new HashSet<>();
-                        for (Orientation o : DIRECTIONS) {
-                            LocOriPair tmpPoint = new LocOriPair(currPlacedTile.getLoc(), o);
-                            if (getSeg(tmpPoint).equals(Segment.ROAD)) {
-                                tmpRoadSeg.add(tmpPoint);
-                            }
-                        }
-                        Road road1 = new Road(currPlacedTile, new ArrayList<>(tmpRoadSeg));
-                        roadHasBeenCreated = true;
-                        currTileFea.add(road1);
+                    if ((roadSides & (bit - 1)) == 0) {
+                        currTileNodes[noOfCurrTileNodes++] = forest.add(key, roadSides, Segment.ROAD, shield);
                     }
                     break;
                 default:
                     break;
             }
         }
-
     }
 
     /**
@@ -196,43 +592,78 @@ public class Board {
      * Check whether the newly generated features can combine the existing incomplete ones.
      */
     void updateFeatures() {
-        // Check Monastery first
-        for (Monastery mon : incompleteMons) {
-            if (mon.getCenterLoc().equals(currPlacedTile.getLoc())) {
-                List<Location> tmpNeighborList = currPlacedTile.getLoc().getAllNeighbors();
-                for (Location tmpLoc : tmpNeighborList) {
-                    if (gameMap.containsKey(tmpLoc)) {
-                        mon.removeUnfinishedLoc(tmpLoc);
-                    }
-                }
-            } else {
-                if (mon.getUnfinishedLocList().contains(currPlacedTile.getLoc())) {
-                    mon.removeUnfinishedLoc(currPlacedTile.getLoc());
+        // Check Monastery first: only a monastery on the new tile or on one of its 8 surrounding locations can change.
+        long key = currPlacedTile.getLoc().pack();
+        int monId = monasteryIndex.get(key);
+        if (monId >= 0) {
+            Monastery newMon = monasteries.get(monId);
+            for (int i = 0; i < Monastery.NO_OF_NEIGHBORS; i++) {
+                if (gameMap.contains(Monastery.neighborKey(key, i))) {
+                    newMon.fillNeighbor(i);
                 }
             }
-            if (mon.isComplete()) {
-                completedMons.add(mon);
+            checkMonastery(newMon);
+        }
+        for (int i = 0; i < Monastery.NO_OF_NEIGHBORS; i++) {
+            monId = monasteryIndex.get(Monastery.centerKey(key, i));
+            if (monId >= 0 && monasteries.get(monId).fillNeighbor(i)) {
+                Monastery mon = monasteries.get(monId);
+                int neighborNo = i;
+                journal(() -> mon.vacateNeighbor(neighborNo));
+                checkMonastery(mon);
             }
         }
-        incompleteMons.removeAll(completedMons);
 
-        // Then road and city
-        for (ContinuousFeature newFea : currTileFea) {
-            List<ContinuousFeature> featuresHasBeenCombined = new ArrayList<>();
-            for (ContinuousFeature oldFea : incompleteFea) {
-                if (newFea.combineFeature(oldFea)) {
-                    featuresHasBeenCombined.add(oldFea);
+        // Then road and city: connect every new node to the nodes behind its sides.
+        for (int i = 0; i < noOfCurrTileNodes; i++) {
+            int node = currTileNodes[i];
+            int sides = forest.getSides(node);
+            for (int side = 0; side < FOUR; side++) {
+                if ((sides & (1 << side)) == 0) {
+                    continue;
+                }
+                Orientation o = DIRECTIONS[side];
+                int neighbor = forest.nodeAt(LocOriPair.pack(Location.neighborKey(key, o), o.getOpposite()));
+                if (neighbor >= 0 && forest.getType(neighbor) == forest.getType(node)) {
+                    ContinuousFeature neighborFea = forest.getRootFeature(neighbor);
+                    // The undo action is only created while a move is applied.
+                    if (incompleteFea.remove(neighborFea) && !undoFrames.isEmpty()) {
+                        journal(() -> incompleteFea.add(neighborFea));
+                    }
+                    forest.connect(node, side, neighbor);
+                }
+            }
+        }
+        // Two segments of the tile may have joined one feature through its neighbors, count the tile once there.
+        for (int i = 1; i < noOfCurrTileNodes; i++) {
+            int root = forest.find(currTileNodes[i]);
+            for (int j = 0; j < i; j++) {
+                if (forest.find(currTileNodes[j]) == root) {
+                    forest.uncountTile(root, currPlacedTile.isShield());
+                    break;
+                }
+            }
+        }
+        for (int i = 0; i < noOfCurrTileNodes; i++) {
+            ContinuousFeature rootFea = forest.getRootFeature(currTileNodes[i]);
+            if (!rootFea.isComplete()) {
+                if (incompleteFea.add(rootFea) && !undoFrames.isEmpty()) {
+                    journal(() -> incompleteFea.remove(rootFea));
                 }
+            } else if (!completedFea.contains(rootFea)) {
+                completedFea.add(rootFea);
             }
-            incompleteFea.removeAll(featuresHasBeenCombined);
-            if (newFea.isComplete()) {
-                completedFea.add(newFea);
+        }
+        noOfCurrTileNodes = 0;
+    }
+
+    private void checkMonastery(Monastery mon) {
+        if (mon.isComplete()) {
+            if (incompleteMons.remove(mon)) {
+                journal(() -> incompleteMons.add(mon));
             }
+            completedMons.add(mon);
         }
-        currTileFea.removeAll(completedFea);
-        incompleteFea.removeAll(completedFea);
-        incompleteFea.addAll(currTileFea);
-        currTileFea.clear();
     }
 
     /**
@@ -244,32 +675,18 @@ public class Board {
     boolean placeMeeple(Meeple meeple, Orientation o) {
         Location currLoc = currPlacedTile.getLoc();
         if (o.equals(Orientation.CENTER)) {
-            if (currPlacedTile.getCenterSeg().equals(Segment.MONASTERY)) {
-                for (Monastery mon : incompleteMons) {
-                    if (currLoc.equals(mon.getCenterLoc())) {
-                        return mon.addMeeple(meeple);
-                    }
-                }
-                for (Monastery mon : completedMons) {
-                    if (currLoc.equals(mon.getCenterLoc())) {
-                        return mon.addMeeple(meeple);
-                    }
-                }
+            Monastery mon = getMonastery(currLoc);
+            if (mon != null && mon.addMeeple(meeple)) {
+                journal(() -> mon.removeMeeple(meeple));
+                return true;
             }
             return false;
         }
-        LocOriPair addPoint = new LocOriPair(currLoc, o);
-        for (ContinuousFeature fea : incompleteFea) {
-            if (fea.containsPoint(addPoint)) {
-                return fea.addMeeple(meeple);
-            }
-        }
-        for (ContinuousFeature fea : completedFea) {
-            if (fea.containsPoint(addPoint)) {
-                return fea.addMeeple(meeple);
-            }
+        int node = forest.nodeAt(LocOriPair.pack(currLoc.pack(), o));
+        if (node < 0) {
+            return false;
         }
-        return false;
+        return forest.addMeeple(node, meeple);
     }
 
     /**
@@ -280,6 +697,50 @@ public class Board {
         return currPlacedTile;
     }
 
+    /**
+     * Getter of the features generated from the current tile, before they are merged by {@link #updateFeatures()}.
+     * @return a new list of the features of the current tile
+     */
+    List<ContinuousFeature> getCurrTileFea() {
+        List<ContinuousFeature> result = new ArrayList<>(noOfCurrTileNodes);
+        for (int i = 0; i < noOfCurrTileNodes; i++) {
+            result.add(forest.getFeature(currTileNodes[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Forget the features generated from the current tile without merging them, e.g. between benchmark iterations.
+     */
+    void clearCurrTileFea() {
+        noOfCurrTileNodes = 0;
+    }
+
+    /**
+     * Get the feature at a point of a placed tile: the road or city on an edge, or the monastery in the center.
+     * An edge costs one lookup in the packed point index of the feature forest.
+     * @param loc location of a placed tile
+     * @param o orientation on this tile
+     * @return the whole feature, or null if there is none (field) at this point
+     */
+    BasicFeature getFeatureAt(Location loc, Orientation o) {
+        if (o.equals(Orientation.CENTER)) {
+            return getMonastery(loc);
+        }
+        int node = forest.nodeAt(LocOriPair.pack(loc.pack(), o));
+        return node < 0 ? null : forest.getRootFeature(node);
+    }
+
+    /**
+     * Get the monastery of a location.
+     * @param loc location of a placed tile
+     * @return the monastery, or null
+     */
+    private Monastery getMonastery(Location loc) {
+        int monId = monasteryIndex.get(loc.pack());
+        return monId < 0 ? null : monasteries.get(monId);
+    }
+
     /**
      * Get all the completed feature on board.
      * @return list of completed features
@@ -298,17 +759,17 @@ public class Board {
 
     /**
      * Get all the incomplete feature on board.
-     * @return list of incomplete features
+     * @return collection of incomplete features
      */
-    List<ContinuousFeature> getIncompleteFea() {
+    Collection<ContinuousFeature> getIncompleteFea() {
         return incompleteFea;
     }
 
     /**
      * Get all the incomplete monastery on board.
-     * @return list of incomplete monasteries
+     * @return incomplete monasteries
      */
-    List<Monastery> getIncompleteMons() {
+    Collection<Monastery> getIncompleteMons() {
         return incompleteMons;
     }
 
@@ -317,7 +778,7 @@ public class Board {
      * @return game map
      */
     Map<Location, Tile> getGameMap() {
-        return gameMap;
+        return gameMap.asMap();
     }
 
     /**
@@ -325,6 +786,7 @@ public class Board {
      * Used at end turn
      */
     void clearCompletedFeatures() {
+        checkNoAppliedMove();
         completedMons.clear();
         completedFea.clear();
     }
@@ -334,7 +796,30 @@ public class Board {
      * Used at end game
      */
     void clearIncompleteFeatures() {
+        checkNoAppliedMove();
         incompleteFea.clear();
         incompleteMons.clear();
     }
+
+    /**
+     * What undo() needs to revert one applied move: the sizes and journal positions before it.
+     */
+    private static final class UndoFrame {
+        private final Tile prevPlacedTile;
+        private final long key;
+        private final int frontierMark, forestMark, noOfNodes, featureMark;
+        private final int noOfCompletedFea, noOfCompletedMons, noOfMonasteries;
+
+        UndoFrame(Board board, long placedKey) {
+            prevPlacedTile = board.currPlacedTile;
+            key = placedKey;
+            frontierMark = board.frontier.getJournalSize();
+            forestMark = board.forest.getJournalSize();
+            noOfNodes = board.forest.size();
+            featureMark = board.featureJournal.size();
+            noOfCompletedFea = board.completedFea.size();
+            noOfCompletedMons = board.completedMons.size();
+            noOfMonasteries = board.monasteries.size();
+        }
+    }
 }
@@ -1,6 +1,5 @@
 package yuyang.hyy.game.carcassonne.core;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -9,14 +8,13 @@ import java.util.List;
 public class City extends ContinuousFeature {
 
     private static final int TWO = 2;
-    private int noOfShields = 0;
 
     /**
      * No. of coat-of-arms getter.
      * @return No. of tiles in this feature which has a coat of arm.
      */
     public int getNoOfShields() {
-        return noOfShields;
+        return getForest().getShieldCount(getNodeId());
     }
 
     /**
@@ -25,45 +23,30 @@ public class City extends ContinuousFeature {
      * @param pointList the open end location/orientation pairs.
      */
     public City(Tile firstTile, List<LocOriPair> pointList) {
-        List<Tile> tmpTileList = new ArrayList<>();
-        setUnfinishedPoints(new ArrayList<>(pointList));
-        setAllPoints(new ArrayList<>(pointList));
-        setType(Segment.CITY);
-        tmpTileList.add(firstTile);
-        setTileList(tmpTileList);
-        if (firstTile.isShield()) {
-            noOfShields = 1;
-        }
+        super(Segment.CITY, new FeatureForest(), firstTile, pointList);
     }
 
-    @Override
-    public boolean combineFeature(ContinuousFeature anotherFea) {
-        if(super.combineFeature(anotherFea)) {
-            for (Tile tmpTile : anotherFea.getTileList()) {
-                if (tmpTile.isShield()) {
-                    noOfShields++;
-                }
-            }
-            return true;
-        }
-        return false;
+    /**
+     * Constructor of the city of an existing node.
+     * @param forest the forest of the node
+     * @param nodeId the node
+     */
+    City(FeatureForest forest, int nodeId) {
+        super(Segment.CITY, forest, nodeId);
     }
 
     @Override
-    public boolean addTile(Tile newTile) {
-        if (newTile.isShield()) {
-            noOfShields++;
-        }
-        return getTileList().add(newTile);
+    City forkTo(FeatureForest forest) {
+        return new City(forest, getNodeId());
     }
 
     @Override
     public int getScore() {
-        return (getTileList().size() + noOfShields) * TWO;
+        return (getTileCount() + getNoOfShields()) * TWO;
     }
 
     @Override
     public int getEndScore() {
-        return (getTileList().size() + noOfShields);
+        return (getTileCount() + getNoOfShields());
     }
 }
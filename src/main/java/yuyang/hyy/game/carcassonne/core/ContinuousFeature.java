@@ -8,40 +8,94 @@ import java.util.Map;
 /**
  * This class includes Road and City feature, which are quite differently from Monastery.
  * So, their logic of creation, combination, and completion should be treated separately.
+ * The state of the feature lives in a {@link FeatureForest}: each feature object is one node of it, and after a merge
+ * all the feature objects of the merged set answer for the whole set.
  */
 public abstract class ContinuousFeature implements BasicFeature {
 
-    private List<Tile> tileList;
-    private List<Meeple> meepleList = new ArrayList<>();
-    private Segment type;
-    private List<LocOriPair> unfinishedPoints, allPoints;
+    private final Segment type;
+    private FeatureForest forest;
+    private int nodeId;
 
-    List<LocOriPair> getUnfinishedPoints() {
-        return unfinishedPoints;
+    /**
+     * Constructor, adding a new set to the forest.
+     * @param newType type of this feature
+     * @param newForest the forest to add to
+     * @param firstTile the starting tile of this feature
+     * @param pointList the open end location/orientation pairs.
+     */
+    ContinuousFeature(Segment newType, FeatureForest newForest, Tile firstTile, List<LocOriPair> pointList) {
+        type = newType;
+        forest = newForest;
+        nodeId = forest.add(this, firstTile, pointList);
     }
 
-    void setUnfinishedPoints(List<LocOriPair> unfinishedPoints) {
-        this.unfinishedPoints = unfinishedPoints;
+    /**
+     * Constructor of the feature object of an existing node, e.g. one of a placed tile or a copy in a forked forest.
+     * @param newType type of this feature
+     * @param newForest the forest of the node
+     * @param newNodeId the node
+     */
+    ContinuousFeature(Segment newType, FeatureForest newForest, int newNodeId) {
+        type = newType;
+        forest = newForest;
+        nodeId = newNodeId;
     }
 
-    List<LocOriPair> getAllPoints() {
-        return allPoints;
+    /**
+     * Create the feature object of an existing node, see {@link FeatureForest#getFeature(int)}.
+     * @param type CITY or ROAD
+     * @param forest the forest of the node
+     * @param nodeId the node
+     * @return a city or a road
+     */
+    static ContinuousFeature of(Segment type, FeatureForest forest, int nodeId) {
+        return type == Segment.CITY ? new City(forest, nodeId) : new Road(forest, nodeId);
     }
 
-    void setAllPoints(List<LocOriPair> allPoints) {
-        this.allPoints = allPoints;
+    /**
+     * Create the copy of this feature object in a forked forest, see {@link FeatureForest#getFeature(int)}.
+     * @param newForest the forked forest
+     * @return the copy
+     */
+    abstract ContinuousFeature forkTo(FeatureForest newForest);
+
+    List<LocOriPair> getUnfinishedPoints() {
+        return forest.collectPoints(nodeId, true);
+    }
+
+    List<LocOriPair> getAllPoints() {
+        return forest.collectPoints(nodeId, false);
     }
 
     List<Tile> getTileList() {
-        return tileList;
+        return forest.collectTiles(nodeId);
     }
 
-    void setTileList(List<Tile> tileList) {
-        this.tileList = tileList;
+    FeatureForest getForest() {
+        return forest;
     }
 
-    void setMeepleList(List<Meeple> meepleList) {
-        this.meepleList = meepleList;
+    int getNodeId() {
+        return nodeId;
+    }
+
+    /**
+     * Point this feature object to a node of another forest, after its set has been moved there.
+     * @param newForest the new forest
+     * @param newNodeId the new node
+     */
+    void rebind(FeatureForest newForest, int newNodeId) {
+        forest = newForest;
+        nodeId = newNodeId;
+    }
+
+    /**
+     * Get the no. of tiles in this feature.
+     * @return tile count
+     */
+    int getTileCount() {
+        return forest.getTileCount(nodeId);
     }
 
     @Override
@@ -49,13 +103,9 @@ public abstract class ContinuousFeature implements BasicFeature {
         return type;
     }
 
-    void setType(Segment type) {
-        this.type = type;
-    }
-
     @Override
     public boolean isComplete() {
-        return unfinishedPoints.isEmpty();
+        return forest.getOpenEdges(nodeId) == 0;
     }
 
     /**
@@ -64,13 +114,13 @@ public abstract class ContinuousFeature implements BasicFeature {
      */
     @Override
     public boolean hasMeeple() {
-        return !meepleList.isEmpty();
+        return forest.getMeepleCount(nodeId) > 0;
     }
 
     @Override
     public boolean addTile(Tile newTile){
-        return tileList.add(newTile);
-
+        forest.addTile(nodeId, newTile);
+        return true;
     }
 
     /**
@@ -79,36 +129,28 @@ public abstract class ContinuousFeature implements BasicFeature {
      * @return contains or not
      */
     public boolean containsPoint(LocOriPair point) {
-        return allPoints.contains(point);
+        int node = forest.nodeAt(point);
+        return node >= 0 && forest.find(node) == forest.find(nodeId);
     }
 
     @Override
     public List<Meeple> getMeeples() {
-        return meepleList;
+        return forest.getMeeples(nodeId);
     }
 
     @Override
     public boolean addMeeple(Meeple newMeeple) {
-        if (meepleList.isEmpty()) {
-            return meepleList.add(newMeeple);
-        }
-        return false;
+        return forest.addMeeple(nodeId, newMeeple);
     }
 
     @Override
     public List<Meeple> returnMeeples() {
-        List<Meeple> tmpMeepleList = new ArrayList<>(meepleList);
-        meepleList.clear();
-        return tmpMeepleList;
+        return forest.returnMeeples(nodeId);
     }
 
     @Override
     public boolean removeMeeple(Meeple newMeeple) {
-        return meepleList.remove(newMeeple);
-    }
-
-    private boolean completePoint(LocOriPair pair) {
-        return unfinishedPoints.remove(pair);
+        return forest.removeMeeple(nodeId, newMeeple);
     }
 
     /**
@@ -120,28 +162,10 @@ public abstract class ContinuousFeature implements BasicFeature {
         if (!this.type.isSameTypeSeg(anotherFea.type) || isComplete()) {
             return false;
         }
-        boolean canCombine = false;
-        List<LocOriPair> combinedPoints = new ArrayList<>();
-
-        List<LocOriPair> anoUnfinishedPoints = anotherFea.unfinishedPoints;
-        for (LocOriPair point : unfinishedPoints) {
-            if (anoUnfinishedPoints.contains(point.getNeighbor())) {
-                canCombine = true;
-                combinedPoints.add(point);
-            }
-        }
-        if (!canCombine) {
-            return false;
-        }
-        for (LocOriPair point : combinedPoints) {
-            this.completePoint(point);
-            anotherFea.completePoint(point.getNeighbor());
+        if (anotherFea.forest != forest) {
+            forest.adopt(anotherFea);
         }
-        unfinishedPoints.addAll(anotherFea.unfinishedPoints);
-        meepleList.addAll(anotherFea.meepleList);
-        tileList.addAll(anotherFea.tileList);
-        allPoints.addAll(anotherFea.allPoints);
-        return canCombine;
+        return forest.combine(nodeId, anotherFea.nodeId);
     }
 
     @Override
@@ -149,7 +173,7 @@ public abstract class ContinuousFeature implements BasicFeature {
         int maxCount = 0;
         List<Player> owners = new ArrayList<>();
         Map<Player, Integer> countMap = new HashMap<>();
-        for (Meeple m : meepleList) {
+        for (Meeple m : getMeeples()) {
             countMap.merge(m.getOwner(), 1, Integer::sum);
         }
         for (Map.Entry<Player, Integer> each : countMap.entrySet()) {
@@ -166,6 +190,6 @@ public abstract class ContinuousFeature implements BasicFeature {
 
     @Override
     public String toString() {
-        return type.toString() + "at: " + unfinishedPoints.toString();
+        return type.toString() + "at: " + getUnfinishedPoints().toString();
     }
 }
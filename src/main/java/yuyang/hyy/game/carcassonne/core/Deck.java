@@ -1,29 +1,78 @@
 package yuyang.hyy.game.carcassonne.core;
 
-import java.util.Collections;
-import java.util.Stack;
+import java.util.Arrays;
+import java.util.SplittableRandom;
 
 /**
- * The deck to store the stack of tiles
+ * The deck to store the stack of tiles. The stack is an int array of tile type ids from the catalogue, the top
+ * at the end; a tile object is only created when a tile is drawn. The remaining count of every type is kept up to
+ * date, so it can be queried in O(1).
  */
 public class Deck {
-    private final Stack<Tile> tileStack;
+    private final TileCatalogue catalogue;
+    private int[] typeIds;
+    private int size;
+    private final int[] remaining;
+    // The tile returned by checkNextTile(), so that nextTile() returns the same object.
+    private Tile peeked;
 
     /**
      * Create a tile deck from a json file.
      * @param jsonFileName name of json file.
      */
     Deck(String jsonFileName) {
-        tileStack = JSONReader.parse(jsonFileName);
+        this(TileCatalogue.load(jsonFileName));
+    }
+
+    /**
+     * Create a tile deck from a parsed tile catalogue.
+     * @param catalogue the tile set
+     */
+    Deck(TileCatalogue catalogue) {
+        this.catalogue = catalogue;
+        typeIds = catalogue.newDeckTemplate();
+        size = typeIds.length;
+        remaining = new int[catalogue.getTypes().size()];
+        for (int id = 0; id < remaining.length; id++) {
+            remaining[id] = catalogue.getQuantity(id);
+        }
         // For test use, we don't shuffle in the constructor.
     }
 
+    /**
+     * Copy constructor for a forked game, with the same tiles in the same order.
+     * @param original the deck to copy
+     */
+    Deck(Deck original) {
+        catalogue = original.catalogue;
+        typeIds = Arrays.copyOf(original.typeIds, original.size);
+        size = original.size;
+        remaining = original.remaining.clone();
+    }
+
+    /**
+     * Catalogue getter.
+     * @return the tile set of this deck
+     */
+    TileCatalogue getCatalogue() {
+        return catalogue;
+    }
+
     /**
      * Add a tile to the stack. Only for test use. Never used during real game.
-     * @param newTile new tile to add
+     * @param newTile new tile to add, whose type must be from the catalogue of this deck
      */
     void add(Tile newTile) {
-        tileStack.push(newTile);
+        int id = newTile.getType().getId();
+        if (id < 0 || catalogue.getType(id) != newTile.getType()) {
+            throw new IllegalArgumentException("The tile is not from the catalogue of this deck: " + newTile);
+        }
+        if (size == typeIds.length) {
+            typeIds = Arrays.copyOf(typeIds, Math.max(1, size * 2));
+        }
+        typeIds[size++] = id;
+        remaining[id]++;
+        peeked = null;
     }
 
     /**
@@ -31,7 +80,10 @@ public class Deck {
      * @return the next tile from the stack
      */
     Tile checkNextTile() {
-        return tileStack.peek();
+        if (peeked == null) {
+            peeked = new Tile(catalogue.getType(typeIds[size - 1]));
+        }
+        return peeked;
     }
 
     /**
@@ -39,7 +91,10 @@ public class Deck {
      * @return poped tile
      */
     public Tile nextTile() {
-        return tileStack.pop();
+        Tile next = checkNextTile();
+        peeked = null;
+        remaining[typeIds[--size]]--;
+        return next;
     }
 
     /**
@@ -47,15 +102,49 @@ public class Deck {
      * @return stack is empty or not
      */
     public boolean isEmpty() {
-        return tileStack.isEmpty();
+        return size == 0;
+    }
+
+    /**
+     * No. of tiles left in the deck.
+     * @return no. of tiles
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * No. of tiles of a type left in the deck.
+     * @param typeId id of the tile type in the catalogue
+     * @return remaining count
+     */
+    public int getRemaining(int typeId) {
+        return remaining[typeId];
     }
 
     /**
      * Shuffle the tiles.
      */
     public void shuffle() {
-        Collections.shuffle(tileStack);
+        shuffle(new SplittableRandom());
     }
 
+    /**
+     * Shuffle the tiles with the given seed, so that a game can be replayed.
+     * @param seed seed of the shuffle
+     */
+    public void shuffle(long seed) {
+        shuffle(new SplittableRandom(seed));
+    }
 
+    private void shuffle(SplittableRandom random) {
+        // Fisher-Yates
+        for (int i = size - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = typeIds[i];
+            typeIds[i] = typeIds[j];
+            typeIds[j] = tmp;
+        }
+        peeked = null;
+    }
 }
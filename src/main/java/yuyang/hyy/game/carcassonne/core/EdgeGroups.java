@@ -0,0 +1,99 @@
+package yuyang.hyy.game.carcassonne.core;
+
+/**
+ * The road and city features a tile about to be placed would form: its edge sides grouped by the feature they
+ * would join, from the segments of the tile and the feature roots behind each side. Shared by the move generator
+ * and the move evaluator of {@link Board}; one instance per thread, since it is scratch space.
+ */
+final class EdgeGroups {
+    private static final int FOUR = 4;
+    // groups[side]: the smallest side of the feature this side would join, or -1 for a field.
+    private final int[] groups = new int[FOUR];
+    // roots[side]: root of the feature node behind this side, or -1 if there is none.
+    private final int[] roots = new int[FOUR];
+
+    /**
+     * Group the sides of a tile. Only reads the forest, so several threads may group sides on one board.
+     * @param forest the feature forest of the board
+     * @param type the tile type to be placed
+     * @param rotation no. of clockwise rotations
+     * @param key packed location
+     */
+    void group(FeatureForest forest, TileType type, int rotation, long key) {
+        for (int side = 0; side < FOUR; side++) {
+            Orientation o = Board.DIRECTIONS[side];
+            Segment seg = type.getEdgeSeg(rotation, o);
+            groups[side] = -1;
+            if (seg == Segment.FIELD || seg == Segment.MONASTERY) {
+                continue;
+            }
+            groups[side] = side;
+            int neighbor = forest.nodeAt(LocOriPair.pack(Location.neighborKey(key, o), o.getOpposite()));
+            roots[side] = neighbor < 0 ? -1 : forest.root(neighbor);
+            for (int prev = 0; prev < side; prev++) {
+                // All the CITY (or ROAD) segments of a tile are one feature, while each *_END segment is its own.
+                boolean sameSeg = (seg == Segment.CITY || seg == Segment.ROAD)
+                        && seg == type.getEdgeSeg(rotation, Board.DIRECTIONS[prev]);
+                if (groups[prev] >= 0 && (sameSeg || roots[side] >= 0 && roots[side] == roots[prev])) {
+                    merge(groups[prev], groups[side]);
+                }
+            }
+        }
+    }
+
+    private void merge(int a, int b) {
+        int kept = Math.min(a, b), dropped = Math.max(a, b);
+        for (int side = 0; side < FOUR; side++) {
+            if (groups[side] == dropped) {
+                groups[side] = kept;
+            }
+        }
+    }
+
+    /**
+     * Group of a side.
+     * @param side side ordinal, 0 to 3
+     * @return the smallest side of its group, or -1 for a field
+     */
+    int getGroup(int side) {
+        return groups[side];
+    }
+
+    /**
+     * Feature root behind a side.
+     * @param side side ordinal, 0 to 3
+     * @return root node id, or -1
+     */
+    int getRoot(int side) {
+        return roots[side];
+    }
+
+    /**
+     * Whether a side is the first of its group to reach its root, so that each root is counted once per group.
+     * @param side side ordinal, 0 to 3
+     * @return true for the first side
+     */
+    boolean isFirstSideOfRoot(int side) {
+        for (int prev = 0; prev < side; prev++) {
+            if (groups[prev] == groups[side] && roots[prev] == roots[side]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Whether any feature a group would join holds a meeple.
+     * @param forest the feature forest of the board
+     * @param group a group, i.e. the smallest side of it
+     * @return true if a meeple can't be placed on this group
+     */
+    boolean hasMeeple(FeatureForest forest, int group) {
+        for (int side = group; side < FOUR; side++) {
+            if (groups[side] == group && roots[side] >= 0 && forest.getMeepleCount(roots[side]) > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
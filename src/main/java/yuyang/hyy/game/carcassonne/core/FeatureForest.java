@@ -0,0 +1,812 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * Disjoint-set (union-find) engine behind the road and city features.
+ * Every road/city segment group of a placed tile is one node, stored as its packed location and a mask of its sides,
+ * and it gets a feature object only when one is asked for. Connected nodes are merged into one set with union by
+ * rank and path halving, and each root keeps the totals of its set: open edges, tiles, shields and meeples.
+ * So merging two features, checking completion and scoring are all near-constant time, no list is ever copied.
+ * The nodes of a set are also linked in a circular list, which is only walked when the legacy list getters of
+ * {@link ContinuousFeature} are called.
+ * <p>The nodes are stored in chunks of 256, which {@link #fork()} shares between the two forests: forking only copies
+ * the chunk table, and a chunk is copied the first time either forest writes to it.</p>
+ */
+class FeatureForest {
+    private static final int INITIAL_CHUNKS = 1;
+    private static final int CHUNK_SHIFT = 8, CHUNK_SIZE = 1 << CHUNK_SHIFT, CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int NONE = -1;
+    // Int fields of a node, also the field codes of the undo journal.
+    private static final int PARENT = 0, RANK = 1, NEXT = 2, SIDES = 3, OPEN_MASK = 4, OPEN_EDGES = 5, TILE_COUNT = 6,
+            SHIELD_COUNT = 7, MEEPLE_COUNT = 8, MEEPLE_NODE = 9, NEXT_MEEPLE = 10, TYPE = 11, NO_OF_INT_FIELDS = 12;
+    private static final int MEEPLE = 12, ENTRY_SIZE = 3, INITIAL_JOURNAL_SIZE = 16 * ENTRY_SIZE;
+    private static final int FOUR = 4;
+    private static final Segment[] SEGMENTS = Segment.values();
+
+    private int size;
+    private Chunk[] chunks;
+    // Whether this forest may write to a chunk, i.e. it isn't shared with a fork.
+    private boolean[] ownedChunks;
+    // Which node every edge point belongs to, keyed by packed point (see LocOriPair#pack()).
+    private final LongIntHashMap pointIndex;
+    // The placed tiles, looked up by the location of a node. Null for a forest of its own, see City#City(Tile, List).
+    private final TileStorage tiles;
+    // The tile of every node added from a point list, which may not be in the storage.
+    private Map<Integer, Tile> looseTiles;
+    // All the forks of one forest share this token. Feature objects of the shared chunks may still belong to
+    // another forest of the same lineage, and are replaced by their own copies here on the way out.
+    private final Object lineage;
+    private Map<ContinuousFeature, ContinuousFeature> forkedFeatures;
+    // Undo journal while journaling: a (field, index, old value) triple for every write to an existing node.
+    // Paths aren't halved meanwhile, so find() doesn't write at all.
+    private int[] journal = new int[INITIAL_JOURNAL_SIZE];
+    private int journalSize;
+    private boolean journaling;
+
+    /**
+     * The fields of CHUNK_SIZE consecutive nodes.
+     */
+    private static final class Chunk {
+        // Union-find structure, the circular list of all the nodes in one set, the sides of each node and which of
+        // them are still open, the circular list of the nodes holding a meeple in one set, per root the totals of the
+        // set, and the segment type of each node.
+        private final int[][] ints;
+        // Per node: its packed location, its meeple and its feature object, if any.
+        private final long[] keys;
+        private final Meeple[] meeples;
+        private final ContinuousFeature[] features;
+
+        Chunk() {
+            ints = new int[NO_OF_INT_FIELDS][CHUNK_SIZE];
+            keys = new long[CHUNK_SIZE];
+            meeples = new Meeple[CHUNK_SIZE];
+            features = new ContinuousFeature[CHUNK_SIZE];
+        }
+
+        Chunk(Chunk other) {
+            ints = new int[NO_OF_INT_FIELDS][];
+            for (int f = 0; f < NO_OF_INT_FIELDS; f++) {
+                ints[f] = other.ints[f].clone();
+            }
+            keys = other.keys.clone();
+            meeples = other.meeples.clone();
+            features = other.features.clone();
+        }
+    }
+
+    /**
+     * Constructor of an empty forest of its own.
+     */
+    FeatureForest() {
+        this((TileStorage) null);
+    }
+
+    /**
+     * Constructor of an empty forest for a board.
+     * @param boardTiles the placed tiles of the board
+     */
+    FeatureForest(TileStorage boardTiles) {
+        tiles = boardTiles;
+        chunks = new Chunk[INITIAL_CHUNKS];
+        ownedChunks = new boolean[INITIAL_CHUNKS];
+        pointIndex = new LongIntHashMap(NONE);
+        lineage = new Object();
+    }
+
+    private FeatureForest(FeatureForest parent, TileStorage forkedTiles) {
+        tiles = forkedTiles;
+        looseTiles = parent.looseTiles == null ? null : new HashMap<>(parent.looseTiles);
+        size = parent.size;
+        chunks = parent.chunks.clone();
+        ownedChunks = new boolean[chunks.length];
+        pointIndex = parent.pointIndex.fork();
+        lineage = parent.lineage;
+    }
+
+    /**
+     * Copy this forest in O(no. of chunks), sharing the chunks until either forest writes to them. The feature
+     * objects of the copy are created when they are first asked for, see {@link #getFeature(int)}.
+     * The copy starts with an empty undo journal.
+     * @param forkedTiles the placed tiles of the forked board
+     * @return an independent copy
+     */
+    FeatureForest fork(TileStorage forkedTiles) {
+        Arrays.fill(ownedChunks, false);
+        return new FeatureForest(this, forkedTiles);
+    }
+
+    private int get(int field, int id) {
+        return chunks[id >>> CHUNK_SHIFT].ints[field][id & CHUNK_MASK];
+    }
+
+    /**
+     * Write a field without recording it, for new nodes and the writes that are never undone.
+     */
+    private void put(int field, int id, int value) {
+        writable(id).ints[field][id & CHUNK_MASK] = value;
+    }
+
+    /**
+     * Write a field of an existing node, recording the old value while journaling.
+     */
+    private void set(int field, int id, int value) {
+        log(field, id, get(field, id));
+        put(field, id, value);
+    }
+
+    private Chunk writable(int id) {
+        int c = id >>> CHUNK_SHIFT;
+        if (!ownedChunks[c]) {
+            chunks[c] = chunks[c] == null ? new Chunk() : new Chunk(chunks[c]);
+            ownedChunks[c] = true;
+        }
+        return chunks[c];
+    }
+
+    private void ensureCapacity() {
+        if (size < chunks.length * CHUNK_SIZE) {
+            return;
+        }
+        chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        ownedChunks = Arrays.copyOf(ownedChunks, chunks.length);
+    }
+
+    /**
+     * Add the node of a road or city segment group of a placed tile as a singleton set, all its sides open. No
+     * feature object is created until {@link #getFeature(int)} asks for one.
+     * @param key packed location of the tile
+     * @param sides bit i set for each side {@link Board#DIRECTIONS}[i] of the group
+     * @param type CITY or ROAD
+     * @param shield whether the tile has a coat-of-arms
+     * @return id of the new node
+     */
+    int add(long key, int sides, Segment type, boolean shield) {
+        int id = addNode(null, key, type, null);
+        addSides(id, sides, sides);
+        if (shield) {
+            put(SHIELD_COUNT, id, 1);
+        }
+        return id;
+    }
+
+    /**
+     * Add a new set from a list of edge points, all of them open. Points on other locations than the first one get
+     * nodes of their own, merged into the set and counting no tile.
+     * @param fea the feature object of the set
+     * @param tile the tile of the set
+     * @param nodePoints the edge points
+     * @return id of the root of the new set
+     */
+    int add(ContinuousFeature fea, Tile tile, List<LocOriPair> nodePoints) {
+        int first = size;
+        for (LocOriPair point : nodePoints) {
+            long key = point.getLoc().pack();
+            int id = first;
+            while (id < size && getKey(id) != key) {
+                id++;
+            }
+            if (id == size) {
+                addNode(fea, key, fea.getType(), null);
+                put(TILE_COUNT, id, id == first ? 1 : 0);
+            }
+            int bit = 1 << point.getOri().ordinal();
+            addSides(id, get(SIDES, id) | bit, get(OPEN_MASK, id) | bit);
+        }
+        if (size == first) {
+            addNode(fea, 0L, fea.getType(), null);
+        }
+        put(SHIELD_COUNT, first, tile.isShield() ? 1 : 0);
+        if (looseTiles == null) {
+            looseTiles = new HashMap<>();
+        }
+        for (int id = first; id < size; id++) {
+            looseTiles.put(id, tile);
+        }
+        for (int id = first + 1; id < size; id++) {
+            union(first, id);
+        }
+        return first;
+    }
+
+    private int addNode(ContinuousFeature fea, long key, Segment type, Meeple meeple) {
+        ensureCapacity();
+        int id = size++;
+        Chunk chunk = writable(id);
+        int i = id & CHUNK_MASK;
+        chunk.ints[PARENT][i] = id;
+        chunk.ints[RANK][i] = 0;
+        chunk.ints[NEXT][i] = id;
+        chunk.ints[SIDES][i] = 0;
+        chunk.ints[OPEN_MASK][i] = 0;
+        chunk.keys[i] = key;
+        chunk.meeples[i] = meeple;
+        chunk.features[i] = fea;
+        chunk.ints[TYPE][i] = type.ordinal();
+        chunk.ints[NEXT_MEEPLE][i] = id;
+        chunk.ints[OPEN_EDGES][i] = 0;
+        chunk.ints[TILE_COUNT][i] = 1;
+        chunk.ints[SHIELD_COUNT][i] = 0;
+        chunk.ints[MEEPLE_COUNT][i] = meeple == null ? 0 : 1;
+        chunk.ints[MEEPLE_NODE][i] = meeple == null ? NONE : id;
+        return id;
+    }
+
+    /**
+     * Set the sides of a node that is still a singleton set, and index its edge points.
+     */
+    private void addSides(int id, int sides, int open) {
+        put(SIDES, id, sides);
+        put(OPEN_MASK, id, open);
+        put(OPEN_EDGES, id, Integer.bitCount(open));
+        long key = getKey(id);
+        for (int side = 0; side < FOUR; side++) {
+            if ((sides & (1 << side)) != 0) {
+                pointIndex.put(LocOriPair.pack(key, Board.DIRECTIONS[side]), id);
+            }
+        }
+    }
+
+    /**
+     * Find the root of a node, halving the path on the way.
+     * @param id node id
+     * @return root id
+     */
+    int find(int id) {
+        int node = id;
+        int parent;
+        while ((parent = get(PARENT, node)) != node) {
+            int grandparent = get(PARENT, parent);
+            // Don't copy a shared chunk just to shorten a path.
+            if (!journaling && ownedChunks[node >>> CHUNK_SHIFT]) {
+                chunks[node >>> CHUNK_SHIFT].ints[PARENT][node & CHUNK_MASK] = grandparent;
+            }
+            node = parent;
+        }
+        return node;
+    }
+
+    /**
+     * Find the root of a node without halving the path, so that nothing is written and other threads may read the
+     * forest at the same time. Paths stay short anyway thanks to union by rank.
+     * @param id node id
+     * @return root id
+     */
+    int root(int id) {
+        int node = id;
+        int parent;
+        while ((parent = get(PARENT, node)) != node) {
+            node = parent;
+        }
+        return node;
+    }
+
+    /**
+     * Merge the sets of two nodes, by rank.
+     * @param a one node
+     * @param b another node
+     * @return the root of the merged set
+     */
+    int union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return rootA;
+        }
+        if (get(RANK, rootA) < get(RANK, rootB)) {
+            int tmp = rootA;
+            rootA = rootB;
+            rootB = tmp;
+        } else if (get(RANK, rootA) == get(RANK, rootB)) {
+            set(RANK, rootA, get(RANK, rootA) + 1);
+        }
+        set(PARENT, rootB, rootA);
+        // Swapping the successors of one node from each circular list joins the two lists.
+        int tmpNext = get(NEXT, rootA);
+        set(NEXT, rootA, get(NEXT, rootB));
+        set(NEXT, rootB, tmpNext);
+        set(OPEN_EDGES, rootA, get(OPEN_EDGES, rootA) + get(OPEN_EDGES, rootB));
+        set(TILE_COUNT, rootA, get(TILE_COUNT, rootA) + get(TILE_COUNT, rootB));
+        set(SHIELD_COUNT, rootA, get(SHIELD_COUNT, rootA) + get(SHIELD_COUNT, rootB));
+        if (get(MEEPLE_COUNT, rootB) > 0) {
+            if (get(MEEPLE_COUNT, rootA) > 0) {
+                int nodeA = get(MEEPLE_NODE, rootA);
+                int nodeB = get(MEEPLE_NODE, rootB);
+                int tmpMeeple = get(NEXT_MEEPLE, nodeA);
+                set(NEXT_MEEPLE, nodeA, get(NEXT_MEEPLE, nodeB));
+                set(NEXT_MEEPLE, nodeB, tmpMeeple);
+            } else {
+                set(MEEPLE_NODE, rootA, get(MEEPLE_NODE, rootB));
+            }
+            set(MEEPLE_COUNT, rootA, get(MEEPLE_COUNT, rootA) + get(MEEPLE_COUNT, rootB));
+        }
+        return rootA;
+    }
+
+    /**
+     * Start or stop recording the writes of {@link #union(int, int)}, {@link #connect}, {@link #addMeeple} and the
+     * new nodes, so that they can be rolled back. Other writes, such as returning meeples, aren't recorded.
+     * @param on journaling or not
+     */
+    void setJournaling(boolean on) {
+        journaling = on;
+    }
+
+    /**
+     * Current position of the undo journal.
+     * @return no. of recorded writes
+     */
+    int getJournalSize() {
+        return journalSize / ENTRY_SIZE;
+    }
+
+    /**
+     * No. of nodes.
+     * @return size
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Undo the recorded writes back to a journal position, newest first, and drop the nodes added since.
+     * @param pos journal position from {@link #getJournalSize()}
+     * @param noOfNodes no. of nodes from {@link #size()} at that time
+     */
+    void rollback(int pos, int noOfNodes) {
+        while (journalSize > pos * ENTRY_SIZE) {
+            journalSize -= ENTRY_SIZE;
+            int field = journal[journalSize];
+            int index = journal[journalSize + 1];
+            if (field == MEEPLE) {
+                writable(index).meeples[index & CHUNK_MASK] = null;
+            } else {
+                put(field, index, journal[journalSize + 2]);
+            }
+        }
+        for (int id = noOfNodes; id < size; id++) {
+            Chunk chunk = writable(id);
+            int i = id & CHUNK_MASK;
+            for (int side = 0; side < FOUR; side++) {
+                if ((chunk.ints[SIDES][i] & (1 << side)) != 0) {
+                    pointIndex.remove(LocOriPair.pack(chunk.keys[i], Board.DIRECTIONS[side]));
+                }
+            }
+            if (looseTiles != null) {
+                looseTiles.remove(id);
+            }
+            chunk.meeples[i] = null;
+            chunk.features[i] = null;
+        }
+        size = noOfNodes;
+    }
+
+    private void log(int field, int index, int oldValue) {
+        if (!journaling) {
+            return;
+        }
+        if (journalSize == journal.length) {
+            journal = Arrays.copyOf(journal, journalSize * 2);
+        }
+        journal[journalSize++] = field;
+        journal[journalSize++] = index;
+        journal[journalSize++] = oldValue;
+    }
+
+    /**
+     * Close an open side of a node, because a neighboring segment now covers it.
+     * @param id node id
+     * @param side side index in {@link Board#DIRECTIONS}
+     */
+    private void closeSide(int id, int side) {
+        int open = get(OPEN_MASK, id);
+        if ((open & (1 << side)) != 0) {
+            int root = find(id);
+            set(OPEN_MASK, id, open & ~(1 << side));
+            set(OPEN_EDGES, root, get(OPEN_EDGES, root) - 1);
+        }
+    }
+
+    /**
+     * Connect a node with the node behind one of its sides: merge their sets and close both edges. On a tie in rank
+     * the root of the neighbor stays the root, so that a new node seldom needs a feature object.
+     * @param id one node
+     * @param side side index of id in {@link Board#DIRECTIONS}
+     * @param neighbor the node on the other side of this edge
+     */
+    void connect(int id, int side, int neighbor) {
+        union(neighbor, id);
+        closeSide(id, side);
+        closeSide(neighbor, Board.DIRECTIONS[side].getOpposite().ordinal());
+    }
+
+    /**
+     * Combine the sets of two nodes if any of their open points are neighbors. Used by
+     * {@link ContinuousFeature#combineFeature(ContinuousFeature)}.
+     * @param a one node
+     * @param b another node
+     * @return true if combined
+     */
+    boolean combine(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return false;
+        }
+        // (node, side, neighbor) of every edge to connect.
+        List<int[]> edges = new ArrayList<>();
+        int node = rootA;
+        do {
+            for (int side = 0; side < FOUR; side++) {
+                if (!isOpen(node, side)) {
+                    continue;
+                }
+                Orientation o = Board.DIRECTIONS[side];
+                int neighbor = nodeAt(LocOriPair.pack(Location.neighborKey(getKey(node), o), o.getOpposite()));
+                if (neighbor != NONE && find(neighbor) == rootB && isOpen(neighbor, o.getOpposite().ordinal())) {
+                    edges.add(new int[] {node, side, neighbor});
+                }
+            }
+            node = get(NEXT, node);
+        } while (node != rootA);
+        for (int[] edge : edges) {
+            connect(edge[0], edge[1], edge[2]);
+        }
+        return !edges.isEmpty();
+    }
+
+    private boolean isOpen(int id, int side) {
+        return (get(OPEN_MASK, id) & (1 << side)) != 0;
+    }
+
+    /**
+     * Move the whole set of a feature from its own forest into this one, so that it can be combined with the
+     * features here. The feature objects of the moved nodes are rebound to the new nodes.
+     * @param fea a feature of another forest
+     */
+    void adopt(ContinuousFeature fea) {
+        FeatureForest other = fea.getForest();
+        int root = other.find(fea.getNodeId());
+        int node = root;
+        int first = NONE;
+        do {
+            ContinuousFeature nodeFea = other.chunks[node >>> CHUNK_SHIFT].features[node & CHUNK_MASK];
+            int id = addNode(nodeFea, other.getKey(node), other.getType(node), other.getMeeple(node));
+            addSides(id, other.get(SIDES, node), other.get(OPEN_MASK, node));
+            if (nodeFea != null && nodeFea.getNodeId() == node) {
+                nodeFea.rebind(this, id);
+            }
+            if (looseTiles == null) {
+                looseTiles = new HashMap<>();
+            }
+            looseTiles.put(id, other.getTile(node));
+            if (first == NONE) {
+                first = id;
+            } else {
+                union(first, id);
+            }
+            node = other.get(NEXT, node);
+        } while (node != root);
+        // The totals of the other set may differ from the sums of its nodes, e.g. a tile counted once for two nodes.
+        int newRoot = find(first);
+        put(TILE_COUNT, newRoot, other.get(TILE_COUNT, root));
+        put(SHIELD_COUNT, newRoot, other.get(SHIELD_COUNT, root));
+    }
+
+    /**
+     * Add a tile without any edge point to the set of a node.
+     * @param id node id
+     * @param tile the tile to add
+     */
+    void addTile(int id, Tile tile) {
+        int newNode = add(getFeature(id), tile, List.of());
+        union(id, newNode);
+    }
+
+    /**
+     * Count a tile once less in the set of a node, after another segment of the same tile has joined the set, e.g.
+     * the second of two city ends closing a U-shaped city. A tile counts once per feature.
+     * @param id node id
+     * @param shield whether the tile counted twice has a coat-of-arms
+     */
+    void uncountTile(int id, boolean shield) {
+        int root = find(id);
+        set(TILE_COUNT, root, get(TILE_COUNT, root) - 1);
+        if (shield) {
+            set(SHIELD_COUNT, root, get(SHIELD_COUNT, root) - 1);
+        }
+    }
+
+    /**
+     * Get the node an edge point belongs to.
+     * @param point edge point
+     * @return node id, or -1 if no feature contains this point
+     */
+    int nodeAt(LocOriPair point) {
+        return pointIndex.get(point.pack());
+    }
+
+    /**
+     * Get the node an edge point belongs to, without creating any point.
+     * @param pointKey packed edge point, see {@link LocOriPair#pack(long, Orientation)}
+     * @return node id, or -1 if no feature contains this point
+     */
+    int nodeAt(long pointKey) {
+        return pointIndex.get(pointKey);
+    }
+
+    /**
+     * Get the feature object of a node, created on the first call for a node of a placed tile. In a fork, the feature
+     * objects inherited from the other forests of the lineage are replaced by copies bound to this forest, one copy
+     * per inherited object.
+     * @param id node id
+     * @return feature object
+     */
+    ContinuousFeature getFeature(int id) {
+        ContinuousFeature fea = chunks[id >>> CHUNK_SHIFT].features[id & CHUNK_MASK];
+        if (fea == null) {
+            fea = ContinuousFeature.of(getType(id), this, id);
+            writable(id).features[id & CHUNK_MASK] = fea;
+            return fea;
+        }
+        if (fea.getForest() == this || fea.getForest().lineage != lineage) {
+            return fea;
+        }
+        if (forkedFeatures == null) {
+            forkedFeatures = new IdentityHashMap<>();
+        }
+        ContinuousFeature own = forkedFeatures.computeIfAbsent(fea, inherited -> inherited.forkTo(this));
+        if (ownedChunks[id >>> CHUNK_SHIFT]) {
+            chunks[id >>> CHUNK_SHIFT].features[id & CHUNK_MASK] = own;
+        }
+        return own;
+    }
+
+    /**
+     * Get the feature object of the root of a node, which stands for the whole set.
+     * @param id node id
+     * @return feature object of the root
+     */
+    ContinuousFeature getRootFeature(int id) {
+        return getFeature(find(id));
+    }
+
+    /**
+     * Get the packed location of one node.
+     * @param id node id
+     * @return packed location, see {@link Location#pack()}
+     */
+    long getKey(int id) {
+        return chunks[id >>> CHUNK_SHIFT].keys[id & CHUNK_MASK];
+    }
+
+    /**
+     * Get the sides of one node (not its whole set).
+     * @param id node id
+     * @return bit i set for each side {@link Board#DIRECTIONS}[i] of the node
+     */
+    int getSides(int id) {
+        return get(SIDES, id);
+    }
+
+    /**
+     * Get the segment type of a node.
+     * @param id node id
+     * @return CITY or ROAD
+     */
+    Segment getType(int id) {
+        return SEGMENTS[get(TYPE, id)];
+    }
+
+    private Tile getTile(int id) {
+        Tile loose = looseTiles == null ? null : looseTiles.get(id);
+        return loose != null || tiles == null ? loose : tiles.get(getKey(id));
+    }
+
+    private Meeple getMeeple(int id) {
+        return chunks[id >>> CHUNK_SHIFT].meeples[id & CHUNK_MASK];
+    }
+
+    /**
+     * Get the no. of open edge points of the set of a node.
+     * @param id node id
+     * @return open edges, 0 if the feature is complete
+     */
+    int getOpenEdges(int id) {
+        return get(OPEN_EDGES, find(id));
+    }
+
+    /**
+     * Get the no. of tiles of the set of a node.
+     * @param id node id
+     * @return tile count
+     */
+    int getTileCount(int id) {
+        return get(TILE_COUNT, find(id));
+    }
+
+    /**
+     * Get the no. of tiles with a coat-of-arm in the set of a node.
+     * @param id node id
+     * @return shield count
+     */
+    int getShieldCount(int id) {
+        return get(SHIELD_COUNT, find(id));
+    }
+
+    /**
+     * Get the no. of meeples in the set of a node.
+     * @param id node id
+     * @return meeple count
+     */
+    int getMeepleCount(int id) {
+        return get(MEEPLE_COUNT, find(id));
+    }
+
+    /**
+     * Put a meeple on a node if its whole set has no meeple yet.
+     * @param id node id
+     * @param meeple meeple to place
+     * @return true if placed
+     */
+    boolean addMeeple(int id, Meeple meeple) {
+        int root = find(id);
+        if (get(MEEPLE_COUNT, root) > 0) {
+            return false;
+        }
+        log(MEEPLE, id, 0);
+        writable(id).meeples[id & CHUNK_MASK] = meeple;
+        set(NEXT_MEEPLE, id, id);
+        set(MEEPLE_NODE, root, id);
+        set(MEEPLE_COUNT, root, 1);
+        return true;
+    }
+
+    /**
+     * Remove one meeple from the set of a node.
+     * @param id node id
+     * @param meeple the meeple to remove
+     * @return true if removed
+     */
+    boolean removeMeeple(int id, Meeple meeple) {
+        int root = find(id);
+        int count = get(MEEPLE_COUNT, root);
+        if (count == 0) {
+            return false;
+        }
+        int prev = get(MEEPLE_NODE, root);
+        int node = get(NEXT_MEEPLE, prev);
+        for (int i = 0; i < count; i++) {
+            if (getMeeple(node) == meeple) {
+                writable(node).meeples[node & CHUNK_MASK] = null;
+                put(MEEPLE_COUNT, root, count - 1);
+                if (count == 1) {
+                    put(MEEPLE_NODE, root, NONE);
+                } else {
+                    put(NEXT_MEEPLE, prev, get(NEXT_MEEPLE, node));
+                    put(MEEPLE_NODE, root, prev);
+                }
+                put(NEXT_MEEPLE, node, node);
+                return true;
+            }
+            prev = node;
+            node = get(NEXT_MEEPLE, node);
+        }
+        return false;
+    }
+
+    /**
+     * Get all the meeples in the set of a node.
+     * @param id node id
+     * @return list of meeples
+     */
+    List<Meeple> getMeeples(int id) {
+        int root = find(id);
+        List<Meeple> result = new ArrayList<>(get(MEEPLE_COUNT, root));
+        if (get(MEEPLE_COUNT, root) > 0) {
+            int first = get(MEEPLE_NODE, root);
+            int node = first;
+            do {
+                result.add(getMeeple(node));
+                node = get(NEXT_MEEPLE, node);
+            } while (node != first);
+        }
+        return result;
+    }
+
+    /**
+     * Swap every meeple in the set of a node for another one, e.g. for the meeple of the same owner in a forked
+     * game. Not recorded in the undo journal.
+     * @param id node id
+     * @param mapping the replacement of each meeple
+     */
+    void replaceMeeples(int id, UnaryOperator<Meeple> mapping) {
+        int root = find(id);
+        if (get(MEEPLE_COUNT, root) > 0) {
+            int first = get(MEEPLE_NODE, root);
+            int node = first;
+            do {
+                writable(node).meeples[node & CHUNK_MASK] = mapping.apply(getMeeple(node));
+                node = get(NEXT_MEEPLE, node);
+            } while (node != first);
+        }
+    }
+
+    /**
+     * Take all the meeples off the set of a node.
+     * @param id node id
+     * @return list of meeples removed
+     */
+    List<Meeple> returnMeeples(int id) {
+        int root = find(id);
+        List<Meeple> result = getMeeples(root);
+        int count = get(MEEPLE_COUNT, root);
+        if (count > 0) {
+            int node = get(MEEPLE_NODE, root);
+            for (int i = 0; i < count; i++) {
+                int nextNode = get(NEXT_MEEPLE, node);
+                writable(node).meeples[node & CHUNK_MASK] = null;
+                put(NEXT_MEEPLE, node, node);
+                node = nextNode;
+            }
+            put(MEEPLE_COUNT, root, 0);
+            put(MEEPLE_NODE, root, NONE);
+        }
+        return result;
+    }
+
+    /**
+     * Walk the whole set of a node to list its tiles, each once.
+     * @param id node id
+     * @return list of tiles
+     */
+    List<Tile> collectTiles(int id) {
+        int root = find(id);
+        List<Tile> result = new ArrayList<>(get(TILE_COUNT, root));
+        // A tile may hold several nodes of the set. Tile#equals compares the segments, so two tiles of one type would
+        // look the same, and a packed storage creates a new tile object on every lookup.
+        Set<Long> seenKeys = new HashSet<>();
+        Set<Tile> seenTiles = Collections.newSetFromMap(new IdentityHashMap<>());
+        int node = root;
+        do {
+            Tile tile = getTile(node);
+            boolean isLoose = looseTiles != null && looseTiles.containsKey(node);
+            if (isLoose ? seenTiles.add(tile) : seenKeys.add(getKey(node))) {
+                result.add(tile);
+            }
+            node = get(NEXT, node);
+        } while (node != root);
+        return result;
+    }
+
+    /**
+     * Walk the whole set of a node to list its edge points.
+     * @param id node id
+     * @param onlyOpen only list the open points
+     * @return list of points
+     */
+    List<LocOriPair> collectPoints(int id, boolean onlyOpen) {
+        int root = find(id);
+        List<LocOriPair> result = new ArrayList<>();
+        int node = root;
+        do {
+            int sides = onlyOpen ? get(OPEN_MASK, node) : get(SIDES, node);
+            for (int side = 0; side < FOUR; side++) {
+                if ((sides & (1 << side)) != 0) {
+                    result.add(new LocOriPair(Location.unpack(getKey(node)), Board.DIRECTIONS[side]));
+                }
+            }
+            node = get(NEXT, node);
+        } while (node != root);
+        return result;
+    }
+}
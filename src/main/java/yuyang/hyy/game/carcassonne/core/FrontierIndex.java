@@ -0,0 +1,390 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * The open frontier of the board, indexed by edge constraints.
+ * Every frontier location carries a constraint mask in the same layout as {@link Tile#getEdgeWord()}: for each side,
+ * the edge code the new tile must have there, or 0 if that side has no neighbor yet. Locations are bucketed by mask,
+ * so a tile fits somewhere iff one of the (at most 16 per rotation) masks compatible with its edge word is non-empty.
+ * Locations are kept as packed keys (see {@link Location#pack()}), and each bucket is a plain long array with
+ * swap-remove, so updating the index doesn't allocate.
+ */
+class FrontierIndex {
+    private static final int FOUR = 4, NO_OF_MASKS = 256, NO_OF_SUBSETS = 16, SIDE_BITS = 0b11, WORD_BITS = 0xFF,
+            MASK_BITS = 8, INITIAL_BUCKET_SIZE = 4, INITIAL_JOURNAL_SIZE = 16;
+    // SUBSET_MASKS[s] keeps the 2 bits of side i iff bit i of s is set.
+    private static final int[] SUBSET_MASKS = new int[NO_OF_SUBSETS];
+
+    static {
+        for (int s = 0; s < NO_OF_SUBSETS; s++) {
+            for (int i = 0; i < FOUR; i++) {
+                if ((s & (1 << i)) != 0) {
+                    SUBSET_MASKS[s] |= SIDE_BITS << (2 * i);
+                }
+            }
+        }
+    }
+
+    // Frontier key -> its mask in the low 8 bits and its position in the bucket of that mask above.
+    private final LongIntHashMap entries;
+    private final long[][] buckets;
+    private final int[] counts;
+    // Whether this index may write to a bucket array, i.e. it isn't shared with a fork.
+    private final boolean[] ownedBuckets;
+    private final Set<Location> locView = new LocationView();
+    // Masks whose bucket turned empty or non-empty since the last drain, each listed once.
+    private final int[] flipped;
+    private final boolean[] isFlipped;
+    private int noOfFlipped;
+    // Undo journal while journaling: (key, old mask or -1) of every change, see rollback(int).
+    private long[] journalKeys = new long[INITIAL_JOURNAL_SIZE];
+    private int[] journalMasks = new int[INITIAL_JOURNAL_SIZE];
+    private int journalSize;
+    private boolean journaling;
+
+    /**
+     * Constructor of an empty frontier.
+     */
+    FrontierIndex() {
+        entries = new LongIntHashMap(-1);
+        buckets = new long[NO_OF_MASKS][];
+        counts = new int[NO_OF_MASKS];
+        ownedBuckets = new boolean[NO_OF_MASKS];
+        flipped = new int[NO_OF_MASKS];
+        isFlipped = new boolean[NO_OF_MASKS];
+    }
+
+    private FrontierIndex(FrontierIndex parent) {
+        entries = parent.entries.fork();
+        buckets = parent.buckets.clone();
+        counts = parent.counts.clone();
+        ownedBuckets = new boolean[NO_OF_MASKS];
+        flipped = parent.flipped.clone();
+        isFlipped = parent.isFlipped.clone();
+        noOfFlipped = parent.noOfFlipped;
+    }
+
+    /**
+     * Copy this frontier, sharing the bucket arrays and the pages of the entries until either copy writes to them.
+     * The copy starts with an empty undo journal.
+     * @return an independent copy
+     */
+    FrontierIndex fork() {
+        Arrays.fill(ownedBuckets, false);
+        return new FrontierIndex(this);
+    }
+
+    /**
+     * Rotate an edge word clockwise.
+     * @param word edge word
+     * @param times no. of clockwise rotations
+     * @return the edge word after rotation
+     */
+    static int rotateWord(int word, int times) {
+        int shift = 2 * (times & (FOUR - 1));
+        return ((word << shift) | (word >>> (2 * FOUR - shift))) & WORD_BITS;
+    }
+
+    /**
+     * Check whether a tile with this edge word satisfies a constraint mask.
+     * @param word edge word of the tile
+     * @param mask constraint mask of a location
+     * @return true if every constrained side has the same edge code
+     */
+    static boolean fits(int word, int mask) {
+        int constrainedSides = 0;
+        for (int i = 0; i < FOUR; i++) {
+            if ((mask & (SIDE_BITS << (2 * i))) != 0) {
+                constrainedSides |= SIDE_BITS << (2 * i);
+            }
+        }
+        return (word & constrainedSides) == mask;
+    }
+
+    /**
+     * Whether a location belongs to the frontier.
+     * @param key packed location
+     * @return true if it's empty and next to a placed tile
+     */
+    boolean contains(long key) {
+        return entries.containsKey(key);
+    }
+
+    /**
+     * Get the constraint mask of a frontier location.
+     * @param key packed location
+     * @return the mask, or -1 if the location isn't on the frontier
+     */
+    int getMask(long key) {
+        int entry = entries.get(key);
+        return entry < 0 ? -1 : entry & WORD_BITS;
+    }
+
+    /**
+     * No. of frontier locations.
+     * @return size of the frontier
+     */
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Read-only view of all frontier locations. Locations are created while iterating.
+     * @return frontier locations
+     */
+    Set<Location> getLocations() {
+        return locView;
+    }
+
+    /**
+     * Remove a location from the frontier, because a tile has been placed on it.
+     * @param key packed location
+     */
+    void remove(long key) {
+        int entry = entries.remove(key);
+        if (entry >= 0) {
+            log(key, entry & WORD_BITS);
+            removeFromBucket(entry & WORD_BITS, entry >>> MASK_BITS);
+        }
+    }
+
+    /**
+     * Constrain one side of an empty location, adding the location to the frontier if it's new.
+     * @param key packed empty location next to a newly placed tile
+     * @param side the side of this location facing the new tile
+     * @param edgeCode the edge code of the new tile on that side
+     */
+    void constrain(long key, Orientation side, int edgeCode) {
+        int entry = entries.get(key);
+        int newMask = edgeCode << (2 * side.ordinal());
+        log(key, entry < 0 ? -1 : entry & WORD_BITS);
+        if (entry >= 0) {
+            removeFromBucket(entry & WORD_BITS, entry >>> MASK_BITS);
+            newMask |= entry & WORD_BITS;
+        }
+        entries.put(key, newMask | (addToBucket(newMask, key) << MASK_BITS));
+    }
+
+    /**
+     * Start or stop recording the changes, so that they can be rolled back.
+     * @param on journaling or not
+     */
+    void setJournaling(boolean on) {
+        journaling = on;
+    }
+
+    /**
+     * Current position of the undo journal.
+     * @return no. of recorded changes
+     */
+    int getJournalSize() {
+        return journalSize;
+    }
+
+    /**
+     * Undo the recorded changes back to a journal position, newest first.
+     * @param pos journal position from {@link #getJournalSize()}
+     */
+    void rollback(int pos) {
+        while (journalSize > pos) {
+            journalSize--;
+            long key = journalKeys[journalSize];
+            int oldMask = journalMasks[journalSize];
+            int entry = entries.remove(key);
+            if (entry >= 0) {
+                removeFromBucket(entry & WORD_BITS, entry >>> MASK_BITS);
+            }
+            if (oldMask >= 0) {
+                entries.put(key, oldMask | (addToBucket(oldMask, key) << MASK_BITS));
+            }
+        }
+    }
+
+    private void log(long key, int oldMask) {
+        if (!journaling) {
+            return;
+        }
+        if (journalSize == journalKeys.length) {
+            journalKeys = Arrays.copyOf(journalKeys, journalSize * 2);
+            journalMasks = Arrays.copyOf(journalMasks, journalSize * 2);
+        }
+        journalKeys[journalSize] = key;
+        journalMasks[journalSize] = oldMask;
+        journalSize++;
+    }
+
+    private int addToBucket(int mask, long key) {
+        if (buckets[mask] == null) {
+            buckets[mask] = new long[INITIAL_BUCKET_SIZE];
+            ownedBuckets[mask] = true;
+        } else if (counts[mask] == buckets[mask].length) {
+            buckets[mask] = Arrays.copyOf(buckets[mask], counts[mask] * 2);
+            ownedBuckets[mask] = true;
+        } else {
+            ownBucket(mask);
+        }
+        if (counts[mask] == 0) {
+            markFlipped(mask);
+        }
+        buckets[mask][counts[mask]] = key;
+        return counts[mask]++;
+    }
+
+    private void removeFromBucket(int mask, int pos) {
+        int last = --counts[mask];
+        if (last == 0) {
+            markFlipped(mask);
+        }
+        if (pos != last) {
+            ownBucket(mask);
+            long moved = buckets[mask][last];
+            buckets[mask][pos] = moved;
+            entries.put(moved, mask | (pos << MASK_BITS));
+        }
+    }
+
+    private void ownBucket(int mask) {
+        if (!ownedBuckets[mask]) {
+            buckets[mask] = buckets[mask].clone();
+            ownedBuckets[mask] = true;
+        }
+    }
+
+    private void markFlipped(int mask) {
+        if (!isFlipped[mask]) {
+            isFlipped[mask] = true;
+            flipped[noOfFlipped++] = mask;
+        }
+    }
+
+    /**
+     * Hand over the masks whose bucket turned empty or non-empty since the last call, and forget them.
+     * Only these masks can change the answer of {@link #fitsAnywhere(int)} for any tile.
+     * @param out array of at least 256 ints to receive the masks
+     * @return no. of masks written
+     */
+    int drainFlippedMasks(int[] out) {
+        int n = noOfFlipped;
+        for (int i = 0; i < n; i++) {
+            out[i] = flipped[i];
+            isFlipped[flipped[i]] = false;
+        }
+        noOfFlipped = 0;
+        return n;
+    }
+
+    /**
+     * All the masks whose bucket decides whether a tile fits anywhere.
+     * @param word edge word of the tile
+     * @param result the array to mark the masks in, indexed by mask
+     */
+    static void markDependentMasks(int word, boolean[] result) {
+        for (int r = 0; r < FOUR; r++) {
+            int rotated = rotateWord(word, r);
+            for (int mask : SUBSET_MASKS) {
+                result[rotated & mask] = true;
+            }
+        }
+    }
+
+    /**
+     * Check whether a tile fits at least one frontier location in any rotation. Looks at 64 counters at most.
+     * @param word edge word of the tile
+     * @return true if there is a legal placement
+     */
+    boolean fitsAnywhere(int word) {
+        for (int r = 0; r < FOUR; r++) {
+            int rotated = rotateWord(word, r);
+            for (int mask : SUBSET_MASKS) {
+                if (counts[rotated & mask] > 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * List every legal placement of a tile.
+     * @param word edge word of the tile in its current rotation
+     * @param currRotation current clockwise rotation no. of the tile
+     * @param result the list to add the placements to
+     */
+    void collectPlacements(int word, int currRotation, List<Placement> result) {
+        for (int r = 0; r < FOUR; r++) {
+            int rotated = rotateWord(word, r);
+            for (int mask : SUBSET_MASKS) {
+                int bucket = rotated & mask;
+                for (int i = 0; i < counts[bucket]; i++) {
+                    result.add(new Placement(Location.unpack(buckets[bucket][i]), (currRotation + r) % FOUR));
+                }
+            }
+        }
+    }
+
+    /**
+     * Add every frontier location a tile fits in one rotation to a move buffer, without a meeple.
+     * @param word edge word of the tile in this rotation
+     * @param rotation clockwise rotation no. of the tile
+     * @param out the buffer to add the moves to
+     */
+    void collectMoves(int word, int rotation, MoveBuffer out) {
+        for (int mask : SUBSET_MASKS) {
+            int bucket = word & mask;
+            for (int i = 0; i < counts[bucket]; i++) {
+                out.add(buckets[bucket][i], rotation, null);
+            }
+        }
+    }
+
+    /**
+     * Read-only set view of the frontier locations.
+     */
+    private class LocationView extends AbstractSet<Location> {
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Location && entries.containsKey(((Location) o).pack());
+        }
+
+        @Override
+        public int size() {
+            return entries.size();
+        }
+
+        @Override
+        public Iterator<Location> iterator() {
+            return new Iterator<>() {
+                private int slot = nextUsed(0);
+
+                private int nextUsed(int from) {
+                    int i = from;
+                    while (i < entries.capacity() && !entries.isUsed(i)) {
+                        i++;
+                    }
+                    return i;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return slot < entries.capacity();
+                }
+
+                @Override
+                public Location next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    Location loc = Location.unpack(entries.keyAt(slot));
+                    slot = nextUsed(slot + 1);
+                    return loc;
+                }
+            };
+        }
+    }
+}
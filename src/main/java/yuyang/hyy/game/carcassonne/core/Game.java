@@ -1,7 +1,11 @@
 package yuyang.hyy.game.carcassonne.core;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * The game system class
@@ -12,27 +16,112 @@ public class Game {
     private final List<Player> playerList;
     private List<Player> winner;
     private final Deck deck;
+    private final PlaceabilityCache placeableTypes;
     private boolean isRunning;
     private Player currPlayer;
     private Tile currTile;
     private int turnCount;
     private boolean tilePlaced;
+    // Seed of the deck shuffle, if the deck was shuffled with a known seed: the game can then be replayed.
+    private final long deckSeed;
+    private boolean seeded;
     /** The listeners who will be notified of changes in the game board */
     private final List<GameBoardChangeListener> gameBoardChangeListeners = new ArrayList<>();
     /** The listeners who will be notified of changes in the game state */
     private final List<PlayerStatusChangeListener> playerStatusChangeListeners = new ArrayList<>();
+    /** The listeners who will be notified of all the changes of a phase at once */
+    private final List<TurnDeltaListener> turnDeltaListeners = new ArrayList<>();
+    // Changes of the running phase, only recorded once a listener is added: simulations don't pay for them.
+    private TurnDelta.Recorder recorder;
 
     /**
-     * The constructor used for real game.
+     * The constructor used for real game. The deck is shuffled with a random seed.
      * @param playerList a list of participants.
      */
     public Game(List<Player> playerList) {
+        this(playerList, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * The constructor used for a real game with a known deck, e.g. to resume a saved game.
+     * @param playerList a list of participants.
+     * @param deckSeed seed of the deck shuffle
+     */
+    public Game(List<Player> playerList, long deckSeed) {
+        this(playerList, TileCatalogue.getDefault(), deckSeed, Board.StorageMode.HASH_MAP);
+    }
+
+    /**
+     * The constructor used for headless simulations. Nothing is shared with other games except the catalogue,
+     * so games built this way can run on different threads at the same time.
+     * @param playerList a list of participants.
+     * @param catalogue the tile set
+     * @param deckSeed seed of the deck shuffle
+     * @param mode storage mode of the board
+     */
+    Game(List<Player> playerList, TileCatalogue catalogue, long deckSeed, Board.StorageMode mode) {
         this.playerList = playerList;
-        board = new Board();
+        board = new Board(mode);
         currTile = new Tile(4, Segment.ROAD, Segment.CITY_END, Segment.ROAD, Segment.FIELD, Segment.FIELD, false);
         board.placeFirstTile(currTile);
-        deck = new Deck("src/main/resources/tiles.json");
-        deck.shuffle();
+        deck = new Deck(catalogue);
+        deck.shuffle(deckSeed);
+        this.deckSeed = deckSeed;
+        seeded = true;
+        placeableTypes = new PlaceabilityCache(deck.getCatalogue(), board);
+    }
+
+    /**
+     * The constructor used for benchmarks, to continue a game on a prepared board.
+     * @param playerList a list of participants.
+     * @param board a board with at least the first tile placed
+     * @param deck the remaining tiles, not shuffled here
+     */
+    Game(List<Player> playerList, Board board, Deck deck) {
+        this.playerList = playerList;
+        this.board = board;
+        this.deck = deck;
+        deckSeed = 0;
+        seeded = false;
+        placeableTypes = new PlaceabilityCache(deck.getCatalogue(), board);
+    }
+
+    private Game(Game parent) {
+        Map<Player, Player> players = new HashMap<>();
+        playerList = new ArrayList<>(parent.playerList.size());
+        for (Player p : parent.playerList) {
+            Player copy = new Player(p);
+            players.put(p, copy);
+            playerList.add(copy);
+        }
+        board = parent.board.fork(m -> new Meeple(players.getOrDefault(m.getOwner(), m.getOwner())));
+        deck = new Deck(parent.deck);
+        deckSeed = parent.deckSeed;
+        seeded = parent.seeded;
+        placeableTypes = new PlaceabilityCache(parent.placeableTypes, board);
+        isRunning = parent.isRunning;
+        currPlayer = players.get(parent.currPlayer);
+        // Once placed, the current tile is on the board and doesn't change any more.
+        currTile = parent.currTile == null || parent.tilePlaced ? parent.currTile : new Tile(parent.currTile);
+        turnCount = parent.turnCount;
+        tilePlaced = parent.tilePlaced;
+        if (parent.winner != null) {
+            winner = new ArrayList<>();
+            for (Player p : parent.winner) {
+                winner.add(players.get(p));
+            }
+        }
+    }
+
+    /**
+     * Copy this game for a search or simulation worker: the players (with their scores and meeples), the board
+     * (see {@link Board#fork()}), the remaining deck in the same order, and the turn state. The listeners aren't
+     * copied. Both games can then be played on independently, on different threads; fork on the thread that owns
+     * this game.
+     * @return an independent copy
+     */
+    public Game fork() {
+        return new Game(this);
     }
 
     /**
@@ -50,6 +139,9 @@ public class Game {
         currTile = new Tile(4, Segment.ROAD, Segment.CITY_END, Segment.ROAD, Segment.FIELD, Segment.FIELD, false);
         board.placeFirstTile(currTile);
         deck = new Deck("src/main/resources/testTiles.json");
+        deckSeed = 0;
+        seeded = false;
+        placeableTypes = new PlaceabilityCache(deck.getCatalogue(), board);
     }
     /**
      * This constructor is only used for testcases (so that a different (smaller) stack can be used, and it won't be shuffled)
@@ -64,6 +156,9 @@ public class Game {
         currTile = new Tile(4, Segment.ROAD, Segment.CITY_END, Segment.ROAD, Segment.FIELD, Segment.FIELD, false);
         board.placeFirstTile(currTile);
         deck = new Deck("src/main/resources/testCityTiles.json");
+        deckSeed = 0;
+        seeded = false;
+        placeableTypes = new PlaceabilityCache(deck.getCatalogue(), board);
     }
 
     /**
@@ -72,6 +167,7 @@ public class Game {
      * @param listener The listener to be notified of game change events.
      */
     public void addGameBoardChangeListener(GameBoardChangeListener listener) {
+        startRecording();
         gameBoardChangeListeners.add(listener);
     }
 
@@ -81,9 +177,27 @@ public class Game {
      * @param listener The listener to be notified of game change events.
      */
     public void addPlayerStatusChangeListener(PlayerStatusChangeListener listener) {
+        startRecording();
         playerStatusChangeListeners.add(listener);
     }
 
+    /**
+     * Add a listener to be notified of the changes of each phase in one batch, on the thread playing the game.
+     * The board and player status listeners get the same batch as fine-grained callbacks, derived with
+     * {@link TurnDelta#replay(List, List)}: each changed player is reported once, not once per change.
+     * @param listener the turn delta listener
+     */
+    public void addTurnDeltaListener(TurnDeltaListener listener) {
+        startRecording();
+        turnDeltaListeners.add(listener);
+    }
+
+    private void startRecording() {
+        if (recorder == null) {
+            recorder = new TurnDelta.Recorder(playerList);
+        }
+    }
+
     /**
      * Clockwise rotation times getter. Used for rotation of tile images.
      * @return no. of clockwise rotation times.
@@ -101,6 +215,7 @@ public class Game {
         currPlayer = getNextPlayer();
         currTile = deck.nextTile();
         tilePlaced = false;
+        publish(TurnDelta.Phase.START);
     }
 
     /**
@@ -117,11 +232,13 @@ public class Game {
         turnCount++;
         currPlayer = getNextPlayer();
         currTile = deck.nextTile();
-        while (!board.tileIsLegal(currTile) && !deck.isEmpty()) {
+        // Discard and redraw: a table lookup per tile, see PlaceabilityCache.
+        while (!placeableTypes.isPlaceable(currTile.getType()) && !deck.isEmpty()) {
             currTile = deck.nextTile();
         }
         tilePlaced = false;
         notifyNextTurn();
+        publish(TurnDelta.Phase.TURN_END);
     }
 
     /**
@@ -130,6 +247,20 @@ public class Game {
     public void endGame() {
         assert deck.isEmpty();
         endGameUpdate();
+        declareWinners();
+    }
+
+    /**
+     * End game when the last tile of the deck has no legal placement, so it's never placed: the completed features
+     * were already scored by the previous turn, only the incomplete ones are scored. Figure out the winner.
+     */
+    public void endGameWithoutPlacement() {
+        assert deck.isEmpty() && isRunning && !tilePlaced;
+        scoreIncompleteFeatures();
+        declareWinners();
+    }
+
+    private void declareWinners() {
         int maxScore = playerList.get(0).getScore();
         winner = new ArrayList<>();
         for (Player player : playerList) {
@@ -141,6 +272,7 @@ public class Game {
             }
         }
         notifyGameOver(winner);
+        publish(TurnDelta.Phase.TURN_END);
     }
 
     /**
@@ -153,10 +285,12 @@ public class Game {
         assert isRunning && !tilePlaced;
         if (board.placeTile(tile, loc)) {
             tilePlaced = true;
-            notifyTilePlacement(tile, loc);
+            notifyTilePlacement(tile);
+            publish(TurnDelta.Phase.TILE_PLACEMENT);
             return true;
         } else {
             showError("You cannot place a tile here!");
+            publish(TurnDelta.Phase.TILE_PLACEMENT);
             return false;
         }
     }
@@ -171,15 +305,18 @@ public class Game {
         Meeple tryMeeple = currPlayer.getOneMeeple();
         if (board.placeMeeple(tryMeeple, o)) {
             notifyMeeplePlacement(currPlayer.playMeeple(), o);
+            publish(TurnDelta.Phase.MEEPLE_PLACEMENT);
             return true;
         } else {
             showError("You cannot place a meeple here!");
+            publish(TurnDelta.Phase.MEEPLE_PLACEMENT);
             return false;
         }
     }
 
     /**
-     * At the end of each turn, score all the completed features and delete them.
+     * At the end of each turn, score all the completed features and delete them. The changes are published with the
+     * next phase, i.e. by {@link #nextTurn()}.
      */
     public void endTurnUpdate() {
         // Because monastery feature can only have one meeple, we can just check the 0th of the meeple list and the
@@ -192,26 +329,26 @@ public class Game {
                 scorer.addScore(monScore);
                 Meeple returningMeeples = mon.returnMeeples().get(0);
                 scorer.returnMeeple(returningMeeples);
-                updatePlayerStatus(scorer);
+                notifyFeatureScored(mon, monScore, List.of(scorer), true);
                 notifyReturnMeeple(returningMeeples);
             }
         }
         for (ContinuousFeature fea : board.getCompletedFea()) {
             if (fea.hasMeeple()) {
                 int feaScore = fea.getScore();
-                completeFeaScoreHelper(fea, feaScore);
+                completeFeaScoreHelper(fea, feaScore, true);
             }
         }
         board.clearCompletedFeatures();
     }
 
-    private void completeFeaScoreHelper(ContinuousFeature fea, int feaScore) {
+    private void completeFeaScoreHelper(ContinuousFeature fea, int feaScore, boolean complete) {
         List<Player> scorers = new ArrayList<>(fea.getScoreOwner());
         List<Meeple> returningMeeples = new ArrayList<>(fea.returnMeeples());
         for (Player scoreOwner : scorers) {
             scoreOwner.addScore(feaScore);
-            updatePlayerStatus(scoreOwner);
         }
+        notifyFeatureScored(fea, feaScore, scorers, complete);
         for (Meeple reMeeple : returningMeeples) {
             Player owner = reMeeple.getOwner();
             owner.returnMeeple(reMeeple);
@@ -224,6 +361,10 @@ public class Game {
      */
     public void endGameUpdate() {
         endTurnUpdate();
+        scoreIncompleteFeatures();
+    }
+
+    private void scoreIncompleteFeatures() {
         for (Monastery mon : board.getIncompleteMons()) {
             if (mon.hasMeeple()) {
                 int monScore = mon.getEndScore();
@@ -231,14 +372,14 @@ public class Game {
                 monScorer.addScore(monScore);
                 Meeple returningMeeple = mon.returnMeeples().get(0);
                 monScorer.returnMeeple(returningMeeple);
-                updatePlayerStatus(monScorer);
+                notifyFeatureScored(mon, monScore, List.of(monScorer), false);
                 notifyReturnMeeple(returningMeeple);
             }
         }
         for (ContinuousFeature fe : board.getIncompleteFea()) {
             if (fe.hasMeeple()) {
                 int feaScore = fe.getEndScore();
-                completeFeaScoreHelper(fe, feaScore);
+                completeFeaScoreHelper(fe, feaScore, false);
             }
         }
         board.clearIncompleteFeatures();
@@ -255,6 +396,7 @@ public class Game {
     public void rotateCurrTileClockwise() {
         currTile.rotateClockwise();
         updateCurrTile();
+        publish(TurnDelta.Phase.ROTATION);
     }
 
     /**
@@ -263,6 +405,7 @@ public class Game {
     public void rotateCurrTileAntiClockwise() {
         currTile.rotateAntiClockwise();
         updateCurrTile();
+        publish(TurnDelta.Phase.ROTATION);
     }
 
     /**
@@ -321,6 +464,102 @@ public class Game {
         return new ArrayList<>(board.getAllNeighboringLoc());
     }
 
+    /**
+     * Copy the state shown by a UI, so that another thread can read it while this game goes on.
+     * @return an immutable snapshot
+     */
+    public GameSnapshot getSnapshot() {
+        return new GameSnapshot(this, board.getCurrPlacedTile(), board.getAllNeighboringLoc());
+    }
+
+    /**
+     * Get every legal placement of the current tile, in any rotation. Used by bots and to highlight legal moves.
+     * @return a list of legal (location, rotation) pairs
+     */
+    public List<Placement> getLegalPlacements() {
+        return board.getLegalPlacements(currTile);
+    }
+
+    /**
+     * Check whether the current tile can be placed anywhere, without listing the placements: usually one table
+     * lookup, see {@link PlaceabilityCache}. Only the last tile of the deck can be left without a legal placement.
+     * @return whether {@link #getLegalPlacements()} isn't empty
+     */
+    public boolean hasLegalPlacement() {
+        return placeableTypes.isPlaceable(currTile.getType());
+    }
+
+    /**
+     * Get every legal move of the current tile: each placement in each distinct rotation, and each way to add a
+     * meeple there if the current player has one left. Moves differing only by a symmetric rotation, or by sides of
+     * the same feature, are listed once.
+     * @param buffer the buffer to fill, reused between calls to avoid allocation
+     * @return the same buffer
+     */
+    public MoveBuffer getLegalMoves(MoveBuffer buffer) {
+        board.collectMoves(currTile.getType(), currPlayer.hasMeeple(), buffer);
+        return buffer;
+    }
+
+    /**
+     * Work out what a legal move of the current tile would do, without placing anything: the points every seat
+     * scores at once, the change of every seat's projected score, and the features it builds. For greedy bots and
+     * hints.
+     * @param moves moves of the current tile, from {@link #getLegalMoves(MoveBuffer)}
+     * @param i index of the move
+     * @param out the result, reused between calls
+     * @return the same result
+     */
+    public MoveEvaluation evaluate(MoveBuffer moves, int i, MoveEvaluation out) {
+        board.evaluate(moves.getType(), moves.getRotation(i), moves.getLocKey(i), moves.getMeepleOri(i), playerList,
+                getCurrPlayerIndex(), out);
+        return out;
+    }
+
+    /**
+     * Work out what a legal move of the current tile would do, see {@link #evaluate(MoveBuffer, int, MoveEvaluation)}.
+     * @param move a move of the current tile
+     * @param out the result, reused between calls
+     * @return the same result
+     */
+    public MoveEvaluation evaluate(Move move, MoveEvaluation out) {
+        Placement placement = move.getPlacement();
+        board.evaluate(move.getType(), placement.getRotation(), placement.getLoc().pack(), move.getMeepleOri(),
+                playerList, getCurrPlayerIndex(), out);
+        return out;
+    }
+
+    /**
+     * Evaluate every legal move of the current tile in parallel on the common fork/join pool and rank the
+     * placements, see {@link #getPlacementHeatmap(ForkJoinPool)}.
+     * @return the ranked placements
+     */
+    public PlacementHeatmap getPlacementHeatmap() {
+        return getPlacementHeatmap(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Evaluate every legal move of the current tile in parallel and rank the placements by the projected score delta
+     * of the current player. Symmetric rotations are ranked once. The workers only read the board, so the game must
+     * not change until this returns, which it doesn't when called on the thread playing the game.
+     * @param pool the pool to evaluate the moves in
+     * @return the ranked placements
+     */
+    public PlacementHeatmap getPlacementHeatmap(ForkJoinPool pool) {
+        MoveBuffer moves = getLegalMoves(new MoveBuffer());
+        return PlacementHeatmap.compute(board, moves, playerList, getCurrPlayerIndex(), pool);
+    }
+
+    /**
+     * Shuffle the tiles left in the deck, so that a search on a forked game only knows their distribution, not
+     * their real order.
+     * @param seed seed of the shuffle
+     */
+    void reshuffleDeck(long seed) {
+        deck.shuffle(seed);
+        seeded = false;
+    }
+
     /**
      * Get the index of the current player. Used for the meeple color.
      * @return the index of the current player.
@@ -329,6 +568,33 @@ public class Game {
         return turnCount % playerList.size();
     }
 
+    /**
+     * Get the feature at a point of a placed tile, e.g. to show it or to decide where to put a meeple.
+     * @param loc location of a placed tile
+     * @param o orientation on this tile, CENTER for a monastery
+     * @return the whole road, city or monastery, or null if there is none at this point
+     */
+    public BasicFeature getFeatureAt(Location loc, Orientation o) {
+        return board.getFeatureAt(loc, o);
+    }
+
+    /**
+     * No. of tiles left in the deck.
+     * @return no. of tiles
+     */
+    public int getNoOfRemainingTiles() {
+        return deck.size();
+    }
+
+    /**
+     * No. of tiles of a type left in the deck, e.g. to estimate the chance of drawing it.
+     * @param type a tile type of the catalogue of this game
+     * @return remaining count
+     */
+    public int getNoOfRemainingTiles(TileType type) {
+        return deck.getRemaining(type.getId());
+    }
+
     /**
      * Whether the tile placement has been finished in this turn. Used to avoid tile duplication in one turn.
      * @return tile has been placed or not
@@ -338,51 +604,87 @@ public class Game {
     }
 
     private void showError(String str) {
-        for (GameBoardChangeListener boardListener : gameBoardChangeListeners) {
-            boardListener.showError(str);
+        if (recorder != null) {
+            recorder.error(str);
         }
     }
 
     private void updateCurrTile() {
-        for (GameBoardChangeListener boardListener : gameBoardChangeListeners) {
-            boardListener.updateNextTileImage();
+        if (recorder != null) {
+            recorder.currTileChanged();
         }
     }
 
     private void notifyNextTurn() {
-        for (GameBoardChangeListener boardListener : gameBoardChangeListeners) {
-            boardListener.updateNextTurn();
+        if (recorder != null) {
+            recorder.nextTurn();
         }
     }
 
-    private void notifyTilePlacement(Tile t, Location loc) {
-        for (GameBoardChangeListener boardListener : gameBoardChangeListeners) {
-            boardListener.handleTilePlacement(t, loc);
+    private void notifyTilePlacement(Tile t) {
+        if (recorder != null) {
+            recorder.tilePlaced(t);
         }
     }
 
     private void notifyMeeplePlacement(Meeple meeple, Orientation ori) {
-        for (GameBoardChangeListener boardListener : gameBoardChangeListeners) {
-            boardListener.handleMeeplePlacement(meeple, ori);
+        if (recorder != null) {
+            recorder.meeplePlaced(meeple, ori);
         }
     }
 
     private void notifyReturnMeeple(Meeple m) {
-        for (GameBoardChangeListener boardListener : gameBoardChangeListeners) {
-            boardListener.clearMeeple(m);
+        if (recorder != null) {
+            recorder.meepleReturned(m);
         }
     }
 
     private void notifyGameOver(List<Player> winners) {
-        for (GameBoardChangeListener boardListener : gameBoardChangeListeners) {
-            boardListener.gameOver(winners);
+        if (recorder != null) {
+            recorder.gameOver(winners);
+        }
+    }
+
+    private void notifyFeatureScored(BasicFeature fea, int score, List<Player> scorers, boolean complete) {
+        if (recorder != null) {
+            recorder.featureScored(fea, score, scorers, complete);
         }
     }
 
-    private void updatePlayerStatus(Player p) {
-        for (PlayerStatusChangeListener playerListener : playerStatusChangeListeners) {
-            playerListener.scoreMeepleUpdated(p);
+    // End a phase: hand its changes to the listeners in one batch.
+    private void publish(TurnDelta.Phase phase) {
+        if (recorder == null) {
+            return;
         }
+        TurnDelta delta = recorder.take(phase, getNoOfTurns());
+        for (TurnDeltaListener listener : turnDeltaListeners) {
+            listener.handleTurnDelta(delta);
+        }
+        delta.replay(gameBoardChangeListeners, playerStatusChangeListeners);
+    }
+
+    /**
+     * Seed of the deck shuffle, see {@link #isSeeded()}.
+     * @return the seed
+     */
+    public long getDeckSeed() {
+        return deckSeed;
+    }
+
+    /**
+     * Whether the deck was shuffled with a known seed, so that the game can be replayed from its moves.
+     * @return seeded or not
+     */
+    public boolean isSeeded() {
+        return seeded;
+    }
+
+    /**
+     * The tile set of the deck.
+     * @return catalogue
+     */
+    TileCatalogue getCatalogue() {
+        return deck.getCatalogue();
     }
 
     /**
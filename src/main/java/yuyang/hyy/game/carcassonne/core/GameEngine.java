@@ -0,0 +1,270 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Runs a game on its own engine thread, so that game logic, bots and legality searches never block the UI.
+ * <p>Threading rules:</p>
+ * <ul>
+ *     <li>Only the engine thread touches the game. The actions below are queued and run one at a time, in order.</li>
+ *     <li>Listeners added here without an executor are called on the UI executor given to the constructor (the
+ *     Swing event dispatch thread for the GUI), never on the engine thread. After each action, one UI task gives
+ *     the snapshot listeners a {@link GameSnapshot} of the state after the action, then hands the
+ *     {@link TurnDelta}s of the action to the turn delta listeners and, as derived callbacks, to the
+ *     {@link GameBoardChangeListener}s and {@link PlayerStatusChangeListener}s. So a callback can read the snapshot
+ *     it was delivered with, but must not call the game: its arguments are the game's own objects, only safe to
+ *     read for what never changes (locations, placed tiles, names, and players or meeples as keys).</li>
+ *     <li>Turn delta listeners added with their own executor, e.g. loggers, spectators or metrics, get each delta
+ *     as soon as its phase ends. The engine thread only queues the task, so a slow subscriber doesn't slow the
+ *     game; it gets the deltas in order if its executor runs tasks in order.</li>
+ *     <li>Listeners added to the game itself are called on the engine thread and must not block it.</li>
+ * </ul>
+ */
+public final class GameEngine implements AutoCloseable {
+    private final Game game;
+    private final ExecutorService engineThread;
+    private final Executor uiExecutor;
+    private final List<Consumer<GameSnapshot>> snapshotListeners = new CopyOnWriteArrayList<>();
+    // Deltas and engine errors of the running action, to be delivered on the UI executor. Engine thread only.
+    private final List<TurnDelta> pendingDeltas = new ArrayList<>();
+    private final List<String> pendingErrors = new ArrayList<>();
+    private final List<TurnDeltaListener> deltaListeners = new CopyOnWriteArrayList<>();
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final List<GameBoardChangeListener> boardListeners = new CopyOnWriteArrayList<>();
+    private final List<PlayerStatusChangeListener> statusListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Constructor. Takes over the game: from now on, call it only through this engine.
+     * @param newGame a game, not started yet
+     * @param newUiExecutor where the listeners are called, e.g. {@code SwingUtilities::invokeLater}
+     */
+    public GameEngine(Game newGame, Executor newUiExecutor) {
+        game = newGame;
+        uiExecutor = newUiExecutor;
+        engineThread = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "carcassonne-engine");
+            t.setDaemon(true);
+            return t;
+        });
+        engineThread.execute(() -> game.addTurnDeltaListener(this::handleTurnDelta));
+    }
+
+    /**
+     * Start the game, and wait for it. Meant to be called once, before the UI is shown.
+     * @return the state of the started game
+     */
+    public GameSnapshot start() {
+        try {
+            return call(g -> {
+                g.gameStart();
+                return g.getSnapshot();
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while starting the game", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("The game failed to start", e.getCause());
+        }
+    }
+
+    /**
+     * Get the state after each action, on the UI executor.
+     * @param listener the snapshot listener
+     */
+    public void addSnapshotListener(Consumer<GameSnapshot> listener) {
+        snapshotListeners.add(listener);
+    }
+
+    /**
+     * Get the changes of each phase in one batch, on the UI executor.
+     * @param listener the turn delta listener
+     */
+    public void addTurnDeltaListener(TurnDeltaListener listener) {
+        deltaListeners.add(listener);
+    }
+
+    /**
+     * Get the changes of each phase in one batch, on another executor, without waiting for the UI.
+     * @param listener the turn delta listener
+     * @param executor where the listener is called, running tasks in order
+     */
+    public void addTurnDeltaListener(TurnDeltaListener listener, Executor executor) {
+        subscribers.add(new Subscriber(listener, executor));
+    }
+
+    /**
+     * Get the board callbacks of the game, on the UI executor. See the threading rules above.
+     * @param listener the board listener
+     */
+    public void addGameBoardChangeListener(GameBoardChangeListener listener) {
+        boardListeners.add(listener);
+    }
+
+    /**
+     * Get the player status callbacks of the game, on the UI executor. See the threading rules above.
+     * @param listener the player status listener
+     */
+    public void addPlayerStatusChangeListener(PlayerStatusChangeListener listener) {
+        statusListeners.add(listener);
+    }
+
+    /**
+     * Rotate the current tile clockwise, unless it has been placed: a placed tile never changes.
+     */
+    public void rotateClockwise() {
+        run(g -> {
+            if (!g.isTilePlaced()) {
+                g.rotateCurrTileClockwise();
+            }
+        });
+    }
+
+    /**
+     * Rotate the current tile anticlockwise, unless it has been placed.
+     */
+    public void rotateAntiClockwise() {
+        run(g -> {
+            if (!g.isTilePlaced()) {
+                g.rotateCurrTileAntiClockwise();
+            }
+        });
+    }
+
+    /**
+     * Place the current tile, unless it has been placed this turn.
+     * @param loc the location
+     */
+    public void placeTile(Location loc) {
+        run(g -> {
+            if (g.isTilePlaced()) {
+                pendingErrors.add("Tile has been placed this turn!");
+            } else {
+                g.placeTile(g.getCurrTile(), loc);
+            }
+        });
+    }
+
+    /**
+     * Place a meeple on the tile placed this turn.
+     * @param o the orientation on the tile
+     */
+    public void placeMeeple(Orientation o) {
+        run(g -> {
+            if (!g.isTilePlaced()) {
+                pendingErrors.add("You must place a tile before the meeple placement!");
+            } else if (!g.getCurrPlayer().hasMeeple()) {
+                pendingErrors.add("You don't have a meeple!");
+            } else {
+                g.placeMeeple(o);
+            }
+        });
+    }
+
+    /**
+     * Score the turn and go to the next one, or end the game. The game also ends when the next tile, which can only be
+     * the last one of the deck, has no legal placement.
+     */
+    public void endTurn() {
+        run(g -> {
+            if (!g.isTilePlaced()) {
+                pendingErrors.add("You must place a tile before finishing the turn!");
+            } else {
+                g.endTurnUpdate();
+                g.nextTurn();
+                if (g.isRunning() && !g.hasLegalPlacement()) {
+                    g.endGameWithoutPlacement();
+                }
+            }
+        });
+    }
+
+    /**
+     * Run any work on the engine thread, e.g. a bot move. The listeners are then notified as for the other actions.
+     * @param task the work, given the game
+     * @param <T> result type
+     * @return the result, completed on the engine thread
+     */
+    public <T> CompletableFuture<T> call(Function<Game, T> task) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.apply(game);
+            } finally {
+                publish();
+            }
+        }, engineThread);
+    }
+
+    private void run(Consumer<Game> action) {
+        engineThread.execute(() -> {
+            try {
+                action.accept(game);
+            } finally {
+                publish();
+            }
+        });
+    }
+
+    private void handleTurnDelta(TurnDelta delta) {
+        pendingDeltas.add(delta);
+        for (Subscriber subscriber : subscribers) {
+            subscriber.executor.execute(() -> subscriber.listener.handleTurnDelta(delta));
+        }
+    }
+
+    /**
+     * Hand the snapshot and the deltas of the last action over to the UI executor, in one task.
+     */
+    private void publish() {
+        GameSnapshot snapshot = game.getSnapshot();
+        List<TurnDelta> deltas = List.copyOf(pendingDeltas);
+        List<String> errors = List.copyOf(pendingErrors);
+        pendingDeltas.clear();
+        pendingErrors.clear();
+        uiExecutor.execute(() -> {
+            for (Consumer<GameSnapshot> listener : snapshotListeners) {
+                listener.accept(snapshot);
+            }
+            for (TurnDelta delta : deltas) {
+                for (TurnDeltaListener listener : deltaListeners) {
+                    listener.handleTurnDelta(delta);
+                }
+                delta.replay(boardListeners, statusListeners);
+            }
+            for (String error : errors) {
+                for (GameBoardChangeListener listener : boardListeners) {
+                    listener.showError(error);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop the engine thread. Queued actions are still run.
+     */
+    @Override
+    public void close() {
+        engineThread.shutdown();
+    }
+
+    /**
+     * A turn delta listener with its own executor.
+     */
+    private static final class Subscriber {
+        private final TurnDeltaListener listener;
+        private final Executor executor;
+
+        Subscriber(TurnDeltaListener listener, Executor executor) {
+            this.listener = listener;
+            this.executor = executor;
+        }
+    }
+}
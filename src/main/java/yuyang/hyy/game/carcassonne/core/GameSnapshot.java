@@ -0,0 +1,170 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * An immutable copy of the state a game UI shows, taken on the thread playing the game by {@link Game#getSnapshot()}
+ * and safe to read on any thread afterwards. The player objects are only kept as keys: their scores and meeples are
+ * copied, since the players themselves keep changing on the engine thread.
+ */
+public final class GameSnapshot {
+    private final List<Player> players;
+    private final int[] scores, noOfMeeples;
+    private final int currPlayerIndex, noOfTurns, currTileIndex, currTileRotation, noOfRemainingTiles;
+    private final boolean running, tilePlaced;
+    private final Tile lastPlacedTile;
+    private final List<Location> frontier;
+    private final List<Player> winners;
+
+    /**
+     * Copy the state of a game.
+     * @param game the game, on the thread playing it
+     * @param lastPlacedTile the last tile placed on the board, or the first tile
+     * @param frontier the empty locations next to the placed tiles
+     */
+    GameSnapshot(Game game, Tile lastPlacedTile, Collection<Location> frontier) {
+        players = List.copyOf(game.getPlayerList());
+        scores = new int[players.size()];
+        noOfMeeples = new int[players.size()];
+        for (int i = 0; i < players.size(); i++) {
+            scores[i] = players.get(i).getScore();
+            noOfMeeples[i] = players.get(i).getMeeples().size();
+        }
+        currPlayerIndex = game.getCurrPlayerIndex();
+        noOfTurns = game.getNoOfTurns();
+        Tile currTile = game.getCurrTile();
+        currTileIndex = currTile == null ? -1 : currTile.getIndex();
+        currTileRotation = currTile == null ? 0 : currTile.getRotationNo();
+        noOfRemainingTiles = game.getNoOfRemainingTiles();
+        running = game.isRunning();
+        tilePlaced = game.isTilePlaced();
+        // A placed tile never changes again.
+        this.lastPlacedTile = lastPlacedTile;
+        this.frontier = List.copyOf(frontier);
+        winners = game.getWinner() == null ? List.of() : List.copyOf(game.getWinner());
+    }
+
+    /**
+     * The players, in seat order.
+     * @return unmodifiable list
+     */
+    public List<Player> getPlayers() {
+        return players;
+    }
+
+    /**
+     * Seat of a player.
+     * @param player a player of the game
+     * @return its index, or -1
+     */
+    public int indexOf(Player player) {
+        return players.indexOf(player);
+    }
+
+    /**
+     * Score of a player.
+     * @param seat player index
+     * @return score
+     */
+    public int getScore(int seat) {
+        return scores[seat];
+    }
+
+    /**
+     * No. of meeples a player has in hand.
+     * @param seat player index
+     * @return meeple count
+     */
+    public int getNoOfMeeples(int seat) {
+        return noOfMeeples[seat];
+    }
+
+    /**
+     * Seat of the current player.
+     * @return player index
+     */
+    public int getCurrPlayerIndex() {
+        return currPlayerIndex;
+    }
+
+    /**
+     * The current player.
+     * @return player
+     */
+    public Player getCurrPlayer() {
+        return players.get(currPlayerIndex);
+    }
+
+    /**
+     * Turn no., from 1.
+     * @return no. of turns
+     */
+    public int getNoOfTurns() {
+        return noOfTurns;
+    }
+
+    /**
+     * Image index of the current tile, see {@link Tile#getIndex()}.
+     * @return index, or -1 if there is no current tile
+     */
+    public int getCurrTileIndex() {
+        return currTileIndex;
+    }
+
+    /**
+     * Rotation of the current tile.
+     * @return no. of clockwise rotations
+     */
+    public int getCurrTileRotation() {
+        return currTileRotation;
+    }
+
+    /**
+     * No. of tiles left in the deck.
+     * @return deck size
+     */
+    public int getNoOfRemainingTiles() {
+        return noOfRemainingTiles;
+    }
+
+    /**
+     * Whether the game is running.
+     * @return running or not
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Whether the current tile has been placed this turn.
+     * @return placed or not
+     */
+    public boolean isTilePlaced() {
+        return tilePlaced;
+    }
+
+    /**
+     * The last tile placed, which is the first tile right after the game starts.
+     * @return the placed tile, with its location and rotation
+     */
+    public Tile getLastPlacedTile() {
+        return lastPlacedTile;
+    }
+
+    /**
+     * The empty locations next to the placed tiles.
+     * @return unmodifiable list
+     */
+    public List<Location> getFrontier() {
+        return frontier;
+    }
+
+    /**
+     * The winners once the game is over.
+     * @return unmodifiable list, empty while the game is running
+     */
+    public List<Player> getWinners() {
+        return winners;
+    }
+}
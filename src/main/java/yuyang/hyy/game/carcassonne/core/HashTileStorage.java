@@ -0,0 +1,71 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The default tile storage: a HashMap from location to the tile objects placed.
+ */
+class HashTileStorage implements TileStorage {
+    private final Map<Location, Tile> gameMap;
+
+    /**
+     * Constructor of an empty storage.
+     */
+    HashTileStorage() {
+        gameMap = new HashMap<>();
+    }
+
+    private HashTileStorage(HashTileStorage parent) {
+        gameMap = new HashMap<>(parent.gameMap);
+    }
+
+    @Override
+    public boolean contains(long key) {
+        return gameMap.containsKey(Location.unpack(key));
+    }
+
+    @Override
+    public Tile get(long key) {
+        return gameMap.get(Location.unpack(key));
+    }
+
+    @Override
+    public Segment getEdgeSeg(long key, Orientation side) {
+        return gameMap.get(Location.unpack(key)).getEdgeSeg(side);
+    }
+
+    @Override
+    public void put(long key, Tile tile) {
+        gameMap.put(Location.unpack(key), tile);
+    }
+
+    @Override
+    public void remove(long key) {
+        gameMap.remove(Location.unpack(key));
+    }
+
+    /**
+     * Copy the map, which is O(no. of tiles). Use {@link PackedTileStorage} for cheap forks.
+     * @return an independent copy
+     */
+    @Override
+    public TileStorage fork() {
+        return new HashTileStorage(this);
+    }
+
+    @Override
+    public int size() {
+        return gameMap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return gameMap.isEmpty();
+    }
+
+    @Override
+    public Map<Location, Tile> asMap() {
+        return gameMap;
+    }
+}
@@ -12,6 +12,9 @@ import java.util.Stack;
  * Class to read a json file.
  */
 public class JSONReader {
+    // Gson is thread-safe, so one instance serves every parse.
+    private static final Gson GSON = new Gson();
+
     /**
      * Constructor to create a json tile.
      */
@@ -21,6 +24,14 @@ public class JSONReader {
         private int quantity;
         private Segment top, right, down, left, center;
         private boolean isShield;
+
+        TileType toType(int id) {
+            return new TileType(id, index, top, right, down, left, center, isShield);
+        }
+
+        int getQuantity() {
+            return quantity;
+        }
     }
 
     /**
@@ -29,6 +40,10 @@ public class JSONReader {
     static class JSONTileList {
         private String name;
         private TileInJson[] tileList;
+
+        TileInJson[] getTileList() {
+            return tileList;
+        }
     }
     //CHECKSTYLE:ON
     /**
@@ -37,15 +52,13 @@ public class JSONReader {
      * @return a stack of tiles
      */
     public static Stack<Tile> parse(String configFile) {
-        Gson gson = new Gson();
         Stack<Tile> initialStack = new Stack<>();
         try (Reader reader = new FileReader(new File(configFile), StandardCharsets.UTF_8)) {
-            JSONTileList result = gson.fromJson(reader, JSONTileList.class);
-            for (TileInJson tile : result.tileList) {
-                for (int i = 0; i < tile.quantity; i++) {
-                    Tile newTile = new Tile(tile.index, tile.top, tile.right, tile.down, tile.left,
-                            tile.center, tile.isShield);
-                    initialStack.push(newTile);
+            TileInJson[] tileList = read(reader).getTileList();
+            for (int id = 0; id < tileList.length; id++) {
+                TileType type = tileList[id].toType(id);
+                for (int i = 0; i < tileList[id].getQuantity(); i++) {
+                    initialStack.push(new Tile(type));
                 }
             }
             return initialStack;
@@ -53,4 +66,13 @@ public class JSONReader {
             throw new IllegalArgumentException("Error when reading file: " + configFile, e);
         }
     }
+
+    /**
+     * Read a tile list without creating any tile.
+     * @param reader reader of the json content
+     * @return the tile list in the json order
+     */
+    static JSONTileList read(Reader reader) {
+        return GSON.fromJson(reader, JSONTileList.class);
+    }
 }
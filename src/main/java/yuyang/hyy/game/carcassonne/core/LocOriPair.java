@@ -1,11 +1,10 @@
 package yuyang.hyy.game.carcassonne.core;
 
-import java.util.Objects;
-
 /**
  * A pair of location and orientation to represent the "location" of each segment in the game map.
  */
 public class LocOriPair {
+    private static final int FIVE = 5;
     private Location loc;
     private Orientation ori;
 
@@ -35,9 +34,29 @@ public class LocOriPair {
         return ori;
     }
 
+    /**
+     * Pack this pair into one long, see {@link #pack(long, Orientation)}.
+     * @return packed key
+     */
+    public long pack() {
+        return pack(loc.pack(), ori);
+    }
+
+    /**
+     * Pack a packed location and an edge orientation into one long: the location shifted left by 2 bits and the
+     * orientation in the low 2 bits. The 2 top bits of x are dropped, so x must stay within +-2^29.
+     * @param locKey packed location, see {@link Location#pack()}
+     * @param o orientation, not CENTER
+     * @return packed key
+     */
+    public static long pack(long locKey, Orientation o) {
+        assert !o.equals(Orientation.CENTER) : "Center is not the edge segment!";
+        return (locKey << 2) | o.ordinal();
+    }
+
     @Override
     public int hashCode() {
-        return Objects.hash(loc, ori);
+        return loc.hashCode() * FIVE + ori.ordinal();
     }
 
     @Override
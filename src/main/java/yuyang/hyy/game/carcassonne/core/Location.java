@@ -2,12 +2,13 @@ package yuyang.hyy.game.carcassonne.core;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 
 /**
  * The location class to represent the location of a tile in the game map.
  */
 public class Location {
+    private static final long LOW_BITS = 0xFFFFFFFFL;
+    private static final int HASH_PRIME = 92821;
     private final int x;
     private final int y;
 
@@ -42,6 +43,74 @@ public class Location {
         return String.format("(%s, %s)", x, y);
     }
 
+    /**
+     * Pack this location into one long, x in the high 32 bits and y in the low 32 bits.
+     * @return packed key
+     */
+    public long pack() {
+        return pack(x, y);
+    }
+
+    /**
+     * Pack a pair of indexes into one long, x in the high 32 bits and y in the low 32 bits.
+     * @param x x index
+     * @param y y index
+     * @return packed key
+     */
+    public static long pack(int x, int y) {
+        return ((long) x << Integer.SIZE) | (y & LOW_BITS);
+    }
+
+    /**
+     * Create the location of a packed key.
+     * @param key packed key
+     * @return location
+     */
+    public static Location unpack(long key) {
+        return new Location(unpackX(key), unpackY(key));
+    }
+
+    /**
+     * Get the x index of a packed key.
+     * @param key packed key
+     * @return x index
+     */
+    public static int unpackX(long key) {
+        return (int) (key >> Integer.SIZE);
+    }
+
+    /**
+     * Get the y index of a packed key.
+     * @param key packed key
+     * @return y index
+     */
+    public static int unpackY(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Get the packed key of the neighbor of a packed key without creating any location.
+     * @param key packed key
+     * @param o relative direction, CENTER for the key itself
+     * @return packed key of the neighbor
+     */
+    public static long neighborKey(long key, Orientation o) {
+        int nx = unpackX(key);
+        int ny = unpackY(key);
+        switch (o) {
+            case TOP:
+                return pack(nx, ny + 1);
+            case DOWN:
+                return pack(nx, ny - 1);
+            case LEFT:
+                return pack(nx - 1, ny);
+            case RIGHT:
+                return pack(nx + 1, ny);
+            default:
+                return key;
+        }
+    }
+
     /**
      * Get the direction of another location.
      * For example, if this loc is (0, 0), another one is (1, 0), then we get Orientation.RIGHT.
@@ -133,7 +202,7 @@ public class Location {
 
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        return x * HASH_PRIME + y;
     }
 
     @Override
@@ -0,0 +1,259 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.Arrays;
+
+/**
+ * A small open-addressing hash map from primitive long keys to primitive int values, with linear probing and
+ * backward-shift deletion. No boxing and no entry objects, so lookups by packed location don't allocate.
+ * {@link Long#MIN_VALUE} is reserved to mark empty slots and can't be used as a key.
+ * <p>The slots are stored in pages of at most 1024, which {@link #fork()} shares between the two copies: forking
+ * only copies the page tables, and a page is copied the first time either copy writes to it.</p>
+ */
+class LongIntHashMap {
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int PAGE_SHIFT = 10, PAGE_SIZE = 1 << PAGE_SHIFT, PAGE_MASK = PAGE_SIZE - 1;
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    private long[][] keys;
+    private int[][] values;
+    // Whether this map may write to a page, i.e. it isn't shared with a fork.
+    private boolean[] owned;
+    private int size;
+    private int mask;
+    private final int missingValue;
+
+    /**
+     * Constructor.
+     * @param missing the value returned by {@link #get(long)} for an absent key
+     */
+    LongIntHashMap(int missing) {
+        missingValue = missing;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private LongIntHashMap(LongIntHashMap parent) {
+        missingValue = parent.missingValue;
+        keys = parent.keys.clone();
+        values = parent.values.clone();
+        owned = new boolean[keys.length];
+        size = parent.size;
+        mask = parent.mask;
+    }
+
+    private void allocate(int capacity) {
+        int pageLength = Math.min(capacity, PAGE_SIZE);
+        int noOfPages = capacity / pageLength;
+        keys = new long[noOfPages][pageLength];
+        values = new int[noOfPages][pageLength];
+        owned = new boolean[noOfPages];
+        for (int p = 0; p < noOfPages; p++) {
+            Arrays.fill(keys[p], EMPTY);
+            owned[p] = true;
+        }
+        mask = capacity - 1;
+    }
+
+    /**
+     * Copy this map in O(no. of pages). Both maps share their pages until they write to them, so the copy can be
+     * handed to another thread as long as this map isn't written by two threads at once.
+     * @return an independent copy
+     */
+    LongIntHashMap fork() {
+        Arrays.fill(owned, false);
+        return new LongIntHashMap(this);
+    }
+
+    private int slot(long key) {
+        long h = key * GOLDEN;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private long keyAtSlot(int i) {
+        return keys[i >>> PAGE_SHIFT][i & PAGE_MASK];
+    }
+
+    private void set(int i, long key, int value) {
+        int page = i >>> PAGE_SHIFT;
+        if (!owned[page]) {
+            keys[page] = keys[page].clone();
+            values[page] = values[page].clone();
+            owned[page] = true;
+        }
+        keys[page][i & PAGE_MASK] = key;
+        values[page][i & PAGE_MASK] = value;
+    }
+
+    /**
+     * Get the value of a key.
+     * @param key key
+     * @return the value, or the missing value if absent
+     */
+    int get(long key) {
+        int i = slot(key);
+        long k;
+        while ((k = keyAtSlot(i)) != EMPTY) {
+            if (k == key) {
+                return values[i >>> PAGE_SHIFT][i & PAGE_MASK];
+            }
+            i = (i + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    /**
+     * Whether the map contains a key.
+     * @param key key
+     * @return contains or not
+     */
+    boolean containsKey(long key) {
+        int i = slot(key);
+        long k;
+        while ((k = keyAtSlot(i)) != EMPTY) {
+            if (k == key) {
+                return true;
+            }
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * Put a key/value pair, replacing the old value.
+     * @param key key, not {@link Long#MIN_VALUE}
+     * @param value value
+     * @return the old value, or the missing value if absent
+     */
+    int put(long key, int value) {
+        int i = slot(key);
+        long k;
+        while ((k = keyAtSlot(i)) != EMPTY) {
+            if (k == key) {
+                int old = values[i >>> PAGE_SHIFT][i & PAGE_MASK];
+                set(i, key, value);
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        set(i, key, value);
+        size++;
+        // Keep the load factor at most 1/2.
+        if (size * 2 > capacity()) {
+            rehash(capacity() * 2);
+        }
+        return missingValue;
+    }
+
+    /**
+     * Remove a key.
+     * @param key key
+     * @return the removed value, or the missing value if absent
+     */
+    int remove(long key) {
+        int i = slot(key);
+        long k;
+        while ((k = keyAtSlot(i)) != EMPTY) {
+            if (k == key) {
+                int old = values[i >>> PAGE_SHIFT][i & PAGE_MASK];
+                shiftBack(i);
+                size--;
+                return old;
+            }
+            i = (i + 1) & mask;
+        }
+        return missingValue;
+    }
+
+    /**
+     * Fill the hole at slot i by moving back the following entries of its probe run.
+     * @param hole the slot just emptied
+     */
+    private void shiftBack(int hole) {
+        int i = hole;
+        int j = hole;
+        while (true) {
+            j = (j + 1) & mask;
+            long k = keyAtSlot(j);
+            if (k == EMPTY) {
+                break;
+            }
+            int home = slot(k);
+            // Move keys[j] into the hole unless its home slot lies cyclically in (i, j].
+            boolean stays = (i <= j) ? (i < home && home <= j) : (i < home || home <= j);
+            if (!stays) {
+                set(i, k, valueAt(j));
+                i = j;
+            }
+        }
+        set(i, EMPTY, 0);
+    }
+
+    private void rehash(int newCapacity) {
+        long[][] oldKeys = keys;
+        int[][] oldValues = values;
+        allocate(newCapacity);
+        for (int p = 0; p < oldKeys.length; p++) {
+            for (int o = 0; o < oldKeys[p].length; o++) {
+                if (oldKeys[p][o] != EMPTY) {
+                    int j = slot(oldKeys[p][o]);
+                    while (keyAtSlot(j) != EMPTY) {
+                        j = (j + 1) & mask;
+                    }
+                    keys[j >>> PAGE_SHIFT][j & PAGE_MASK] = oldKeys[p][o];
+                    values[j >>> PAGE_SHIFT][j & PAGE_MASK] = oldValues[p][o];
+                }
+            }
+        }
+    }
+
+    /**
+     * No. of entries.
+     * @return size
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Whether the map is empty.
+     * @return is empty or not
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Slot capacity, for iterating with {@link #keyAt(int)} and {@link #valueAt(int)}.
+     * @return the no. of slots
+     */
+    int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Whether a slot holds an entry.
+     * @param slotIndex slot index
+     * @return used or not
+     */
+    boolean isUsed(int slotIndex) {
+        return keyAtSlot(slotIndex) != EMPTY;
+    }
+
+    /**
+     * Key of a used slot.
+     * @param slotIndex slot index
+     * @return key
+     */
+    long keyAt(int slotIndex) {
+        return keyAtSlot(slotIndex);
+    }
+
+    /**
+     * Value of a used slot.
+     * @param slotIndex slot index
+     * @return value
+     */
+    int valueAt(int slotIndex) {
+        return values[slotIndex >>> PAGE_SHIFT][slotIndex & PAGE_MASK];
+    }
+}
@@ -0,0 +1,320 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bot choosing the tile placement and the meeple together with Monte Carlo Tree Search.
+ * <p>Every iteration forks the game, shuffles the forked deck, walks down the tree with UCT and plays the rest of
+ * the game with a random policy, through the same placeTile/placeMeeple/nextTurn calls as the GUI. So the next
+ * tiles follow the distribution of the remaining deck: after each move the tree branches on the type of the tile
+ * drawn (a chance node). Each node keeps the rewards of the seat to move, 1 for a win, shared by tied winners.</p>
+ * <p>Several threads search one shared tree. A thread walking down an edge adds a virtual loss to it until its
+ * result is backed up, so the other threads spread over other moves meanwhile. The search stops at the time budget
+ * of the move.</p>
+ */
+public class MctsPolicy implements PlayerPolicy {
+    private static final double DEFAULT_EXPLORATION = 0.7, ROLLOUT_MEEPLE_PROBABILITY = 0.3;
+    private static final int VIRTUAL_LOSS = 1, TYPE_BITS = 32;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    private final int noOfThreads;
+    private final long timeBudgetNanos;
+    private final int maxIterations;
+    private final double exploration;
+    private final PlayerPolicy rolloutPolicy = new RandomPolicy(ROLLOUT_MEEPLE_PROBABILITY);
+    // Statistics over all the searches, see getRolloutsPerSecond().
+    private final AtomicLong noOfRollouts = new AtomicLong(), searchNanos = new AtomicLong();
+
+    /**
+     * Constructor.
+     * @param noOfThreads no. of threads searching one tree
+     * @param timeBudgetMillis time budget of each move, in milliseconds
+     */
+    public MctsPolicy(int noOfThreads, long timeBudgetMillis) {
+        this(noOfThreads, timeBudgetMillis, Integer.MAX_VALUE, DEFAULT_EXPLORATION);
+    }
+
+    /**
+     * Constructor with an iteration limit, e.g. for reproducible strength tests.
+     * @param noOfThreads no. of threads searching one tree
+     * @param timeBudgetMillis time budget of each move, in milliseconds
+     * @param maxIterations max. no. of iterations of each move
+     * @param exploration the exploration constant of UCT
+     */
+    MctsPolicy(int noOfThreads, long timeBudgetMillis, int maxIterations, double exploration) {
+        if (noOfThreads < 1) {
+            throw new IllegalArgumentException("At least one search thread is needed!");
+        }
+        this.noOfThreads = noOfThreads;
+        this.timeBudgetNanos = timeBudgetMillis * NANOS_PER_MILLI;
+        this.maxIterations = maxIterations;
+        this.exploration = exploration;
+    }
+
+    /**
+     * Only asked by a turn that doesn't take whole moves: the placement of the searched move, whose meeple is then
+     * given up, see {@link #chooseMeeple(Game, Random)}.
+     */
+    @Override
+    public Placement choosePlacement(Game game, List<Placement> legalPlacements, Random random) {
+        return chooseMove(game, random).getPlacement();
+    }
+
+    /**
+     * The meeple is chosen with the placement by {@link #chooseMove(Game, Random)}, so none is placed here.
+     */
+    @Override
+    public Orientation chooseMeeple(Game game, Random random) {
+        return null;
+    }
+
+    /**
+     * Search the best move for the current player and tile. The game isn't changed.
+     * @param game the game, with the current tile not placed yet and at least one legal placement
+     * @param random random number generator of this game, only used to seed the search threads
+     * @return the move with the most visits
+     */
+    @Override
+    public Move chooseMove(Game game, Random random) {
+        long start = System.nanoTime();
+        Node root = new Node(game, new MoveBuffer());
+        if (root.moves.length == 0) {
+            throw new IllegalArgumentException("The current tile has no legal placement!");
+        }
+        long deadline = start + timeBudgetNanos;
+        AtomicInteger iterations = new AtomicInteger();
+        // Every thread forks its own copy once; forking the caller's game from several threads isn't safe.
+        List<Searcher> searchers = new ArrayList<>();
+        for (int t = 0; t < noOfThreads; t++) {
+            searchers.add(new Searcher(root, game.fork(), new Random(random.nextLong()), deadline, iterations));
+        }
+        if (noOfThreads == 1) {
+            searchers.get(0).run();
+        } else {
+            ExecutorService pool = Executors.newFixedThreadPool(noOfThreads - 1);
+            try {
+                List<Future<?>> workers = new ArrayList<>();
+                for (int t = 1; t < noOfThreads; t++) {
+                    workers.add(pool.submit(searchers.get(t)));
+                }
+                searchers.get(0).run();
+                for (Future<?> worker : workers) {
+                    worker.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Search interrupted!", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("A search thread failed!", e.getCause());
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+        noOfRollouts.addAndGet(Math.min(iterations.get(), maxIterations));
+        searchNanos.addAndGet(System.nanoTime() - start);
+        return root.moves[root.mostVisited()];
+    }
+
+    /**
+     * Total no. of rollouts of all the searches so far.
+     * @return no. of rollouts
+     */
+    public long getNoOfRollouts() {
+        return noOfRollouts.get();
+    }
+
+    /**
+     * Rollouts per second of all the searches so far, over all the search threads.
+     * @return rollout throughput
+     */
+    public double getRolloutsPerSecond() {
+        long nanos = searchNanos.get();
+        return nanos == 0 ? 0 : noOfRollouts.get() * 1e9 / nanos;
+    }
+
+    /**
+     * List the moves of the current player with the current tile, see {@link Game#getLegalMoves(MoveBuffer)}.
+     * @param game the game, with the current tile not placed yet
+     * @param buffer a buffer to generate the moves in
+     * @return the moves
+     */
+    static Move[] listMoves(Game game, MoveBuffer buffer) {
+        game.getLegalMoves(buffer);
+        Move[] moves = new Move[buffer.size()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = buffer.getMove(i);
+        }
+        return moves;
+    }
+
+    /**
+     * The reward of each seat at the end of a game: 1 for the winner, shared by tied winners.
+     * @param game a finished game
+     * @return reward per seat
+     */
+    static double[] rewards(Game game) {
+        List<Player> players = game.getPlayerList();
+        int best = Integer.MIN_VALUE;
+        int noOfWinners = 0;
+        for (Player p : players) {
+            if (p.getScore() > best) {
+                best = p.getScore();
+                noOfWinners = 1;
+            } else if (p.getScore() == best) {
+                noOfWinners++;
+            }
+        }
+        double[] rewards = new double[players.size()];
+        for (int seat = 0; seat < rewards.length; seat++) {
+            if (players.get(seat).getScore() == best) {
+                rewards[seat] = 1.0 / noOfWinners;
+            }
+        }
+        return rewards;
+    }
+
+    /**
+     * One search thread: iterations on forks of its own copy of the game, until the deadline.
+     */
+    private final class Searcher implements Runnable {
+        private final Node root;
+        private final Game base;
+        private final Random random;
+        private final long deadline;
+        private final AtomicInteger iterations;
+        private final List<Node> pathNodes = new ArrayList<>();
+        private final List<Integer> pathMoves = new ArrayList<>();
+        private final MoveBuffer moveBuffer = new MoveBuffer();
+
+        Searcher(Node root, Game base, Random random, long deadline, AtomicInteger iterations) {
+            this.root = root;
+            this.base = base;
+            this.random = random;
+            this.deadline = deadline;
+            this.iterations = iterations;
+        }
+
+        @Override
+        public void run() {
+            while (System.nanoTime() < deadline && iterations.getAndIncrement() < maxIterations) {
+                iterate();
+            }
+        }
+
+        private void iterate() {
+            Game game = base.fork();
+            game.reshuffleDeck(random.nextLong());
+            pathNodes.clear();
+            pathMoves.clear();
+            Node node = root;
+            while (true) {
+                if (node.moves.length == 0) {
+                    // Only the last tile of the deck can be left without a legal placement.
+                    game.endGameWithoutPlacement();
+                    break;
+                }
+                int i = node.select(exploration);
+                pathNodes.add(node);
+                pathMoves.add(i);
+                Simulator.playMove(game, node.moves[i]);
+                if (!game.isRunning()) {
+                    break;
+                }
+                long key = ((long) i << TYPE_BITS) | game.getCurrTile().getType().getId();
+                Node child = node.children.get(key);
+                if (child == null) {
+                    Node created = new Node(game, moveBuffer);
+                    child = node.children.putIfAbsent(key, created);
+                    if (child == null) {
+                        rollout(game);
+                        break;
+                    }
+                }
+                node = child;
+            }
+            double[] rewards = rewards(game);
+            for (int d = 0; d < pathNodes.size(); d++) {
+                Node n = pathNodes.get(d);
+                n.update(pathMoves.get(d), rewards[n.seat]);
+            }
+        }
+
+        private void rollout(Game game) {
+            while (game.isRunning()) {
+                Simulator.playTurn(game, rolloutPolicy, random);
+            }
+        }
+    }
+
+    /**
+     * A decision node: the moves of the seat to move with the tile drawn, and the statistics of each move.
+     */
+    private static final class Node {
+        private final Move[] moves;
+        private final int seat;
+        // Per move: no. of visits (including the virtual losses in flight) and the sum of the rewards of the seat.
+        private final int[] visits;
+        private final double[] rewardSums;
+        private int totalVisits;
+        // (move index, type id of the next tile) -> the node of the next turn.
+        private final Map<Long, Node> children = new ConcurrentHashMap<>();
+
+        Node(Game game, MoveBuffer buffer) {
+            moves = listMoves(game, buffer);
+            seat = game.getCurrPlayerIndex();
+            visits = new int[moves.length];
+            rewardSums = new double[moves.length];
+        }
+
+        /**
+         * Pick the move with the best UCT value, trying every move once first, and add a virtual loss to it.
+         */
+        synchronized int select(double exploration) {
+            int best = 0;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            double logTotal = Math.log(totalVisits + 1);
+            for (int i = 0; i < moves.length; i++) {
+                if (visits[i] == 0) {
+                    best = i;
+                    break;
+                }
+                double value = rewardSums[i] / visits[i] + exploration * Math.sqrt(logTotal / visits[i]);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = i;
+                }
+            }
+            visits[best] += VIRTUAL_LOSS;
+            totalVisits += VIRTUAL_LOSS;
+            return best;
+        }
+
+        /**
+         * Replace the virtual loss of a move by the real result.
+         */
+        synchronized void update(int i, double reward) {
+            visits[i] += 1 - VIRTUAL_LOSS;
+            totalVisits += 1 - VIRTUAL_LOSS;
+            rewardSums[i] += reward;
+        }
+
+        synchronized int mostVisited() {
+            int best = 0;
+            for (int i = 1; i < moves.length; i++) {
+                if (visits[i] > visits[best]) {
+                    best = i;
+                }
+            }
+            return best;
+        }
+    }
+}
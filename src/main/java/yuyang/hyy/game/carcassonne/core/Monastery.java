@@ -2,14 +2,29 @@ package yuyang.hyy.game.carcassonne.core;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.UnaryOperator;
 
 /**
  * Monastery feature class. It directly implements the BasicFeature interface because it applies different logic.
  */
 public class Monastery implements BasicFeature{
 
+    /** No. of the surrounding locations of a monastery. */
+    static final int NO_OF_NEIGHBORS = 8;
+    // Offsets of the surrounding locations, in the order of Location#getAllNeighbors().
+    private static final int[] NEIGHBOR_DX = new int[NO_OF_NEIGHBORS], NEIGHBOR_DY = new int[NO_OF_NEIGHBORS];
+
+    static {
+        List<Location> offsets = new Location(0, 0).getAllNeighbors();
+        for (int i = 0; i < NO_OF_NEIGHBORS; i++) {
+            NEIGHBOR_DX[i] = offsets.get(i).getX();
+            NEIGHBOR_DY[i] = offsets.get(i).getY();
+        }
+    }
+
     private final Tile center;
-    private final List<Location> unfinishedLocList;
+    // Bit i is set while the i-th surrounding location is vacant.
+    private int vacantMask;
     private List<Meeple> meeples;
     private static final int NINE = 9;
     private final Segment type = Segment.MONASTERY;
@@ -20,11 +35,24 @@ public class Monastery implements BasicFeature{
      */
     Monastery(Tile centerTile) {
         center = centerTile;
-        Location centerLoc = centerTile.getLoc();
-        unfinishedLocList = centerLoc.getAllNeighbors();
+        vacantMask = (1 << NO_OF_NEIGHBORS) - 1;
         meeples = new ArrayList<>();
     }
 
+    /**
+     * Constructor of the copy in a forked board.
+     * @param original the monastery of the parent board
+     * @param meepleMapping the meeple of the forked game for each meeple on the original
+     */
+    Monastery(Monastery original, UnaryOperator<Meeple> meepleMapping) {
+        center = original.center;
+        vacantMask = original.vacantMask;
+        meeples = new ArrayList<>(original.meeples.size());
+        for (Meeple m : original.meeples) {
+            meeples.add(meepleMapping.apply(m));
+        }
+    }
+
     /**
      * Center tile getter (containing monastery segment in its center).
      * @return center tile
@@ -42,11 +70,75 @@ public class Monastery implements BasicFeature{
     }
 
     /**
-     * Get the list of tile locations which are vacant.
+     * Get the packed key of a surrounding location.
+     * @param centerKey packed location of the monastery
+     * @param i index of the surrounding location, 0 to 7
+     * @return packed key of the surrounding location
+     */
+    static long neighborKey(long centerKey, int i) {
+        return Location.pack(Location.unpackX(centerKey) + NEIGHBOR_DX[i], Location.unpackY(centerKey) + NEIGHBOR_DY[i]);
+    }
+
+    /**
+     * Get the packed key of the monastery that has a location as its i-th surrounding location.
+     * @param key packed location of a tile
+     * @param i index of the surrounding location, 0 to 7
+     * @return packed key of the possible monastery
+     */
+    static long centerKey(long key, int i) {
+        return Location.pack(Location.unpackX(key) - NEIGHBOR_DX[i], Location.unpackY(key) - NEIGHBOR_DY[i]);
+    }
+
+    /**
+     * Mark a surrounding location as filled.
+     * @param i index of the surrounding location, 0 to 7
+     * @return true if it was vacant
+     */
+    boolean fillNeighbor(int i) {
+        boolean wasVacant = (vacantMask & (1 << i)) != 0;
+        vacantMask &= ~(1 << i);
+        return wasVacant;
+    }
+
+    /**
+     * Mark a surrounding location as vacant again, to undo {@link #fillNeighbor(int)}.
+     * @param i index of the surrounding location, 0 to 7
+     */
+    void vacateNeighbor(int i) {
+        vacantMask |= 1 << i;
+    }
+
+    /**
+     * No. of surrounding locations still vacant.
+     * @return 0 to 8
+     */
+    int getNoOfVacancies() {
+        return Integer.bitCount(vacantMask);
+    }
+
+    /**
+     * Get the list of tile locations which are vacant. The list is created on every call.
      * @return unfinished location list
      */
     public List<Location> getUnfinishedLocList() {
-        return unfinishedLocList;
+        List<Location> vacancies = new ArrayList<>();
+        Location centerLoc = getCenterLoc();
+        for (int i = 0; i < NO_OF_NEIGHBORS; i++) {
+            if ((vacantMask & (1 << i)) != 0) {
+                vacancies.add(new Location(centerLoc.getX() + NEIGHBOR_DX[i], centerLoc.getY() + NEIGHBOR_DY[i]));
+            }
+        }
+        return vacancies;
+    }
+
+    private int neighborIndex(Location loc) {
+        Location centerLoc = getCenterLoc();
+        for (int i = 0; i < NO_OF_NEIGHBORS; i++) {
+            if (loc.getX() == centerLoc.getX() + NEIGHBOR_DX[i] && loc.getY() == centerLoc.getY() + NEIGHBOR_DY[i]) {
+                return i;
+            }
+        }
+        return -1;
     }
 
     @Override
@@ -56,7 +148,7 @@ public class Monastery implements BasicFeature{
 
     @Override
     public boolean isComplete() {
-        return unfinishedLocList.isEmpty();
+        return vacantMask == 0;
     }
 
     @Override
@@ -66,8 +158,7 @@ public class Monastery implements BasicFeature{
 
     @Override
     public boolean addTile(Tile newTile) {
-        Location tmpLoc = newTile.getLoc();
-        return unfinishedLocList.remove(tmpLoc);
+        return removeUnfinishedLoc(newTile.getLoc());
     }
 
     /**
@@ -76,7 +167,8 @@ public class Monastery implements BasicFeature{
      * @return true if removed successfully, false if list doesn't contain newLoc.
      */
     public boolean removeUnfinishedLoc(Location newLoc) {
-        return unfinishedLocList.remove(newLoc);
+        int i = neighborIndex(newLoc);
+        return i >= 0 && fillNeighbor(i);
     }
 
     @Override
@@ -116,11 +208,11 @@ public class Monastery implements BasicFeature{
 
     @Override
     public int getEndScore() {
-        return NINE - unfinishedLocList.size();
+        return NINE - Integer.bitCount(vacantMask);
     }
 
     @Override
     public String toString() {
-        return "Monastery center at" + center.getLoc() + "vacancies: " + unfinishedLocList.toString();
+        return "Monastery center at" + center.getLoc() + "vacancies: " + getUnfinishedLocList().toString();
     }
 }
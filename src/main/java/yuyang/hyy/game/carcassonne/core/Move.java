@@ -0,0 +1,69 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.Objects;
+
+/**
+ * A whole move: a tile type with its placement, and optionally the orientation to put a meeple on.
+ * See {@link Board#apply(Move, Meeple)}.
+ */
+public final class Move {
+    private final TileType type;
+    private final Placement placement;
+    private final Orientation meepleOri;
+
+    /**
+     * Constructor.
+     * @param type the tile type to place
+     * @param placement location and rotation of the tile
+     * @param meepleOri orientation on the tile to put a meeple on, or null for no meeple
+     */
+    public Move(TileType type, Placement placement, Orientation meepleOri) {
+        this.type = type;
+        this.placement = placement;
+        this.meepleOri = meepleOri;
+    }
+
+    /**
+     * Tile type getter.
+     * @return the tile type to place
+     */
+    public TileType getType() {
+        return type;
+    }
+
+    /**
+     * Placement getter.
+     * @return location and rotation of the tile
+     */
+    public Placement getPlacement() {
+        return placement;
+    }
+
+    /**
+     * Meeple orientation getter.
+     * @return orientation on the tile to put a meeple on, or null for no meeple
+     */
+    public Orientation getMeepleOri() {
+        return meepleOri;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, placement, meepleOri);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Move)) {
+            return false;
+        } else {
+            Move m = (Move) obj;
+            return type == m.type && placement.equals(m.placement) && meepleOri == m.meepleOri;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s at %s, meeple %s", type, placement, meepleOri);
+    }
+}
@@ -0,0 +1,116 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.Arrays;
+
+/**
+ * A reusable list of the legal moves of one tile type, filled by {@link Game#getLegalMoves(MoveBuffer)}: each move
+ * is a (location, rotation, meeple orientation or none) tuple in primitive arrays. Refilling a buffer only
+ * allocates when it has to grow, so bots can generate moves on the hot path; the getters creating objects are
+ * meant for the GUI.
+ */
+public final class MoveBuffer {
+    private static final int INITIAL_CAPACITY = 64, NO_MEEPLE = -1;
+    private static final Orientation[] ORIENTATIONS = Orientation.values();
+    private TileType type;
+    private long[] locKeys = new long[INITIAL_CAPACITY];
+    private byte[] rotations = new byte[INITIAL_CAPACITY];
+    private byte[] meepleOris = new byte[INITIAL_CAPACITY];
+    private int size;
+
+    /**
+     * Empty the buffer for the moves of another tile type.
+     * @param newType the tile type
+     */
+    void reset(TileType newType) {
+        type = newType;
+        size = 0;
+    }
+
+    /**
+     * Add a move.
+     * @param locKey packed location
+     * @param rotation no. of clockwise rotations
+     * @param meepleOri where to put a meeple on the placed tile, or null for none
+     */
+    void add(long locKey, int rotation, Orientation meepleOri) {
+        if (size == locKeys.length) {
+            locKeys = Arrays.copyOf(locKeys, size * 2);
+            rotations = Arrays.copyOf(rotations, size * 2);
+            meepleOris = Arrays.copyOf(meepleOris, size * 2);
+        }
+        locKeys[size] = locKey;
+        rotations[size] = (byte) rotation;
+        meepleOris[size] = (byte) (meepleOri == null ? NO_MEEPLE : meepleOri.ordinal());
+        size++;
+    }
+
+    /**
+     * No. of moves.
+     * @return size
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The tile type of the moves.
+     * @return tile type
+     */
+    public TileType getType() {
+        return type;
+    }
+
+    /**
+     * Packed location of a move.
+     * @param i index of the move
+     * @return packed location, see {@link Location#pack()}
+     */
+    long getLocKey(int i) {
+        return locKeys[i];
+    }
+
+    /**
+     * Location of a move.
+     * @param i index of the move
+     * @return a new location object
+     */
+    public Location getLoc(int i) {
+        return Location.unpack(locKeys[i]);
+    }
+
+    /**
+     * Rotation of a move.
+     * @param i index of the move
+     * @return no. of clockwise rotations
+     */
+    public int getRotation(int i) {
+        return rotations[i];
+    }
+
+    /**
+     * Meeple of a move.
+     * @param i index of the move
+     * @return orientation on the placed tile, or null for no meeple
+     */
+    public Orientation getMeepleOri(int i) {
+        return meepleOris[i] == NO_MEEPLE ? null : ORIENTATIONS[meepleOris[i]];
+    }
+
+    /**
+     * Placement of a move.
+     * @param i index of the move
+     * @return a new placement object
+     */
+    public Placement getPlacement(int i) {
+        return new Placement(getLoc(i), rotations[i]);
+    }
+
+    /**
+     * A move of the buffer as an object.
+     * @param i index of the move
+     * @return a new move object
+     */
+    public Move getMove(int i) {
+        return new Move(type, getPlacement(i), getMeepleOri(i));
+    }
+}
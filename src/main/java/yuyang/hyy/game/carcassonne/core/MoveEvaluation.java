@@ -0,0 +1,219 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.Arrays;
+
+/**
+ * What one move would do, worked out by {@link Game#evaluate(MoveBuffer, int, MoveEvaluation)} without touching the
+ * board: the score each seat gets at once, the change of each seat's projected score (its score if the game ended
+ * right after the move, incomplete features counted at their end value), and the road and city features of the
+ * placed tile after merging with their neighbors. Reused between calls, like {@link MoveBuffer}.
+ * Seats are indexes in {@link Game#getPlayerList()}; owner masks have bit i set iff seat i owns the feature.
+ */
+public final class MoveEvaluation {
+    private static final int MAX_FEATURES = 4;
+    private int[] scoreDeltas = new int[0], projectedDeltas = new int[0];
+    private final Segment[] featureTypes = new Segment[MAX_FEATURES];
+    private final int[] tileCounts = new int[MAX_FEATURES], shieldCounts = new int[MAX_FEATURES],
+            openEdges = new int[MAX_FEATURES], ownerMasks = new int[MAX_FEATURES], prevOwnerMasks = new int[MAX_FEATURES];
+    private int noOfFeatures, noOfAdvancedMonasteries, noOfCompletedMonasteries;
+    // Scratch space of Board#evaluate, so that each thread evaluating moves brings its own.
+    private final EdgeGroups edgeGroups = new EdgeGroups();
+    private int[] seatCounts = new int[0], rootSeatCounts = new int[0];
+
+    /**
+     * Clear the result for another move.
+     * @param noOfSeats no. of players of the game
+     */
+    void reset(int noOfSeats) {
+        if (scoreDeltas.length != noOfSeats) {
+            scoreDeltas = new int[noOfSeats];
+            projectedDeltas = new int[noOfSeats];
+            seatCounts = new int[noOfSeats];
+            rootSeatCounts = new int[noOfSeats];
+        } else {
+            Arrays.fill(scoreDeltas, 0);
+            Arrays.fill(projectedDeltas, 0);
+        }
+        noOfFeatures = 0;
+        noOfAdvancedMonasteries = 0;
+        noOfCompletedMonasteries = 0;
+    }
+
+    /**
+     * Scratch edge groups of the placed tile.
+     * @return edge groups
+     */
+    EdgeGroups getEdgeGroups() {
+        return edgeGroups;
+    }
+
+    /**
+     * Scratch meeple counts per seat of a merged feature.
+     * @return one int per seat
+     */
+    int[] getSeatCounts() {
+        return seatCounts;
+    }
+
+    /**
+     * Scratch meeple counts per seat of one feature before merging.
+     * @return one int per seat
+     */
+    int[] getRootSeatCounts() {
+        return rootSeatCounts;
+    }
+
+    /**
+     * Add points to every seat of an owner mask.
+     * @param owners owner mask
+     * @param score points scored at once
+     * @param projected change of the projected score
+     */
+    void addScores(int owners, int score, int projected) {
+        for (int seat = 0; seat < scoreDeltas.length; seat++) {
+            if ((owners & (1 << seat)) != 0) {
+                scoreDeltas[seat] += score;
+                projectedDeltas[seat] += projected;
+            }
+        }
+    }
+
+    /**
+     * Record a road or city feature of the placed tile, after merging.
+     * @param type CITY or ROAD
+     * @param tiles tile count
+     * @param shields shield count
+     * @param open open edges left
+     * @param owners owner mask after the move
+     * @param prevOwners owners of any of the merged features before the move
+     */
+    void addFeature(Segment type, int tiles, int shields, int open, int owners, int prevOwners) {
+        featureTypes[noOfFeatures] = type;
+        tileCounts[noOfFeatures] = tiles;
+        shieldCounts[noOfFeatures] = shields;
+        openEdges[noOfFeatures] = open;
+        ownerMasks[noOfFeatures] = owners;
+        prevOwnerMasks[noOfFeatures] = prevOwners;
+        noOfFeatures++;
+    }
+
+    /**
+     * Record a monastery which gets a new surrounding tile, or the new monastery itself.
+     * @param completed whether it's complete after the move
+     */
+    void addMonastery(boolean completed) {
+        noOfAdvancedMonasteries++;
+        if (completed) {
+            noOfCompletedMonasteries++;
+        }
+    }
+
+    /**
+     * Points a seat scores at once, for the features and monasteries the move completes.
+     * @param seat player index
+     * @return score delta
+     */
+    public int getScoreDelta(int seat) {
+        return scoreDeltas[seat];
+    }
+
+    /**
+     * Change of the score a seat would have if the game ended right after the move.
+     * @param seat player index
+     * @return projected score delta
+     */
+    public int getProjectedDelta(int seat) {
+        return projectedDeltas[seat];
+    }
+
+    /**
+     * No. of road and city features of the placed tile, after merging. Segments joining one feature count once.
+     * @return 0 to 4
+     */
+    public int getNoOfFeatures() {
+        return noOfFeatures;
+    }
+
+    /**
+     * Type of a feature.
+     * @param i feature index
+     * @return CITY or ROAD
+     */
+    public Segment getFeatureType(int i) {
+        return featureTypes[i];
+    }
+
+    /**
+     * Size of a merged feature.
+     * @param i feature index
+     * @return no. of tiles, as scored
+     */
+    public int getTileCount(int i) {
+        return tileCounts[i];
+    }
+
+    /**
+     * Shields of a merged feature, see {@link City#getNoOfShields()}.
+     * @param i feature index
+     * @return no. of shields, 0 for a road
+     */
+    public int getShieldCount(int i) {
+        return shieldCounts[i];
+    }
+
+    /**
+     * Whether the move completes a feature.
+     * @param i feature index
+     * @return complete or not
+     */
+    public boolean isComplete(int i) {
+        return openEdges[i] == 0;
+    }
+
+    /**
+     * Owners of a feature after the move.
+     * @param i feature index
+     * @return owner mask
+     */
+    public int getOwnerMask(int i) {
+        return ownerMasks[i];
+    }
+
+    /**
+     * Owners of the features merged into a feature, before the move. Differs from {@link #getOwnerMask(int)} when
+     * the move changes the ownership.
+     * @param i feature index
+     * @return owner mask
+     */
+    public int getPrevOwnerMask(int i) {
+        return prevOwnerMasks[i];
+    }
+
+    /**
+     * No. of features the move completes.
+     * @return count
+     */
+    public int getNoOfCompletedFeatures() {
+        int n = 0;
+        for (int i = 0; i < noOfFeatures; i++) {
+            n += openEdges[i] == 0 ? 1 : 0;
+        }
+        return n;
+    }
+
+    /**
+     * No. of monasteries the move gets closer to completion, including one on the placed tile.
+     * @return count
+     */
+    public int getNoOfAdvancedMonasteries() {
+        return noOfAdvancedMonasteries;
+    }
+
+    /**
+     * No. of monasteries the move completes.
+     * @return count
+     */
+    public int getNoOfCompletedMonasteries() {
+        return noOfCompletedMonasteries;
+    }
+}
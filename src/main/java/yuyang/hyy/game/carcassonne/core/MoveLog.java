@@ -0,0 +1,240 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The compact binary format of a game: enough to replay it, since the deck order follows from its seed.
+ * <pre>
+ *     header: magic (4 bytes), version (1 byte), deck seed (8 bytes), no. of tile types (varint),
+ *             no. of players (varint), then for each player the length (varint) and the UTF-8 bytes of the name
+ *     turns:  one varint per turn, in turn order, see {@link #packTurn(int, int, int, int, Orientation, int)}
+ *     end:    a 0 varint once the game is over, nothing if it is still running
+ * </pre>
+ * A varint keeps 7 bits per byte, low bits first, with the top bit set on every byte but the last. A full game of
+ * 72 tiles takes about 3 bytes per turn.
+ */
+final class MoveLog {
+    static final int MAGIC = 0x43524C47, VERSION = 1, END = 0, MAX_VARINT_BYTES = 10;
+    private static final int MEEPLE_BITS = 3, ROTATION_BITS = 2, VARINT_BITS = 7, VARINT_MASK = 0x7F,
+            VARINT_MORE = 0x80, HALF_LONG = 32, NO_OF_ORIENTATIONS = Orientation.values().length;
+    private static final Orientation[] ORIENTATIONS = Orientation.values();
+
+    private MoveLog() {
+    }
+
+    /**
+     * Write the header of a game.
+     * @param out the buffer, with enough room
+     * @param deckSeed seed of the deck shuffle
+     * @param noOfTypes no. of tile types of the catalogue
+     * @param players the players, in seat order
+     */
+    static void putHeader(ByteBuffer out, long deckSeed, int noOfTypes, List<Player> players) {
+        out.putInt(MAGIC);
+        out.put((byte) VERSION);
+        out.putLong(deckSeed);
+        putVarint(out, noOfTypes);
+        putVarint(out, players.size());
+        for (Player p : players) {
+            byte[] name = p.toString().getBytes(StandardCharsets.UTF_8);
+            putVarint(out, name.length);
+            out.put(name);
+        }
+    }
+
+    /**
+     * No. of bytes of a header.
+     * @param players the players, in seat order
+     * @return header size
+     */
+    static int headerSize(List<Player> players) {
+        int size = Integer.BYTES + 1 + Long.BYTES + MAX_VARINT_BYTES * 2;
+        for (Player p : players) {
+            size += MAX_VARINT_BYTES + p.toString().getBytes(StandardCharsets.UTF_8).length;
+        }
+        return size;
+    }
+
+    /**
+     * Check the magic and the version of a header, and skip them.
+     * @param in the buffer at the start of a game
+     */
+    static void checkHeader(ByteBuffer in) {
+        if (in.remaining() < Integer.BYTES + 1 || in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a move log!");
+        }
+        int version = in.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported move log version: " + version);
+        }
+    }
+
+    /**
+     * Read the player names of a header, after the seed and the no. of tile types.
+     * @param in the buffer
+     * @return new players with these names
+     */
+    static List<Player> getPlayers(ByteBuffer in) {
+        int noOfPlayers = (int) getVarint(in);
+        List<Player> players = new ArrayList<>(noOfPlayers);
+        for (int i = 0; i < noOfPlayers; i++) {
+            byte[] name = new byte[(int) getVarint(in)];
+            in.get(name);
+            players.add(new Player(new String(name, StandardCharsets.UTF_8)));
+        }
+        return players;
+    }
+
+    /**
+     * Skip a whole header.
+     * @param in the buffer at the start of a game
+     * @return no. of players
+     */
+    static int skipHeader(ByteBuffer in) {
+        checkHeader(in);
+        in.position(in.position() + Long.BYTES);
+        getVarint(in);
+        int noOfPlayers = (int) getVarint(in);
+        for (int i = 0; i < noOfPlayers; i++) {
+            int length = (int) getVarint(in);
+            in.position(in.position() + length);
+        }
+        return noOfPlayers;
+    }
+
+    /**
+     * No. of bits of a tile type id.
+     * @param noOfTypes no. of tile types of the catalogue
+     * @return bits
+     */
+    static int typeBits(int noOfTypes) {
+        return HALF_LONG - Integer.numberOfLeadingZeros(Math.max(noOfTypes - 1, 1));
+    }
+
+    /**
+     * Pack one turn into a positive number: the meeple, the rotation and the tile type in the low bits, then the
+     * location with the bits of x and y interleaved (after zigzag encoding), so that a tile near the first tile
+     * takes few bits.
+     * @param typeId id of the tile type
+     * @param rotation clockwise rotations of the tile
+     * @param x x of the location
+     * @param y y of the location
+     * @param meepleOri orientation of the meeple placed, or null
+     * @param typeBits see {@link #typeBits(int)}
+     * @return the packed turn, never {@link #END}
+     */
+    static long packTurn(int typeId, int rotation, int x, int y, Orientation meepleOri, int typeBits) {
+        long meeple = meepleOri == null ? 0 : meepleOri.ordinal() + 1;
+        long loc = interleave(zigzag(x)) | interleave(zigzag(y)) << 1;
+        // + 1: a turn is never END.
+        return (meeple | (long) rotation << MEEPLE_BITS | (long) typeId << (MEEPLE_BITS + ROTATION_BITS)
+                | loc << (MEEPLE_BITS + ROTATION_BITS + typeBits)) + 1;
+    }
+
+    /**
+     * Tile type id of a packed turn.
+     * @param turn packed turn
+     * @param typeBits see {@link #typeBits(int)}
+     * @return type id
+     */
+    static int getTypeId(long turn, int typeBits) {
+        return (int) ((turn - 1) >>> (MEEPLE_BITS + ROTATION_BITS)) & ((1 << typeBits) - 1);
+    }
+
+    /**
+     * Rotation of a packed turn.
+     * @param turn packed turn
+     * @return clockwise rotations
+     */
+    static int getRotation(long turn) {
+        return (int) ((turn - 1) >>> MEEPLE_BITS) & ((1 << ROTATION_BITS) - 1);
+    }
+
+    /**
+     * Meeple orientation of a packed turn.
+     * @param turn packed turn
+     * @return orientation, or null if no meeple was placed
+     */
+    static Orientation getMeepleOri(long turn) {
+        int meeple = (int) ((turn - 1) & ((1 << MEEPLE_BITS) - 1));
+        if (meeple > NO_OF_ORIENTATIONS) {
+            throw new IllegalArgumentException("Bad meeple orientation in the move log: " + meeple);
+        }
+        return meeple == 0 ? null : ORIENTATIONS[meeple - 1];
+    }
+
+    /**
+     * Location of a packed turn.
+     * @param turn packed turn
+     * @param typeBits see {@link #typeBits(int)}
+     * @return location
+     */
+    static Location getLoc(long turn, int typeBits) {
+        long loc = (turn - 1) >>> (MEEPLE_BITS + ROTATION_BITS + typeBits);
+        return new Location(unzigzag(deinterleave(loc)), unzigzag(deinterleave(loc >>> 1)));
+    }
+
+    /**
+     * Write a varint.
+     * @param out the buffer
+     * @param value a non-negative number
+     */
+    static void putVarint(ByteBuffer out, long value) {
+        long v = value;
+        while ((v & ~VARINT_MASK) != 0) {
+            out.put((byte) ((v & VARINT_MASK) | VARINT_MORE));
+            v >>>= VARINT_BITS;
+        }
+        out.put((byte) v);
+    }
+
+    /**
+     * Read a varint.
+     * @param in the buffer
+     * @return the number
+     */
+    static long getVarint(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += VARINT_BITS) {
+            byte b = in.get();
+            value |= (long) (b & VARINT_MASK) << shift;
+            if ((b & VARINT_MORE) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Bad varint in the move log!");
+    }
+
+    private static int zigzag(int v) {
+        return (v << 1) ^ (v >> (Integer.SIZE - 1));
+    }
+
+    private static int unzigzag(int v) {
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    // Spread the low 32 bits of v to the even bits of a long.
+    private static long interleave(int v) {
+        long x = v & 0xFFFFFFFFL;
+        x = (x | x << 16) & 0x0000FFFF0000FFFFL;
+        x = (x | x << 8) & 0x00FF00FF00FF00FFL;
+        x = (x | x << 4) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | x << 2) & 0x3333333333333333L;
+        x = (x | x << 1) & 0x5555555555555555L;
+        return x;
+    }
+
+    // Gather the even bits of v.
+    private static int deinterleave(long v) {
+        long x = v & 0x5555555555555555L;
+        x = (x | x >>> 1) & 0x3333333333333333L;
+        x = (x | x >>> 2) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | x >>> 4) & 0x00FF00FF00FF00FFL;
+        x = (x | x >>> 8) & 0x0000FFFF0000FFFFL;
+        x = (x | x >>> 16) & 0x00000000FFFFFFFFL;
+        return (int) x;
+    }
+}
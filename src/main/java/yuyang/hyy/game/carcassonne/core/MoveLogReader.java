@@ -0,0 +1,130 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Rebuilds a game from a move log written by {@link MoveLogWriter}: the deck is shuffled with the logged seed, and
+ * every logged turn is played again through the same calls as the GUI. Every turn is checked against the deck, so a
+ * log of another tile set or a damaged log is refused.
+ */
+public final class MoveLogReader {
+    private MoveLogReader() {
+    }
+
+    /**
+     * Load a saved game, to be resumed or looked at.
+     * @param file the log file
+     * @return the game after the last logged turn: running, or over if the log is complete
+     * @throws IOException if the file can't be read
+     * @throws IllegalArgumentException if the log is damaged, cut short or of another tile set
+     */
+    public static Game load(Path file) throws IOException {
+        return load(ByteBuffer.wrap(Files.readAllBytes(file)));
+    }
+
+    /**
+     * Load a saved game.
+     * @param log the log, from its position to its limit
+     * @return the game after the last logged turn
+     * @throws IllegalArgumentException if the log is damaged, cut short or of another tile set
+     */
+    public static Game load(ByteBuffer log) {
+        return replay(log, Integer.MAX_VALUE, Board.StorageMode.HASH_MAP);
+    }
+
+    /**
+     * Read the header of a saved game, to replay its turns on a game whose listeners are in place, e.g. the game of
+     * a {@link GameEngine} drawing the board: start the game, then {@link #playTurns(Game, ByteBuffer)}.
+     * @param log the log, from its position. The buffer is left after the header.
+     * @return the game of the logged players and deck, not started yet
+     * @throws IllegalArgumentException if the header is damaged, cut short or of another tile set
+     */
+    public static Game newGame(ByteBuffer log) {
+        return newGame(log, Board.StorageMode.HASH_MAP);
+    }
+
+    /**
+     * Replay the logged turns on the game of {@link #newGame(ByteBuffer)}.
+     * @param game the started game, at the turn where the log is
+     * @param log the turns, from the position left by {@link #newGame(ByteBuffer)}
+     * @throws IllegalArgumentException if the turns are damaged or cut short
+     */
+    public static void playTurns(Game game, ByteBuffer log) {
+        playTurns(game, log, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Replay the first turns of a logged game. The buffer is left after the last turn read.
+     * @param log the log, from its position
+     * @param noOfTurns no. of turns to replay at most
+     * @param mode storage mode of the board
+     * @return the game after these turns
+     * @throws IllegalArgumentException if the log is damaged, cut short or of another tile set
+     */
+    static Game replay(ByteBuffer log, int noOfTurns, Board.StorageMode mode) {
+        Game game = newGame(log, mode);
+        game.gameStart();
+        playTurns(game, log, noOfTurns);
+        return game;
+    }
+
+    private static Game newGame(ByteBuffer log, Board.StorageMode mode) {
+        try {
+            MoveLog.checkHeader(log);
+            long deckSeed = log.getLong();
+            int noOfTypes = (int) MoveLog.getVarint(log);
+            TileCatalogue catalogue = TileCatalogue.getDefault();
+            if (noOfTypes != catalogue.size()) {
+                throw new IllegalArgumentException("The move log is of another tile set!");
+            }
+            List<Player> players = MoveLog.getPlayers(log);
+            return new Game(players, catalogue, deckSeed, mode);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("The move log is cut short!", e);
+        }
+    }
+
+    private static void playTurns(Game game, ByteBuffer log, int noOfTurns) {
+        int typeBits = MoveLog.typeBits(game.getCatalogue().size());
+        try {
+            for (int i = 0; i < noOfTurns && log.hasRemaining(); i++) {
+                long turn = MoveLog.getVarint(log);
+                if (turn == MoveLog.END) {
+                    if (game.isRunning()) {
+                        // The last tile had no legal placement.
+                        game.endGameWithoutPlacement();
+                    }
+                    break;
+                }
+                playTurn(game, turn, typeBits);
+            }
+        } catch (BufferUnderflowException e) {
+            // E.g. the end of a turn was never written.
+            throw new IllegalArgumentException("The move log is cut short!", e);
+        }
+    }
+
+    private static void playTurn(Game game, long turn, int typeBits) {
+        if (!game.isRunning() || game.getCurrTile().getType().getId() != MoveLog.getTypeId(turn, typeBits)) {
+            throw new IllegalArgumentException("The move log doesn't match its deck at turn " + game.getNoOfTurns());
+        }
+        int rotation = MoveLog.getRotation(turn);
+        while (game.getRotationTimes() != rotation) {
+            game.rotateCurrTileClockwise();
+        }
+        if (!game.placeTile(game.getCurrTile(), MoveLog.getLoc(turn, typeBits))) {
+            throw new IllegalArgumentException("Illegal tile placement in the move log at turn " + game.getNoOfTurns());
+        }
+        Orientation meepleOri = MoveLog.getMeepleOri(turn);
+        if (meepleOri != null && !(game.getCurrPlayer().hasMeeple() && game.placeMeeple(meepleOri))) {
+            throw new IllegalArgumentException("Illegal meeple placement in the move log at turn "
+                    + game.getNoOfTurns());
+        }
+        game.nextTurn();
+    }
+}
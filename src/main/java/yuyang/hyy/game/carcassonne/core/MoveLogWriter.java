@@ -0,0 +1,155 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Saves a game as it is played, in the format of {@link MoveLog}: a header, then one varint per turn. The turns are
+ * collected in a small buffer and written to the channel when the buffer is full, when the game is over, or on
+ * {@link #flush()}, so logging a game costs a few writes of a few hundred bytes.
+ * <p>To resume a saved game, load it with {@link MoveLogReader#load(Path)}, then open a writer on the same file:
+ * the header is only written to an empty file, and the new turns are appended.</p>
+ */
+public final class MoveLogWriter implements TurnDeltaListener, Closeable {
+    private static final int BUFFER_SIZE = 512;
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private final int typeBits;
+    // The tile and the meeple of the running turn, written when the turn ends.
+    private Tile pendingTile;
+    private Orientation pendingMeepleOri;
+
+    /**
+     * Constructor. Writes the header if the channel is empty. Add the writer to the game as a turn delta listener
+     * before the next turn is played.
+     * @param game a game with a seeded deck, see {@link Game#isSeeded()}
+     * @param newChannel the file to append to
+     * @throws IOException if the header can't be written
+     */
+    public MoveLogWriter(Game game, FileChannel newChannel) throws IOException {
+        this(game, newChannel, newChannel.size() == 0);
+    }
+
+    /**
+     * Constructor of a writer to a new log, e.g. in memory for a {@link ReplayArchiveWriter}. Always writes the
+     * header.
+     * @param game a game with a seeded deck, see {@link Game#isSeeded()}
+     * @param newChannel where the log goes
+     * @throws IOException if the header can't be written
+     */
+    public MoveLogWriter(Game game, WritableByteChannel newChannel) throws IOException {
+        this(game, newChannel, true);
+    }
+
+    private MoveLogWriter(Game game, WritableByteChannel newChannel, boolean writeHeader) throws IOException {
+        if (!game.isSeeded()) {
+            throw new IllegalArgumentException("Only a game with a seeded deck can be replayed!");
+        }
+        channel = newChannel;
+        int noOfTypes = game.getCatalogue().size();
+        typeBits = MoveLog.typeBits(noOfTypes);
+        buffer = ByteBuffer.allocate(Math.max(BUFFER_SIZE, MoveLog.headerSize(game.getPlayerList())));
+        if (writeHeader) {
+            MoveLog.putHeader(buffer, game.getDeckSeed(), noOfTypes, game.getPlayerList());
+            flush();
+        }
+    }
+
+    /**
+     * Open a log file, create it if needed, and start logging the game to it.
+     * @param game a game with a seeded deck
+     * @param file the log file, empty or holding the turns played so far
+     * @return the writer, to be closed
+     * @throws IOException if the file can't be opened
+     */
+    public static MoveLogWriter open(Game game, Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        MoveLogWriter writer;
+        try {
+            writer = new MoveLogWriter(game, channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        game.addTurnDeltaListener(writer);
+        return writer;
+    }
+
+    @Override
+    public void handleTurnDelta(TurnDelta delta) {
+        switch (delta.getPhase()) {
+            case TILE_PLACEMENT:
+                if (delta.getPlacedTile() != null) {
+                    pendingTile = delta.getPlacedTile();
+                }
+                break;
+            case MEEPLE_PLACEMENT:
+                if (delta.getPlacedMeeple() != null) {
+                    pendingMeepleOri = delta.getMeepleOri();
+                }
+                break;
+            case TURN_END:
+                try {
+                    endTurn(delta.isGameOver());
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Error when writing the move log", e);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void endTurn(boolean gameOver) throws IOException {
+        if (pendingTile != null) {
+            Location loc = pendingTile.getLoc();
+            put(MoveLog.packTurn(pendingTile.getType().getId(), pendingTile.getRotationNo(), loc.getX(), loc.getY(),
+                    pendingMeepleOri, typeBits));
+            pendingTile = null;
+            pendingMeepleOri = null;
+        }
+        if (gameOver) {
+            put(MoveLog.END);
+            flush();
+        }
+    }
+
+    private void put(long value) throws IOException {
+        if (buffer.remaining() < MoveLog.MAX_VARINT_BYTES) {
+            flush();
+        }
+        MoveLog.putVarint(buffer, value);
+    }
+
+    /**
+     * Write the buffered turns to the channel.
+     * @throws IOException if they can't be written
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write the buffered turns and close the channel. A turn in progress isn't saved.
+     * @throws IOException if the turns can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
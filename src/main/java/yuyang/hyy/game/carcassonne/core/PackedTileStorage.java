@@ -0,0 +1,159 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A compact tile storage for bulk simulations: a primitive open-addressing map from packed location to one int per
+ * tile. The int holds the rotation, the 4 edges before rotation, which {@link #getEdgeSeg(long, Orientation)} reads
+ * without any lookup, and the slot of the tile type in a small table of the types stored so far, so no tile or
+ * location object is kept alive. Tile objects are only created on {@link #get(long)}, of the shared type they were
+ * stored with.
+ * <p>Layout of a tile code, from the lowest bit: rotation (2 bits), top, right, down and left segments (3 bits each),
+ * then the type slot.</p>
+ */
+class PackedTileStorage implements TileStorage {
+    private static final int FOUR = 4, ROTATION_BITS = 2, SEG_BITS = 3, SEG_MASK = 0b111, FIRST_EDGE_SHIFT = 2,
+            SLOT_SHIFT = 14, MAX_SLOTS = 1 << (Integer.SIZE - 1 - SLOT_SHIFT), INITIAL_SLOTS = 32;
+    private static final Segment[] SEGMENTS = Segment.values();
+
+    private final LongIntHashMap codes;
+    // The distinct tile types stored so far, by slot. A catalogue has a few dozen, plus the start tile.
+    private TileType[] types;
+    private int noOfTypes;
+
+    /**
+     * Constructor of an empty storage.
+     */
+    PackedTileStorage() {
+        codes = new LongIntHashMap(-1);
+        types = new TileType[INITIAL_SLOTS];
+    }
+
+    private PackedTileStorage(PackedTileStorage parent) {
+        codes = parent.codes.fork();
+        types = parent.types.clone();
+        noOfTypes = parent.noOfTypes;
+    }
+
+    /**
+     * Encode a tile into its compact code, adding its type to the table if it's new.
+     * @param tile tile, with its final rotation
+     * @return tile code
+     */
+    int encode(Tile tile) {
+        int rotation = tile.getRotationNo();
+        int code = rotation | (slotOf(tile.getType()) << SLOT_SHIFT);
+        for (int side = 0; side < FOUR; side++) {
+            // The original edge "side" is shown on side (side + rotation) after the clockwise rotations.
+            Segment seg = tile.getEdgeSeg(Board.DIRECTIONS[(side + rotation) % FOUR]);
+            code |= seg.ordinal() << (FIRST_EDGE_SHIFT + SEG_BITS * side);
+        }
+        return code;
+    }
+
+    private int slotOf(TileType type) {
+        for (int slot = 0; slot < noOfTypes; slot++) {
+            if (types[slot] == type) {
+                return slot;
+            }
+        }
+        if (noOfTypes == MAX_SLOTS) {
+            throw new IllegalArgumentException("Too many tile types for the packed storage: " + type);
+        }
+        if (noOfTypes == types.length) {
+            types = Arrays.copyOf(types, types.length * 2);
+        }
+        types[noOfTypes] = type;
+        return noOfTypes++;
+    }
+
+    /**
+     * Get one edge segment of an encoded tile.
+     * @param code tile code
+     * @param side side after rotation
+     * @return the segment
+     */
+    static Segment edgeSeg(int code, Orientation side) {
+        int rotation = code & ((1 << ROTATION_BITS) - 1);
+        int original = (side.ordinal() - rotation + FOUR) % FOUR;
+        return SEGMENTS[(code >>> (FIRST_EDGE_SHIFT + SEG_BITS * original)) & SEG_MASK];
+    }
+
+    /**
+     * Create a tile object from its code.
+     * @param code tile code
+     * @param loc location of the tile
+     * @return a new tile of the stored type, with the encoded rotation and the location
+     */
+    Tile decode(int code, Location loc) {
+        Tile tile = new Tile(types[code >>> SLOT_SHIFT]);
+        for (int i = 0; i < (code & ((1 << ROTATION_BITS) - 1)); i++) {
+            tile.rotateClockwise();
+        }
+        tile.setLoc(loc);
+        return tile;
+    }
+
+    @Override
+    public boolean contains(long key) {
+        return codes.containsKey(key);
+    }
+
+    @Override
+    public Tile get(long key) {
+        int code = codes.get(key);
+        return code < 0 ? null : decode(code, Location.unpack(key));
+    }
+
+    @Override
+    public Segment getEdgeSeg(long key, Orientation side) {
+        return edgeSeg(codes.get(key), side);
+    }
+
+    @Override
+    public void put(long key, Tile tile) {
+        codes.put(key, encode(tile));
+    }
+
+    @Override
+    public void remove(long key) {
+        codes.remove(key);
+    }
+
+    /**
+     * Copy the storage in O(no. of pages), see {@link LongIntHashMap#fork()}.
+     * @return an independent copy
+     */
+    @Override
+    public TileStorage fork() {
+        return new PackedTileStorage(this);
+    }
+
+    @Override
+    public int size() {
+        return codes.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return codes.isEmpty();
+    }
+
+    /**
+     * Build a map of newly created tile objects. Only meant for tests and debugging.
+     * @return map from location to tile
+     */
+    @Override
+    public Map<Location, Tile> asMap() {
+        Map<Location, Tile> map = new HashMap<>();
+        for (int i = 0; i < codes.capacity(); i++) {
+            if (codes.isUsed(i)) {
+                Location loc = Location.unpack(codes.keyAt(i));
+                map.put(loc, decode(codes.valueAt(i), loc));
+            }
+        }
+        return map;
+    }
+}
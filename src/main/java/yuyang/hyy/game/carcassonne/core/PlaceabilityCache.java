@@ -0,0 +1,93 @@
+package yuyang.hyy.game.carcassonne.core;
+
+/**
+ * Whether each tile type of a catalogue can currently be placed somewhere on a board.
+ * A type's answer only depends on whether some of the frontier mask buckets (at most 64) are empty, so the cache
+ * maps every mask to the types depending on it. A placement only invalidates the types whose masks flipped between
+ * empty and non-empty; all the other answers stay valid and cost one array lookup.
+ */
+class PlaceabilityCache {
+    private static final int NO_OF_MASKS = 256;
+    private final TileCatalogue catalogue;
+    private final Board board;
+    // Mask -> ids of the types whose answer depends on the bucket of that mask.
+    private final int[][] dependents;
+    private final boolean[] valid;
+    private final boolean[] placeable;
+    private final int[] flipped = new int[NO_OF_MASKS];
+
+    /**
+     * Constructor.
+     * @param catalogue the tile set of the game
+     * @param board the board of the game
+     */
+    PlaceabilityCache(TileCatalogue catalogue, Board board) {
+        this.catalogue = catalogue;
+        this.board = board;
+        dependents = new int[NO_OF_MASKS][];
+        int noOfTypes = catalogue.getTypes().size();
+        valid = new boolean[noOfTypes];
+        placeable = new boolean[noOfTypes];
+        boolean[][] depends = new boolean[noOfTypes][NO_OF_MASKS];
+        int[] counts = new int[NO_OF_MASKS];
+        for (TileType type : catalogue.getTypes()) {
+            FrontierIndex.markDependentMasks(type.getEdgeWord(0), depends[type.getId()]);
+            for (int mask = 0; mask < NO_OF_MASKS; mask++) {
+                if (depends[type.getId()][mask]) {
+                    counts[mask]++;
+                }
+            }
+        }
+        for (int mask = 0; mask < NO_OF_MASKS; mask++) {
+            dependents[mask] = new int[counts[mask]];
+            int n = 0;
+            for (int id = 0; id < noOfTypes; id++) {
+                if (depends[id][mask]) {
+                    dependents[mask][n++] = id;
+                }
+            }
+        }
+    }
+
+    /**
+     * Constructor of the cache of a forked board, starting with the answers of the original and sharing its
+     * dependency table. The forked frontier keeps the masks not drained yet, so the answers stay consistent.
+     * @param original the cache of the parent board
+     * @param board the forked board
+     */
+    PlaceabilityCache(PlaceabilityCache original, Board board) {
+        catalogue = original.catalogue;
+        this.board = board;
+        dependents = original.dependents;
+        valid = original.valid.clone();
+        placeable = original.placeable.clone();
+    }
+
+    /**
+     * Check whether a tile type can be placed anywhere, in any rotation. Same answer as
+     * {@link Board#tileIsLegal(TileType)}.
+     * @param type the tile type
+     * @return whether a tile of this type should be discarded or not
+     */
+    boolean isPlaceable(TileType type) {
+        int id = type.getId();
+        if (id < 0 || catalogue.getType(id) != type) {
+            return board.tileIsLegal(type);
+        }
+        invalidateFlipped();
+        if (!valid[id]) {
+            placeable[id] = board.tileIsLegal(type);
+            valid[id] = true;
+        }
+        return placeable[id];
+    }
+
+    private void invalidateFlipped() {
+        int n = board.drainFlippedMasks(flipped);
+        for (int i = 0; i < n; i++) {
+            for (int id : dependents[flipped[i]]) {
+                valid[id] = false;
+            }
+        }
+    }
+}
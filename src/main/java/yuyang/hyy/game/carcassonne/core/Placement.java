@@ -0,0 +1,57 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.Objects;
+
+/**
+ * A legal placement of a tile: the location and the rotation of the tile.
+ */
+public class Placement {
+    private final Location loc;
+    private final int rotation;
+
+    /**
+     * Constructor.
+     * @param newLoc location in the game map
+     * @param newRotation no. of clockwise rotations from the original tile, the same as {@link Tile#getRotationNo()}
+     */
+    Placement(Location newLoc, int newRotation) {
+        loc = newLoc;
+        rotation = newRotation;
+    }
+
+    /**
+     * Location getter.
+     * @return location in the game map
+     */
+    public Location getLoc() {
+        return loc;
+    }
+
+    /**
+     * Rotation getter.
+     * @return no. of clockwise rotations from the original tile
+     */
+    public int getRotation() {
+        return rotation;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(loc, rotation);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof Placement)) {
+            return false;
+        } else {
+            Placement p = (Placement) obj;
+            return loc.equals(p.loc) && rotation == p.rotation;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s rotated %s", loc, rotation);
+    }
+}
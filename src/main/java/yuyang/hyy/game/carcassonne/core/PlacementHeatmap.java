@@ -0,0 +1,169 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Every legal placement of the current tile, ranked by what it does to the score of the current player: its
+ * projected score delta first (see {@link MoveEvaluation#getProjectedDelta(int)}), then the points scored at once.
+ * Each (location, rotation) is ranked by its best meeple option. Built by {@link Game#getPlacementHeatmap()}, which
+ * evaluates the moves in parallel; the heatmap itself is immutable.
+ */
+public final class PlacementHeatmap {
+    // Moves evaluated by one task of the fork/join pool.
+    private static final int MOVES_PER_TASK = 32;
+    private final Placement[] placements;
+    private final Orientation[] meepleOris;
+    private final int[] scoreDeltas, projectedDeltas;
+    private final Map<Location, Integer> bestByLocation = new HashMap<>();
+
+    private PlacementHeatmap(MoveBuffer moves, int[] moveScores, int[] moveProjections) {
+        // Keep the best move of every placement, then rank the placements.
+        Map<Placement, Integer> bestMoves = new HashMap<>();
+        for (int i = 0; i < moves.size(); i++) {
+            bestMoves.merge(moves.getPlacement(i), i,
+                    (a, b) -> compare(moveScores, moveProjections, a, b) <= 0 ? a : b);
+        }
+        List<Integer> ranked = new ArrayList<>(bestMoves.values());
+        Comparator<Integer> order = (a, b) -> compare(moveScores, moveProjections, a, b);
+        ranked.sort(order.thenComparingInt(i -> i));
+        placements = new Placement[ranked.size()];
+        meepleOris = new Orientation[ranked.size()];
+        scoreDeltas = new int[ranked.size()];
+        projectedDeltas = new int[ranked.size()];
+        for (int rank = 0; rank < placements.length; rank++) {
+            int i = ranked.get(rank);
+            placements[rank] = moves.getPlacement(i);
+            meepleOris[rank] = moves.getMeepleOri(i);
+            scoreDeltas[rank] = moveScores[i];
+            projectedDeltas[rank] = moveProjections[i];
+            bestByLocation.merge(placements[rank].getLoc(), moveProjections[i], Math::max);
+        }
+    }
+
+    /**
+     * Better moves first.
+     */
+    private static int compare(int[] scores, int[] projections, int a, int b) {
+        if (projections[a] != projections[b]) {
+            return Integer.compare(projections[b], projections[a]);
+        }
+        return Integer.compare(scores[b], scores[a]);
+    }
+
+    /**
+     * Evaluate a list of moves on the threads of a pool and rank them.
+     * @param board the board, which must not change until this returns
+     * @param moves legal moves of one tile
+     * @param players the players, in seat order
+     * @param seat seat of the player to move
+     * @param pool the pool to evaluate the moves in
+     * @return the heatmap
+     */
+    static PlacementHeatmap compute(Board board, MoveBuffer moves, List<Player> players, int seat,
+                                    ForkJoinPool pool) {
+        int[] scores = new int[moves.size()], projections = new int[moves.size()];
+        pool.invoke(new EvaluationTask(board, moves, players, seat, 0, moves.size(), scores, projections));
+        return new PlacementHeatmap(moves, scores, projections);
+    }
+
+    /**
+     * Evaluates a range of moves, split in halves until small enough. Each leaf has its own evaluation object and
+     * writes its own slots of the result arrays, so the tasks share nothing but the read-only board.
+     */
+    private static final class EvaluationTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        private final transient Board board;
+        private final transient MoveBuffer moves;
+        private final transient List<Player> players;
+        private final int seat, from, to;
+        private final int[] scores, projections;
+
+        EvaluationTask(Board board, MoveBuffer moves, List<Player> players, int seat, int from, int to,
+                       int[] scores, int[] projections) {
+            this.board = board;
+            this.moves = moves;
+            this.players = players;
+            this.seat = seat;
+            this.from = from;
+            this.to = to;
+            this.scores = scores;
+            this.projections = projections;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > MOVES_PER_TASK) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new EvaluationTask(board, moves, players, seat, from, mid, scores, projections),
+                        new EvaluationTask(board, moves, players, seat, mid, to, scores, projections));
+                return;
+            }
+            MoveEvaluation evaluation = new MoveEvaluation();
+            for (int i = from; i < to; i++) {
+                board.evaluate(moves.getType(), moves.getRotation(i), moves.getLocKey(i), moves.getMeepleOri(i),
+                        players, seat, evaluation);
+                scores[i] = evaluation.getScoreDelta(seat);
+                projections[i] = evaluation.getProjectedDelta(seat);
+            }
+        }
+    }
+
+    /**
+     * No. of legal placements.
+     * @return size
+     */
+    public int size() {
+        return placements.length;
+    }
+
+    /**
+     * Placement of a rank.
+     * @param rank 0 for the best placement
+     * @return (location, rotation)
+     */
+    public Placement getPlacement(int rank) {
+        return placements[rank];
+    }
+
+    /**
+     * Best meeple option of a rank.
+     * @param rank 0 for the best placement
+     * @return orientation of the meeple on the placed tile, or null for none
+     */
+    public Orientation getMeepleOri(int rank) {
+        return meepleOris[rank];
+    }
+
+    /**
+     * Points the current player scores at once with a rank.
+     * @param rank 0 for the best placement
+     * @return score delta
+     */
+    public int getScoreDelta(int rank) {
+        return scoreDeltas[rank];
+    }
+
+    /**
+     * Projected score delta of the current player with a rank.
+     * @param rank 0 for the best placement
+     * @return projected delta
+     */
+    public int getProjectedDelta(int rank) {
+        return projectedDeltas[rank];
+    }
+
+    /**
+     * Heat of one frontier cell: the best projected delta of any rotation there.
+     * @param loc a location
+     * @return projected delta, or null if the tile can't be placed there
+     */
+    public Integer getBestProjectedDelta(Location loc) {
+        return bestByLocation.get(loc);
+    }
+}
@@ -23,6 +23,18 @@ public class Player {
         }
     }
 
+    /**
+     * Copy constructor for a forked game: same name and score, and new meeples for the ones in hand.
+     * @param original the player of the parent game
+     */
+    Player(Player original) {
+        playerName = original.playerName;
+        score = original.score;
+        while (meeples.size() < original.meeples.size()) {
+            meeples.add(new Meeple(this));
+        }
+    }
+
     /**
      * Score getter.
      * @return score
@@ -0,0 +1,40 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The decision maker of a player in a headless game. Policies are shared by all the games of a simulation, so they
+ * must keep no state about any one game, and take all their randomness from the given generator. Thread-safe
+ * statistics over all the games, e.g. search counters, are fine.
+ * <p>A turn first asks {@link #chooseMove(Game, Random)}. A policy choosing the placement and the meeple together
+ * returns its move there; otherwise the turn asks for the placement, places the tile, then asks for the meeple.</p>
+ */
+public interface PlayerPolicy {
+    /**
+     * Choose where to place the current tile.
+     * @param game the game, with the current tile not placed yet
+     * @param legalPlacements all the legal placements of the current tile, never empty
+     * @param random random number generator of this game
+     * @return one of the legal placements
+     */
+    Placement choosePlacement(Game game, List<Placement> legalPlacements, Random random);
+
+    /**
+     * Choose the placement and the meeple of the current tile at once.
+     * @param game the game, with the current tile not placed yet and at least one legal placement
+     * @param random random number generator of this game
+     * @return a legal move, or null to be asked for the placement and then the meeple
+     */
+    default Move chooseMove(Game game, Random random) {
+        return null;
+    }
+
+    /**
+     * Choose where to put a meeple on the tile just placed.
+     * @param game the game, with the current tile placed
+     * @param random random number generator of this game
+     * @return the orientation on the current tile, or null to keep the meeple
+     */
+    Orientation chooseMeeple(Game game, Random random);
+}
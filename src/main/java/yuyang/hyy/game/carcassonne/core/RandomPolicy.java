@@ -0,0 +1,33 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A policy picking a uniformly random legal placement, and trying a random meeple spot now and then.
+ */
+public class RandomPolicy implements PlayerPolicy {
+    private static final Orientation[] ORIENTATIONS = Orientation.values();
+    private final double meepleProbability;
+
+    /**
+     * Constructor.
+     * @param meepleProbability the probability to try placing a meeple in each turn
+     */
+    public RandomPolicy(double meepleProbability) {
+        this.meepleProbability = meepleProbability;
+    }
+
+    @Override
+    public Placement choosePlacement(Game game, List<Placement> legalPlacements, Random random) {
+        return legalPlacements.get(random.nextInt(legalPlacements.size()));
+    }
+
+    @Override
+    public Orientation chooseMeeple(Game game, Random random) {
+        if (random.nextDouble() >= meepleProbability) {
+            return null;
+        }
+        return ORIENTATIONS[random.nextInt(ORIENTATIONS.length)];
+    }
+}
@@ -0,0 +1,199 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * A read-only, memory-mapped view of an archive of recorded games, written by a {@link ReplayArchiveWriter}.
+ * <pre>
+ *     archive: magic (4 bytes), version (4 bytes), then the records one after another
+ *     record:  length of the move log (4 bytes), no. of turns (2 bytes), no. of players (1 byte), flags (1 byte),
+ *              then the move log itself, see {@link MoveLog}
+ *     index:   a separate file of 8-byte offsets, one per record, in order
+ * </pre>
+ * The records are read in place from the mapped file, without copying: the fixed record header is enough to filter
+ * games, and only the games to look at are replayed. The archive is mapped in chunks of 1 GiB, each overlapping the
+ * next by the largest record, so a record is always inside one chunk and files larger than 2 GiB work.
+ * <p>An archive is a snapshot of the games indexed when it was opened. It can be read by any no. of threads, e.g.
+ * by splitting the game indexes between them.</p>
+ */
+public final class ReplayArchive {
+    static final int MAGIC = 0x43524141, VERSION = 1, FILE_HEADER_SIZE = 8, RECORD_HEADER_SIZE = 8,
+            MAX_RECORD_SIZE = 1 << 16, GAME_OVER = 1;
+    private static final int CHUNK_BITS = 30, TURNS_OFFSET = 4, PLAYERS_OFFSET = 6, FLAGS_OFFSET = 7,
+            UNSIGNED_SHORT = 0xFFFF;
+    private static final long CHUNK_SIZE = 1L << CHUNK_BITS, CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final String INDEX_SUFFIX = ".idx";
+    private final MappedByteBuffer[] chunks;
+    private final LongBuffer offsets;
+
+    private ReplayArchive(MappedByteBuffer[] chunks, LongBuffer offsets) {
+        this.chunks = chunks;
+        this.offsets = offsets;
+    }
+
+    /**
+     * The index file of an archive.
+     * @param archive the archive file
+     * @return the index file next to it
+     */
+    public static Path indexFile(Path archive) {
+        return archive.resolveSibling(archive.getFileName() + INDEX_SUFFIX);
+    }
+
+    /**
+     * Map an archive and its index.
+     * @param file the archive file
+     * @return the archive, with the games indexed so far
+     * @throws IOException if the files can't be mapped
+     */
+    public static ReplayArchive open(Path file) throws IOException {
+        try (FileChannel archive = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel index = FileChannel.open(indexFile(file), StandardOpenOption.READ)) {
+            // The index first: a writer writes the records before their index entries, so every record indexed by
+            // now is within the size read next.
+            long indexSize = index.size() / Long.BYTES * Long.BYTES;
+            LongBuffer offsets = index.map(FileChannel.MapMode.READ_ONLY, 0, indexSize).asLongBuffer();
+            long size = archive.size();
+            if (size < FILE_HEADER_SIZE) {
+                throw new IllegalArgumentException("Not a replay archive: " + file);
+            }
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size - 1) >>> CHUNK_BITS) + 1];
+            for (int i = 0; i < chunks.length; i++) {
+                long start = i * CHUNK_SIZE;
+                chunks[i] = archive.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(size - start, CHUNK_SIZE + MAX_RECORD_SIZE));
+            }
+            if (chunks[0].getInt(0) != MAGIC || chunks[0].getInt(Integer.BYTES) != VERSION) {
+                throw new IllegalArgumentException("Not a replay archive: " + file);
+            }
+            return new ReplayArchive(chunks, offsets);
+        }
+    }
+
+    /**
+     * No. of games.
+     * @return size of the archive
+     */
+    public int size() {
+        return offsets.limit();
+    }
+
+    /**
+     * Get one game.
+     * @param i game index
+     * @return a new view of the record
+     */
+    public Record get(int i) {
+        Record record = new Record();
+        record.moveTo(i);
+        return record;
+    }
+
+    /**
+     * Visit every game in order. The record given to the visitor is reused: it is only valid during the call.
+     * @param visitor the visitor
+     */
+    public void scan(Consumer<Record> visitor) {
+        scan(0, size(), visitor);
+    }
+
+    /**
+     * Visit a range of games in order, e.g. the share of one thread.
+     * @param from first game index
+     * @param to game index after the last one
+     * @param visitor the visitor, given a reused record
+     */
+    public void scan(int from, int to, Consumer<Record> visitor) {
+        Record record = new Record();
+        for (int i = from; i < to; i++) {
+            record.moveTo(i);
+            visitor.accept(record);
+        }
+    }
+
+    /**
+     * A view of one recorded game, read in place from the mapped archive.
+     */
+    public final class Record {
+        private int index;
+        private ByteBuffer chunk;
+        private int position;
+
+        private Record() {
+        }
+
+        private void moveTo(int i) {
+            long offset = offsets.get(i);
+            index = i;
+            chunk = chunks[(int) (offset >>> CHUNK_BITS)];
+            position = (int) (offset & CHUNK_MASK);
+        }
+
+        /**
+         * Index of this game in the archive.
+         * @return game index
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * No. of turns recorded.
+         * @return no. of turns
+         */
+        public int getNoOfTurns() {
+            return chunk.getShort(position + TURNS_OFFSET) & UNSIGNED_SHORT;
+        }
+
+        /**
+         * No. of players.
+         * @return no. of players
+         */
+        public int getNoOfPlayers() {
+            return chunk.get(position + PLAYERS_OFFSET);
+        }
+
+        /**
+         * Whether the game was played to the end.
+         * @return over or not
+         */
+        public boolean isGameOver() {
+            return (chunk.get(position + FLAGS_OFFSET) & GAME_OVER) != 0;
+        }
+
+        /**
+         * The move log of this game, without copying it.
+         * @return a read-only buffer over the log in the mapped file
+         */
+        public ByteBuffer getMoveLog() {
+            ByteBuffer log = chunk.duplicate();
+            int start = position + RECORD_HEADER_SIZE;
+            log.limit(start + chunk.getInt(position)).position(start);
+            return log.slice().asReadOnlyBuffer();
+        }
+
+        /**
+         * Rebuild the game after some turns. Its board is at {@link Game#getBoard()}.
+         * @param noOfTurns no. of turns to replay, at most {@link #getNoOfTurns()}
+         * @return the game after these turns
+         */
+        public Game replay(int noOfTurns) {
+            return MoveLogReader.replay(getMoveLog(), noOfTurns, Board.StorageMode.PACKED);
+        }
+
+        /**
+         * Rebuild the whole game.
+         * @return the game after the last recorded turn
+         */
+        public Game replay() {
+            return MoveLogReader.replay(getMoveLog(), Integer.MAX_VALUE, Board.StorageMode.PACKED);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends recorded games to a replay archive, see {@link ReplayArchive} for the format. Each game is a complete
+ * move log, e.g. written by a {@link MoveLogWriter} to memory. The records and the index are buffered, and the
+ * records are always written before the index entries pointing to them, so a reader never sees an entry of a missing
+ * record. Only one writer may append to an archive at a time.
+ */
+public final class ReplayArchiveWriter implements Closeable {
+    private static final int BUFFER_SIZE = 1 << 16, INDEX_BUFFER_SIZE = 1 << 12;
+    private final FileChannel archive, index;
+    private final ByteBuffer records = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final ByteBuffer offsets = ByteBuffer.allocateDirect(INDEX_BUFFER_SIZE);
+    // File offset of the next record, and no. of games, both including the buffered ones.
+    private long end;
+    private int noOfGames;
+
+    /**
+     * Open an archive to append to, and create it if needed.
+     * @param file the archive file; the index is next to it, see {@link ReplayArchive#indexFile(Path)}
+     * @throws IOException if the files can't be opened
+     */
+    public ReplayArchiveWriter(Path file) throws IOException {
+        archive = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            index = FileChannel.open(ReplayArchive.indexFile(file), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            archive.close();
+            throw e;
+        }
+        noOfGames = (int) (index.size() / Long.BYTES);
+        index.position((long) noOfGames * Long.BYTES);
+        if (noOfGames == 0) {
+            // A new archive, or one whose records were never indexed: start over.
+            archive.truncate(0);
+            records.putInt(ReplayArchive.MAGIC).putInt(ReplayArchive.VERSION);
+            end = 0;
+        } else {
+            // Drop a record left without its index entry.
+            long lastOffset = read(index, (long) (noOfGames - 1) * Long.BYTES, Long.BYTES).getLong(0);
+            int lastLength = read(archive, lastOffset, Integer.BYTES).getInt(0);
+            end = lastOffset + ReplayArchive.RECORD_HEADER_SIZE + lastLength;
+            archive.truncate(end);
+        }
+        archive.position(end);
+        end += records.position();
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer b = ByteBuffer.allocate(length);
+        while (b.hasRemaining()) {
+            if (channel.read(b, position + b.position()) < 0) {
+                throw new EOFException("The replay archive is shorter than its index!");
+            }
+        }
+        return b;
+    }
+
+    /**
+     * Append a recorded game.
+     * @param moveLog a whole move log, from its position to its limit; not changed
+     * @return index of the game in the archive
+     * @throws IOException if the buffers can't be written
+     */
+    public int append(ByteBuffer moveLog) throws IOException {
+        ByteBuffer log = moveLog.duplicate();
+        int length = log.remaining();
+        if (length > ReplayArchive.MAX_RECORD_SIZE - ReplayArchive.RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("The move log is too long for the archive: " + length + " bytes");
+        }
+        // Read the summary for the record header, which also checks the log.
+        ByteBuffer scan = log.duplicate();
+        int noOfPlayers = MoveLog.skipHeader(scan);
+        int noOfTurns = 0;
+        boolean gameOver = false;
+        while (scan.hasRemaining()) {
+            if (MoveLog.getVarint(scan) == MoveLog.END) {
+                gameOver = true;
+                break;
+            }
+            noOfTurns++;
+        }
+        if (records.remaining() < ReplayArchive.RECORD_HEADER_SIZE + length) {
+            flush();
+        }
+        records.putInt(length).putShort((short) noOfTurns).put((byte) noOfPlayers)
+                .put((byte) (gameOver ? ReplayArchive.GAME_OVER : 0)).put(log);
+        if (!offsets.hasRemaining()) {
+            flush();
+        }
+        offsets.putLong(end);
+        end += ReplayArchive.RECORD_HEADER_SIZE + length;
+        return noOfGames++;
+    }
+
+    /**
+     * Write the buffered games: the records first, then their index entries.
+     * @throws IOException if they can't be written
+     */
+    public void flush() throws IOException {
+        write(archive, records);
+        archive.force(false);
+        write(index, offsets);
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write the buffered games and close the files.
+     * @throws IOException if they can't be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            archive.close();
+            index.close();
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package yuyang.hyy.game.carcassonne.core;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -13,21 +12,30 @@ public class Road extends ContinuousFeature {
      * @param pointList the open end location/orientation pairs.
      */
     public Road(Tile firstTile, List<LocOriPair> pointList) {
-        List<Tile> tmpTileList = new ArrayList<>();
-        setUnfinishedPoints(new ArrayList<>(pointList));
-        setAllPoints(new ArrayList<>(pointList));
-        setType(Segment.ROAD);
-        tmpTileList.add(firstTile);
-        setTileList(tmpTileList);
+        super(Segment.ROAD, new FeatureForest(), firstTile, pointList);
+    }
+
+    /**
+     * Constructor of the road of an existing node.
+     * @param forest the forest of the node
+     * @param nodeId the node
+     */
+    Road(FeatureForest forest, int nodeId) {
+        super(Segment.ROAD, forest, nodeId);
+    }
+
+    @Override
+    Road forkTo(FeatureForest forest) {
+        return new Road(forest, getNodeId());
     }
 
     @Override
     public int getScore() {
-        return getTileList().size();
+        return getTileCount();
     }
 
     @Override
     public int getEndScore() {
-        return getTileList().size();
+        return getTileCount();
     }
 }
@@ -20,4 +20,22 @@ public enum Segment {
         }
         return equals(seg);
     }
+
+    /**
+     * The 2-bit code of this segment when it sits on a tile edge: 1 for field, 2 for road, 3 for city.
+     * Segments of the same type according to the rule share one code, and 0 is left free as a wildcard.
+     * @return edge code of this segment
+     */
+    int getEdgeCode() {
+        switch (this) {
+            case CITY:
+            case CITY_END:
+                return 3;
+            case ROAD:
+            case ROAD_END:
+                return 2;
+            default:
+                return 1;
+        }
+    }
 }
@@ -0,0 +1,83 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.IntSummaryStatistics;
+import java.util.List;
+
+/**
+ * Aggregated outcome of a batch of simulated games.
+ */
+public class SimulationResult {
+    private static final double NANOS_PER_SECOND = 1e9;
+    private final int noOfGames;
+    private final long elapsedNanos;
+    private final List<IntSummaryStatistics> scores;
+    private final int[] wins;
+
+    /**
+     * Constructor.
+     * @param noOfGames no. of games played
+     * @param elapsedNanos wall-clock time of the whole batch
+     * @param scores final score statistics of each seat
+     * @param wins no. of games won (ties included) by each seat
+     */
+    SimulationResult(int noOfGames, long elapsedNanos, List<IntSummaryStatistics> scores, int[] wins) {
+        this.noOfGames = noOfGames;
+        this.elapsedNanos = elapsedNanos;
+        this.scores = scores;
+        this.wins = wins.clone();
+    }
+
+    /**
+     * No. of games getter.
+     * @return no. of games played
+     */
+    public int getNoOfGames() {
+        return noOfGames;
+    }
+
+    /**
+     * Elapsed time getter.
+     * @return wall-clock time of the batch in nanoseconds
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Throughput of the batch.
+     * @return games per second
+     */
+    public double getGamesPerSecond() {
+        return noOfGames * NANOS_PER_SECOND / Math.max(1, elapsedNanos);
+    }
+
+    /**
+     * Final score statistics of one seat.
+     * @param seat index of the player in the turn order
+     * @return count, min, max, average and sum of the final scores
+     */
+    public IntSummaryStatistics getScoreStatistics(int seat) {
+        return scores.get(seat);
+    }
+
+    /**
+     * No. of wins of one seat. A tie counts as a win for every winner.
+     * @param seat index of the player in the turn order
+     * @return no. of wins
+     */
+    public int getWins(int seat) {
+        return wins[seat];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format("%d games in %.2f s, %.1f games/s%n",
+                noOfGames, elapsedNanos / NANOS_PER_SECOND, getGamesPerSecond()));
+        for (int seat = 0; seat < wins.length; seat++) {
+            IntSummaryStatistics stat = scores.get(seat);
+            sb.append(String.format("Seat %d  avg score %.2f, min %d, max %d, wins %d%n",
+                    seat, stat.getAverage(), stat.getMin(), stat.getMax(), wins[seat]));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,277 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Headless self-play: plays a batch of full games with the given player policies, spread over a thread pool.
+ * Every game owns its own Game, Board, Deck and players; only the tile catalogue and the policies are shared.
+ * The game with index i is seeded from (seed, i), so the results don't depend on the no. of threads. The games can
+ * also be recorded to a {@link ReplayArchive}, in the order of their index.
+ */
+public class Simulator {
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+    private static final double DEFAULT_MEEPLE_PROBABILITY = 0.3;
+    private final List<PlayerPolicy> policies;
+    private final TileCatalogue catalogue;
+    private final int noOfThreads;
+
+    /**
+     * Constructor.
+     * @param policies one policy per seat, in the turn order
+     * @param catalogue the tile set of every game
+     * @param noOfThreads no. of worker threads
+     */
+    public Simulator(List<PlayerPolicy> policies, TileCatalogue catalogue, int noOfThreads) {
+        if (policies.size() < 2 || policies.size() > 5) {
+            throw new IllegalArgumentException("A game needs 2 to 5 players!");
+        }
+        this.policies = List.copyOf(policies);
+        this.catalogue = catalogue;
+        this.noOfThreads = noOfThreads;
+    }
+
+    /**
+     * Play a batch of games.
+     * @param noOfGames no. of games to play
+     * @param seed seed of the whole batch
+     * @return aggregated result
+     */
+    public SimulationResult run(int noOfGames, long seed) {
+        return run(noOfGames, seed, null);
+    }
+
+    /**
+     * Play a batch of games, and append them to an archive.
+     * @param noOfGames no. of games to play
+     * @param seed seed of the whole batch
+     * @param archive where the games are appended in the order of their index, whatever thread plays them; or null
+     *                not to record them. Flushing and closing it is left to the caller.
+     * @return aggregated result
+     */
+    public SimulationResult run(int noOfGames, long seed, ReplayArchiveWriter archive) {
+        ArchiveAppender appender = archive == null ? null : new ArchiveAppender(archive);
+        int[][] finalScores = new int[noOfGames][];
+        AtomicInteger nextGame = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(noOfThreads);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < noOfThreads; t++) {
+                workers.add(pool.submit(() -> {
+                    int i = nextGame.getAndIncrement();
+                    while (i < noOfGames) {
+                        if (appender == null) {
+                            finalScores[i] = playGame(seed + i * GOLDEN);
+                        } else {
+                            ByteArrayOutputStream log = new ByteArrayOutputStream();
+                            finalScores[i] = playGame(seed + i * GOLDEN, log);
+                            appender.append(i, ByteBuffer.wrap(log.toByteArray()));
+                        }
+                        i = nextGame.getAndIncrement();
+                    }
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation interrupted!", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("A simulated game failed!", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        return aggregate(finalScores, elapsed);
+    }
+
+    private SimulationResult aggregate(int[][] finalScores, long elapsed) {
+        List<IntSummaryStatistics> stats = new ArrayList<>();
+        for (int seat = 0; seat < policies.size(); seat++) {
+            stats.add(new IntSummaryStatistics());
+        }
+        int[] wins = new int[policies.size()];
+        for (int[] scores : finalScores) {
+            int best = Integer.MIN_VALUE;
+            for (int seat = 0; seat < scores.length; seat++) {
+                stats.get(seat).accept(scores[seat]);
+                best = Math.max(best, scores[seat]);
+            }
+            for (int seat = 0; seat < scores.length; seat++) {
+                if (scores[seat] == best) {
+                    wins[seat]++;
+                }
+            }
+        }
+        return new SimulationResult(finalScores.length, elapsed, Collections.unmodifiableList(stats), wins);
+    }
+
+    /**
+     * Play one full game.
+     * @param gameSeed seed of this game, for the deck and the policies
+     * @return final score of each seat
+     */
+    int[] playGame(long gameSeed) {
+        return playGame(gameSeed, null);
+    }
+
+    /**
+     * Play one full game, and record it.
+     * @param gameSeed seed of this game, for the deck and the policies
+     * @param log where the move log of the game is written, or null
+     * @return final score of each seat
+     */
+    int[] playGame(long gameSeed, ByteArrayOutputStream log) {
+        Random random = new Random(gameSeed);
+        List<Player> players = new ArrayList<>();
+        for (int seat = 0; seat < policies.size(); seat++) {
+            players.add(new Player("Player " + seat));
+        }
+        Game game = new Game(players, catalogue, gameSeed, Board.StorageMode.PACKED);
+        MoveLogWriter writer = null;
+        try {
+            if (log != null) {
+                writer = new MoveLogWriter(game, Channels.newChannel(log));
+                game.addTurnDeltaListener(writer);
+            }
+            game.gameStart();
+            while (game.isRunning()) {
+                playTurn(game, policies.get(game.getCurrPlayerIndex()), random);
+            }
+            if (writer != null) {
+                writer.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error when recording a simulated game", e);
+        }
+        int[] scores = new int[players.size()];
+        for (int seat = 0; seat < scores.length; seat++) {
+            scores[seat] = players.get(seat).getScore();
+        }
+        return scores;
+    }
+
+    /**
+     * Play one turn through the same calls as the GUI: rotate, place the tile, maybe place a meeple, next turn.
+     * The policy's whole move is played if it chooses one, otherwise it's asked for the placement and the meeple.
+     * @param game the game
+     * @param policy the policy of the current player
+     * @param random random number generator of this game
+     */
+    static void playTurn(Game game, PlayerPolicy policy, Random random) {
+        if (!game.hasLegalPlacement()) {
+            game.endGameWithoutPlacement();
+            return;
+        }
+        Move move = policy.chooseMove(game, random);
+        if (move != null) {
+            playMove(game, move);
+            return;
+        }
+        Placement placement = policy.choosePlacement(game, game.getLegalPlacements(), random);
+        while (game.getRotationTimes() != placement.getRotation()) {
+            game.rotateCurrTileClockwise();
+        }
+        game.placeTile(game.getCurrTile(), placement.getLoc());
+        if (game.getCurrPlayer().hasMeeple()) {
+            Orientation ori = policy.chooseMeeple(game, random);
+            if (ori != null) {
+                game.placeMeeple(ori);
+            }
+        }
+        game.nextTurn();
+    }
+
+    /**
+     * Play a move through the same calls as the GUI, and go to the next turn.
+     * @param game the game
+     * @param move a legal move of the current tile, e.g. of {@link Game#getLegalMoves(MoveBuffer)}
+     */
+    static void playMove(Game game, Move move) {
+        Placement placement = move.getPlacement();
+        while (game.getRotationTimes() != placement.getRotation()) {
+            game.rotateCurrTileClockwise();
+        }
+        game.placeTile(game.getCurrTile(), placement.getLoc());
+        if (move.getMeepleOri() != null) {
+            game.placeMeeple(move.getMeepleOri());
+        }
+        game.nextTurn();
+    }
+
+    /**
+     * Run a batch of random games from the command line.
+     * @param args no. of games, no. of threads, no. of players, seed, the time budget per move in milliseconds
+     *             of an MCTS bot in the first seat (0 for none), and a replay archive to append the games to, all
+     *             optional
+     * @throws IOException if the archive can't be written
+     */
+    public static void main(String[] args) throws IOException {
+        int noOfGames = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : cores;
+        int noOfPlayers = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 0L;
+        long mctsMillis = args.length > 4 ? Long.parseLong(args[4]) : 0L;
+        List<PlayerPolicy> policies = new ArrayList<>();
+        MctsPolicy bot = mctsMillis > 0 ? new MctsPolicy(Math.max(1, cores / threads), mctsMillis) : null;
+        for (int i = 0; i < noOfPlayers; i++) {
+            policies.add(i == 0 && bot != null ? bot : new RandomPolicy(DEFAULT_MEEPLE_PROBABILITY));
+        }
+        Simulator simulator = new Simulator(policies, TileCatalogue.getDefault(), threads);
+        if (args.length > 5) {
+            try (ReplayArchiveWriter archive = new ReplayArchiveWriter(Paths.get(args[5]))) {
+                System.out.print(simulator.run(noOfGames, seed, archive));
+            }
+        } else {
+            System.out.print(simulator.run(noOfGames, seed));
+        }
+        if (bot != null) {
+            System.out.printf("MCTS rollouts: %d, %.0f per second%n", bot.getNoOfRollouts(), bot.getRolloutsPerSecond());
+        }
+    }
+
+    /**
+     * Appends the games of a batch to an archive in the order of their index. A worker finishing a game ahead of
+     * its turn leaves it here; as the workers take the games in order, only a few games per thread wait.
+     */
+    private static final class ArchiveAppender {
+        private final ReplayArchiveWriter archive;
+        private final Map<Integer, ByteBuffer> waiting = new HashMap<>();
+        private int next;
+
+        ArchiveAppender(ReplayArchiveWriter archive) {
+            this.archive = archive;
+        }
+
+        synchronized void append(int i, ByteBuffer log) {
+            waiting.put(i, log);
+            try {
+                for (ByteBuffer nextLog = waiting.remove(next); nextLog != null; nextLog = waiting.remove(next)) {
+                    archive.append(nextLog);
+                    next++;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error when archiving a simulated game", e);
+            }
+        }
+    }
+}
@@ -4,14 +4,10 @@ package yuyang.hyy.game.carcassonne.core;
  * The tile class.
  */
 public class Tile {
-    private Segment centerSeg;
-    private Segment[] edgeSegmentsOri, edgeSegmentsAftRot;
-    private int antiClockwiseRotationTimes;
+    private final TileType type;
+    private int rotation;
     private static final int FOUR = 4;
     private Location loc;
-    private final boolean isShield;
-    // Image index
-    private int index;
 
     /**
      * Constructor without index.
@@ -23,10 +19,7 @@ public class Tile {
      * @param isShield1 whether the tile contains a coat-of-arm
      */
     Tile(Segment top, Segment right, Segment down, Segment left, Segment center, boolean isShield1) {
-        this.isShield = isShield1;
-        edgeSegmentsOri = new Segment[] {top, right, down, left};
-        edgeSegmentsAftRot = edgeSegmentsOri.clone();
-        centerSeg = center;
+        this(0, top, right, down, left, center, isShield1);
     }
 
     /**
@@ -40,11 +33,25 @@ public class Tile {
      * @param isShield1 whether the tile contains a coat-of-arm
      */
     Tile(int index, Segment top, Segment right, Segment down, Segment left, Segment center, boolean isShield1) {
-        this.isShield = isShield1;
-        edgeSegmentsOri = new Segment[] {top, right, down, left};
-        edgeSegmentsAftRot = edgeSegmentsOri.clone();
-        centerSeg = center;
-        this.index = index;
+        this(new TileType(index, top, right, down, left, center, isShield1));
+    }
+
+    /**
+     * Constructor of a new, unrotated tile of a shared tile type.
+     * @param type the tile type
+     */
+    Tile(TileType type) {
+        this.type = type;
+    }
+
+    /**
+     * Copy constructor, keeping the rotation and the location.
+     * @param original the tile to copy
+     */
+    Tile(Tile original) {
+        type = original.type;
+        rotation = original.rotation;
+        loc = original.loc;
     }
 
     /**
@@ -54,7 +61,7 @@ public class Tile {
      */
     public Segment getEdgeSeg(Orientation o) {
         assert !o.equals(Orientation.CENTER) : "Center is not the edge segment!";
-        return edgeSegmentsAftRot[o.ordinal()];
+        return type.getEdgeSeg(rotation, o);
     }
 
     /**
@@ -62,7 +69,7 @@ public class Tile {
      * @return center segment
      */
     public Segment getCenterSeg() {
-        return centerSeg;
+        return type.getCenterSeg();
     }
 
     /**
@@ -70,30 +77,38 @@ public class Tile {
      * @return the index of this tile.
      */
     public int getIndex() {
-        return index - 1;
+        return type.getIndex();
+    }
+
+    /**
+     * Tile type getter.
+     * @return the shared type of this tile
+     */
+    public TileType getType() {
+        return type;
     }
 
     /**
      * Rotate this tile clockwise.
      */
     public void rotateClockwise() {
-        antiClockwiseRotationTimes = (antiClockwiseRotationTimes - 1 + FOUR) % FOUR;
-        updateRotation();
+        rotation = (rotation + 1) % FOUR;
     }
 
     /**
      * Rotate this tile anticlockwise.
      */
     public void rotateAntiClockwise() {
-        antiClockwiseRotationTimes = (antiClockwiseRotationTimes + 1) % FOUR;
-        updateRotation();
+        rotation = (rotation + FOUR - 1) % FOUR;
     }
 
-    private void updateRotation() {
-        edgeSegmentsAftRot = new Segment[FOUR];
-        for (int i = 0; i < 4; i++) {
-            edgeSegmentsAftRot[i] = edgeSegmentsOri[(i + antiClockwiseRotationTimes) % FOUR];
-        }
+    /**
+     * Pack the 4 edges (after rotation) into one word, 2 bits per edge in TOP, RIGHT, DOWN, LEFT order,
+     * using {@link Segment#getEdgeCode()}. Used by the frontier index of the board.
+     * @return the edge word of this tile
+     */
+    int getEdgeWord() {
+        return type.getEdgeWord(rotation);
     }
 
     /**
@@ -101,7 +116,7 @@ public class Tile {
      * @return rotation times.
      */
     public int getRotationNo() {
-        return (FOUR - antiClockwiseRotationTimes + FOUR) % FOUR;
+        return rotation;
     }
 
     /**
@@ -125,7 +140,7 @@ public class Tile {
      * @return whether this tile contains a coat-of-arm.
      */
     public boolean isShield() {
-        return isShield;
+        return type.isShield();
     }
 
     /**
@@ -134,25 +149,25 @@ public class Tile {
      * @return is same or not
      */
     boolean isSameTypeOfTile(Tile t) {
-        return centerSeg.equals(t.centerSeg) && getEdgeSeg(Orientation.TOP).equals(t.getEdgeSeg(Orientation.TOP)) &&
+        return getCenterSeg().equals(t.getCenterSeg()) && getEdgeSeg(Orientation.TOP).equals(t.getEdgeSeg(Orientation.TOP)) &&
                 getEdgeSeg(Orientation.RIGHT).equals(t.getEdgeSeg(Orientation.RIGHT)) &&
                 getEdgeSeg(Orientation.DOWN).equals(t.getEdgeSeg(Orientation.DOWN)) &&
-                getEdgeSeg(Orientation.LEFT).equals(t.getEdgeSeg(Orientation.LEFT)) && isShield == t.isShield;
+                getEdgeSeg(Orientation.LEFT).equals(t.getEdgeSeg(Orientation.LEFT)) && isShield() == t.isShield();
 
     }
 
     @Override
     public String toString() {
         String coat;
-        if (isShield) {
+        if (isShield()) {
             coat = "has coat-of-arm";
         } else {
             coat = "no coat-of-arm";
         }
 
         return String.format("Top: %s, Right: %s, Down: %s, Left: %s, Center: %s, %s",
-                edgeSegmentsAftRot[0], edgeSegmentsAftRot[1],
-                edgeSegmentsAftRot[2], edgeSegmentsAftRot[3], centerSeg, coat);
+                getEdgeSeg(Orientation.TOP), getEdgeSeg(Orientation.RIGHT),
+                getEdgeSeg(Orientation.DOWN), getEdgeSeg(Orientation.LEFT), getCenterSeg(), coat);
     }
 
 }
@@ -0,0 +1,153 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An immutable, parsed tile set: the tile types in the json order, with the quantity of each.
+ * Each json file is parsed only once and the catalogue is shared by all the games, on any thread. A new deck only
+ * copies the int array of type ids, and every tile of a type shares the same {@link TileType}.
+ */
+public final class TileCatalogue {
+    /** The tile set of a real game, as a file of the source tree. */
+    static final String DEFAULT_FILE = "src/main/resources/tiles.json";
+    /** The tile set of a real game, as a classpath resource. */
+    static final String DEFAULT_RESOURCE = "/tiles.json";
+    /** System property to load the default tile set from another file. */
+    static final String PATH_PROPERTY = "carcassonne.tiles";
+    private static final Map<String, TileCatalogue> CACHE = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final List<TileType> types;
+    private final int[] quantities;
+    // Type ids of all the tiles, each repeated by its quantity, in the json order.
+    private final int[] deckTemplate;
+
+    private TileCatalogue(String name, Reader reader) {
+        this.name = name;
+        JSONReader.TileInJson[] tileList = JSONReader.read(reader).getTileList();
+        List<TileType> typeList = new ArrayList<>();
+        quantities = new int[tileList.length];
+        int noOfTiles = 0;
+        for (int id = 0; id < tileList.length; id++) {
+            typeList.add(tileList[id].toType(id));
+            quantities[id] = tileList[id].getQuantity();
+            noOfTiles += quantities[id];
+        }
+        types = Collections.unmodifiableList(typeList);
+        deckTemplate = new int[noOfTiles];
+        int pos = 0;
+        for (int id = 0; id < quantities.length; id++) {
+            for (int i = 0; i < quantities[id]; i++) {
+                deckTemplate[pos++] = id;
+            }
+        }
+    }
+
+    /**
+     * Get the catalogue of a json file, parsing it on the first call only.
+     * @param fileName name of json file
+     * @return the shared catalogue
+     */
+    public static TileCatalogue load(String fileName) {
+        return CACHE.computeIfAbsent("file:" + fileName, key -> {
+            try (Reader reader = Files.newBufferedReader(Path.of(fileName), StandardCharsets.UTF_8)) {
+                return new TileCatalogue(fileName, reader);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Error when reading file: " + fileName, e);
+            }
+        });
+    }
+
+    /**
+     * Get the catalogue of a json classpath resource, parsing it on the first call only.
+     * @param resourceName absolute resource name, such as "/tiles.json"
+     * @return the shared catalogue
+     */
+    public static TileCatalogue loadResource(String resourceName) {
+        return CACHE.computeIfAbsent("resource:" + resourceName, key -> {
+            InputStream in = TileCatalogue.class.getResourceAsStream(resourceName);
+            if (in == null) {
+                throw new IllegalArgumentException("No such resource: " + resourceName);
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                return new TileCatalogue(resourceName, reader);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Error when reading resource: " + resourceName, e);
+            }
+        });
+    }
+
+    /**
+     * Get the catalogue of the real game: the file in the system property {@value #PATH_PROPERTY} if it's set,
+     * else the classpath resource, else the file of the source tree.
+     * @return the shared default catalogue
+     */
+    public static TileCatalogue getDefault() {
+        String path = System.getProperty(PATH_PROPERTY);
+        if (path != null) {
+            return load(path);
+        }
+        if (TileCatalogue.class.getResource(DEFAULT_RESOURCE) != null) {
+            return loadResource(DEFAULT_RESOURCE);
+        }
+        return load(DEFAULT_FILE);
+    }
+
+    /**
+     * Type ids of all the tiles, each repeated by its quantity, in the json order.
+     * @return a new copy of the array
+     */
+    int[] newDeckTemplate() {
+        return deckTemplate.clone();
+    }
+
+    /**
+     * All the tile types, numbered by {@link TileType#getId()}.
+     * @return read-only list of tile types
+     */
+    public List<TileType> getTypes() {
+        return types;
+    }
+
+    /**
+     * Get a tile type.
+     * @param id type id
+     * @return the tile type
+     */
+    public TileType getType(int id) {
+        return types.get(id);
+    }
+
+    /**
+     * No. of tiles of a type in a full deck.
+     * @param id type id
+     * @return quantity
+     */
+    public int getQuantity(int id) {
+        return quantities[id];
+    }
+
+    /**
+     * No. of tiles in this catalogue, counting the quantities.
+     * @return no. of tiles
+     */
+    public int size() {
+        return deckTemplate.length;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
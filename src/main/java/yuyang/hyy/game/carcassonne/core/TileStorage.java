@@ -0,0 +1,67 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.Map;
+
+/**
+ * Storage of the placed tiles of a board, addressed by packed locations (see {@link Location#pack()}).
+ */
+interface TileStorage {
+    /**
+     * Whether a tile has been placed on a location.
+     * @param key packed location
+     * @return occupied or not
+     */
+    boolean contains(long key);
+
+    /**
+     * Get the tile on a location.
+     * @param key packed location
+     * @return the tile, or null if empty
+     */
+    Tile get(long key);
+
+    /**
+     * Get one edge segment of the tile on a location, without creating any tile.
+     * @param key packed location, must be occupied
+     * @param side side of the tile
+     * @return the segment after rotation
+     */
+    Segment getEdgeSeg(long key, Orientation side);
+
+    /**
+     * Put a tile on a location.
+     * @param key packed location
+     * @param tile the tile, with its final rotation
+     */
+    void put(long key, Tile tile);
+
+    /**
+     * Remove the tile of a location, to undo a placement.
+     * @param key packed location
+     */
+    void remove(long key);
+
+    /**
+     * Copy this storage for a forked board. The tile objects are shared, since a placed tile doesn't change.
+     * @return an independent copy
+     */
+    TileStorage fork();
+
+    /**
+     * No. of placed tiles.
+     * @return size
+     */
+    int size();
+
+    /**
+     * Whether no tile has been placed.
+     * @return is empty or not
+     */
+    boolean isEmpty();
+
+    /**
+     * A map view of the whole storage.
+     * @return map from location to tile
+     */
+    Map<Location, Tile> asMap();
+}
@@ -0,0 +1,135 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.Arrays;
+
+/**
+ * An immutable tile type (flyweight): the segments of one kind of tile, with the edges of all 4 clockwise
+ * rotations computed once. All the tiles of one kind share a type and only keep their own rotation and location,
+ * so rotating a tile or checking a (type, rotation) placement never allocates.
+ */
+public final class TileType {
+    private static final int FOUR = 4;
+    private final int id;
+    private final int index;
+    private final Segment centerSeg;
+    private final boolean isShield;
+    // edges[r][side]: segment on the side after r clockwise rotations.
+    private final Segment[][] edges = new Segment[FOUR][FOUR];
+    // edgeWords[r]: edge word after r clockwise rotations, see Tile#getEdgeWord().
+    private final int[] edgeWords = new int[FOUR];
+    // repeatedRotations[r]: whether r rotations give the same edges as fewer rotations.
+    private final boolean[] repeatedRotations = new boolean[FOUR];
+
+    /**
+     * Constructor of a type outside any catalogue.
+     * @param index image index of the tile, 1-based as in the json file
+     * @param top segment on the top
+     * @param right segment on the right
+     * @param down segment on the bottom
+     * @param left segment on the left
+     * @param center segment in the center
+     * @param isShield1 whether the tile contains a coat-of-arm
+     */
+    TileType(int index, Segment top, Segment right, Segment down, Segment left, Segment center, boolean isShield1) {
+        this(-1, index, top, right, down, left, center, isShield1);
+    }
+
+    /**
+     * Constructor.
+     * @param id position of this type in its catalogue, or -1
+     * @param index image index of the tile, 1-based as in the json file
+     * @param top segment on the top
+     * @param right segment on the right
+     * @param down segment on the bottom
+     * @param left segment on the left
+     * @param center segment in the center
+     * @param isShield1 whether the tile contains a coat-of-arm
+     */
+    TileType(int id, int index, Segment top, Segment right, Segment down, Segment left, Segment center,
+             boolean isShield1) {
+        this.id = id;
+        this.index = index;
+        this.centerSeg = center;
+        this.isShield = isShield1;
+        Segment[] original = new Segment[] {top, right, down, left};
+        for (int r = 0; r < FOUR; r++) {
+            for (int side = 0; side < FOUR; side++) {
+                // After r clockwise rotations, the segment on this side came from r sides anticlockwise of it.
+                edges[r][side] = original[(side - r + FOUR) % FOUR];
+                edgeWords[r] |= edges[r][side].getEdgeCode() << (2 * side);
+            }
+            for (int fewer = 0; fewer < r; fewer++) {
+                repeatedRotations[r] |= Arrays.equals(edges[r], edges[fewer]);
+            }
+        }
+    }
+
+    /**
+     * Get the segment on an edge.
+     * @param rotation no. of clockwise rotations
+     * @param o orientation of the edge
+     * @return segment
+     */
+    public Segment getEdgeSeg(int rotation, Orientation o) {
+        assert !o.equals(Orientation.CENTER) : "Center is not the edge segment!";
+        return edges[rotation][o.ordinal()];
+    }
+
+    /**
+     * Get the edge word, as in {@link Tile#getEdgeWord()}.
+     * @param rotation no. of clockwise rotations
+     * @return the edge word
+     */
+    int getEdgeWord(int rotation) {
+        return edgeWords[rotation];
+    }
+
+    /**
+     * Whether the tile looks the same after fewer rotations, e.g. any rotation of a crossroads. Placing it with this
+     * rotation adds no new move.
+     * @param rotation no. of clockwise rotations
+     * @return repeated or not
+     */
+    boolean isRepeatedRotation(int rotation) {
+        return repeatedRotations[rotation];
+    }
+
+    /**
+     * Id getter. Tile types of one catalogue are numbered from 0 in the json order, so the id can index arrays.
+     * @return position of this type in its catalogue, or -1 if it isn't in any catalogue
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Center segment getter.
+     * @return center segment
+     */
+    public Segment getCenterSeg() {
+        return centerSeg;
+    }
+
+    /**
+     * Index getter. "-1" to transfer to 0-based indexing.
+     * @return the index of this tile type.
+     */
+    public int getIndex() {
+        return index - 1;
+    }
+
+    /**
+     * Boolean getter.
+     * @return whether this tile type contains a coat-of-arm.
+     */
+    public boolean isShield() {
+        return isShield;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Top: %s, Right: %s, Down: %s, Left: %s, Center: %s, %s",
+                edges[0][0], edges[0][1], edges[0][2], edges[0][3], centerSeg,
+                isShield ? "has coat-of-arm" : "no coat-of-arm");
+    }
+}
@@ -0,0 +1,439 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Everything one phase of a turn changed in a game, delivered in one batch: the placed tile and meeple, the meeples
+ * returned, the score changes and the scored features. Immutable, so it can be handed to any thread. The players,
+ * meeples and tile in it are the game's own objects, to be used as keys: read their state from a snapshot instead.
+ * <p>The old fine-grained callbacks can be derived from a delta with
+ * {@link #replay(List, List)}, which reports every changed player once.</p>
+ */
+public final class TurnDelta {
+    /**
+     * The game action that ended a phase.
+     */
+    public enum Phase {
+        /** The game started. */
+        START,
+        /** The current tile was rotated. */
+        ROTATION,
+        /** A tile placement was tried. */
+        TILE_PLACEMENT,
+        /** A meeple placement was tried. */
+        MEEPLE_PLACEMENT,
+        /** The turn was scored and the next one started, or the game ended. */
+        TURN_END
+    }
+
+    private final Phase phase;
+    private final int noOfTurns;
+    private final List<Player> players;
+    private final Tile placedTile;
+    private final Meeple placedMeeple;
+    private final Orientation meepleOri;
+    private final List<Meeple> returnedMeeples;
+    private final int[] scoreDeltas;
+    private final boolean[] changedPlayers;
+    private final List<ScoredFeature> scoredFeatures;
+    private final boolean currTileChanged, nextTurn;
+    private final List<Player> winners;
+    private final List<String> errors;
+
+    private TurnDelta(Phase phase, int noOfTurns, Recorder r) {
+        this.phase = phase;
+        this.noOfTurns = noOfTurns;
+        players = r.players;
+        placedTile = r.placedTile;
+        placedMeeple = r.placedMeeple;
+        meepleOri = r.meepleOri;
+        returnedMeeples = List.copyOf(r.returnedMeeples);
+        scoreDeltas = r.scoreDeltas.clone();
+        changedPlayers = r.changedPlayers.clone();
+        scoredFeatures = List.copyOf(r.scoredFeatures);
+        currTileChanged = r.currTileChanged;
+        nextTurn = r.nextTurn;
+        winners = r.winners == null ? null : List.copyOf(r.winners);
+        errors = List.copyOf(r.errors);
+    }
+
+    /**
+     * The action that ended this phase.
+     * @return phase
+     */
+    public Phase getPhase() {
+        return phase;
+    }
+
+    /**
+     * Turn no. at the end of this phase, from 1.
+     * @return no. of turns
+     */
+    public int getNoOfTurns() {
+        return noOfTurns;
+    }
+
+    /**
+     * The players, in seat order.
+     * @return unmodifiable list
+     */
+    public List<Player> getPlayers() {
+        return players;
+    }
+
+    /**
+     * The tile placed in this phase.
+     * @return the placed tile with its location, or null
+     */
+    public Tile getPlacedTile() {
+        return placedTile;
+    }
+
+    /**
+     * The meeple placed in this phase.
+     * @return the meeple, or null
+     */
+    public Meeple getPlacedMeeple() {
+        return placedMeeple;
+    }
+
+    /**
+     * Where the meeple was placed on the placed tile.
+     * @return orientation, or null if no meeple was placed
+     */
+    public Orientation getMeepleOri() {
+        return meepleOri;
+    }
+
+    /**
+     * The meeples returned to their owners when their features were scored.
+     * @return unmodifiable list
+     */
+    public List<Meeple> getReturnedMeeples() {
+        return returnedMeeples;
+    }
+
+    /**
+     * Points a player scored in this phase.
+     * @param seat player index
+     * @return score change
+     */
+    public int getScoreDelta(int seat) {
+        return scoreDeltas[seat];
+    }
+
+    /**
+     * Whether the score or the meeples in hand of a player changed in this phase.
+     * @param seat player index
+     * @return changed or not
+     */
+    public boolean isPlayerChanged(int seat) {
+        return changedPlayers[seat];
+    }
+
+    /**
+     * The features scored in this phase, in scoring order.
+     * @return unmodifiable list
+     */
+    public List<ScoredFeature> getScoredFeatures() {
+        return scoredFeatures;
+    }
+
+    /**
+     * Whether the current tile changed without a new turn, i.e. it was rotated.
+     * @return changed or not
+     */
+    public boolean isCurrTileChanged() {
+        return currTileChanged;
+    }
+
+    /**
+     * Whether a new turn started.
+     * @return new turn or not
+     */
+    public boolean isNextTurn() {
+        return nextTurn;
+    }
+
+    /**
+     * Whether the game ended in this phase.
+     * @return game over or not
+     */
+    public boolean isGameOver() {
+        return winners != null;
+    }
+
+    /**
+     * The winners, if the game ended in this phase.
+     * @return unmodifiable list, or null
+     */
+    public List<Player> getWinners() {
+        return winners;
+    }
+
+    /**
+     * The illegal actions reported in this phase.
+     * @return unmodifiable list of error messages
+     */
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    /**
+     * Whether this phase changed or reported nothing.
+     * @return empty or not
+     */
+    public boolean isEmpty() {
+        return placedTile == null && placedMeeple == null && returnedMeeples.isEmpty() && scoredFeatures.isEmpty()
+                && !currTileChanged && !nextTurn && winners == null && errors.isEmpty() && !anyPlayerChanged();
+    }
+
+    private boolean anyPlayerChanged() {
+        for (boolean changed : changedPlayers) {
+            if (changed) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Derive the fine-grained callbacks of this phase: errors, tile placement, meeple placement, returned meeples,
+     * one status update per changed player, then the next tile, the next turn and the game over.
+     * @param boardListeners board listeners
+     * @param statusListeners player status listeners
+     */
+    public void replay(List<? extends GameBoardChangeListener> boardListeners,
+                       List<? extends PlayerStatusChangeListener> statusListeners) {
+        for (GameBoardChangeListener l : boardListeners) {
+            for (String error : errors) {
+                l.showError(error);
+            }
+            if (placedTile != null) {
+                l.handleTilePlacement(placedTile, placedTile.getLoc());
+            }
+            if (placedMeeple != null) {
+                l.handleMeeplePlacement(placedMeeple, meepleOri);
+            }
+            for (Meeple m : returnedMeeples) {
+                l.clearMeeple(m);
+            }
+        }
+        for (PlayerStatusChangeListener l : statusListeners) {
+            for (int seat = 0; seat < players.size(); seat++) {
+                if (changedPlayers[seat]) {
+                    l.scoreMeepleUpdated(players.get(seat));
+                }
+            }
+        }
+        for (GameBoardChangeListener l : boardListeners) {
+            if (currTileChanged) {
+                l.updateNextTileImage();
+            }
+            if (nextTurn) {
+                l.updateNextTurn();
+            }
+        }
+        if (nextTurn) {
+            for (PlayerStatusChangeListener l : statusListeners) {
+                l.updateCurrPlayer();
+            }
+        }
+        if (winners != null) {
+            for (GameBoardChangeListener l : boardListeners) {
+                l.gameOver(winners);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Turn %d %s: tile %s, meeple %s %s, returned %s, scores %s, features %s%s%s",
+                noOfTurns, phase, placedTile == null ? null : placedTile.getLoc(), placedMeeple, meepleOri,
+                returnedMeeples, Arrays.toString(scoreDeltas), scoredFeatures,
+                winners == null ? "" : ", winners " + winners, errors.isEmpty() ? "" : ", errors " + errors);
+    }
+
+    /**
+     * A feature scored in a phase.
+     */
+    public static final class ScoredFeature {
+        private final Segment type;
+        private final int score;
+        private final List<Player> scorers;
+        private final boolean complete;
+
+        ScoredFeature(Segment type, int score, List<Player> scorers, boolean complete) {
+            this.type = type;
+            this.score = score;
+            this.scorers = List.copyOf(scorers);
+            this.complete = complete;
+        }
+
+        /**
+         * Feature type.
+         * @return CITY, ROAD or MONASTERY
+         */
+        public Segment getType() {
+            return type;
+        }
+
+        /**
+         * Points given to each scorer.
+         * @return score
+         */
+        public int getScore() {
+            return score;
+        }
+
+        /**
+         * The players who scored the feature.
+         * @return unmodifiable list
+         */
+        public List<Player> getScorers() {
+            return scorers;
+        }
+
+        /**
+         * Whether the feature was completed, rather than scored incomplete at the end of the game.
+         * @return complete or not
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s%s %d for %s", complete ? "" : "incomplete ", type, score, scorers);
+        }
+    }
+
+    /**
+     * Collects the changes of the running phase, on the thread playing the game. Reused from phase to phase.
+     */
+    static final class Recorder {
+        private final List<Player> players;
+        private Tile placedTile;
+        private Meeple placedMeeple;
+        private Orientation meepleOri;
+        private final List<Meeple> returnedMeeples = new ArrayList<>();
+        private final int[] scoreDeltas;
+        private final boolean[] changedPlayers;
+        private final List<ScoredFeature> scoredFeatures = new ArrayList<>();
+        private boolean currTileChanged, nextTurn;
+        private List<Player> winners;
+        private final List<String> errors = new ArrayList<>();
+
+        /**
+         * Constructor.
+         * @param playerList the players of the game, in seat order
+         */
+        Recorder(List<Player> playerList) {
+            players = List.copyOf(playerList);
+            scoreDeltas = new int[players.size()];
+            changedPlayers = new boolean[players.size()];
+        }
+
+        /**
+         * Record the tile placement.
+         * @param t the placed tile
+         */
+        void tilePlaced(Tile t) {
+            placedTile = t;
+        }
+
+        /**
+         * Record the meeple placement.
+         * @param m the placed meeple
+         * @param ori orientation on the placed tile
+         */
+        void meeplePlaced(Meeple m, Orientation ori) {
+            placedMeeple = m;
+            meepleOri = ori;
+            playerChanged(m.getOwner());
+        }
+
+        /**
+         * Record a meeple going back to its owner.
+         * @param m the returned meeple
+         */
+        void meepleReturned(Meeple m) {
+            returnedMeeples.add(m);
+            playerChanged(m.getOwner());
+        }
+
+        /**
+         * Record a scored feature. Every scorer gets the score.
+         * @param fea the feature
+         * @param score points given to each scorer
+         * @param scorers the players who scored it
+         * @param complete completed, or scored at the end of the game
+         */
+        void featureScored(BasicFeature fea, int score, List<Player> scorers, boolean complete) {
+            scoredFeatures.add(new ScoredFeature(fea.getType(), score, scorers, complete));
+            for (Player p : scorers) {
+                int seat = players.indexOf(p);
+                scoreDeltas[seat] += score;
+                changedPlayers[seat] = true;
+            }
+        }
+
+        /**
+         * Record a rotation of the current tile.
+         */
+        void currTileChanged() {
+            currTileChanged = true;
+        }
+
+        /**
+         * Record the start of a new turn.
+         */
+        void nextTurn() {
+            nextTurn = true;
+        }
+
+        /**
+         * Record the end of the game.
+         * @param winnerList the winners
+         */
+        void gameOver(List<Player> winnerList) {
+            winners = winnerList;
+        }
+
+        /**
+         * Record an illegal action.
+         * @param str error message
+         */
+        void error(String str) {
+            errors.add(str);
+        }
+
+        private void playerChanged(Player p) {
+            changedPlayers[players.indexOf(p)] = true;
+        }
+
+        /**
+         * Hand over the changes recorded since the last call, and forget them.
+         * @param phase the action that ended the phase
+         * @param noOfTurns current turn no.
+         * @return the delta
+         */
+        TurnDelta take(Phase phase, int noOfTurns) {
+            TurnDelta delta = new TurnDelta(phase, noOfTurns, this);
+            placedTile = null;
+            placedMeeple = null;
+            meepleOri = null;
+            returnedMeeples.clear();
+            Arrays.fill(scoreDeltas, 0);
+            Arrays.fill(changedPlayers, false);
+            scoredFeatures.clear();
+            currTileChanged = false;
+            nextTurn = false;
+            winners = null;
+            errors.clear();
+            return delta;
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package yuyang.hyy.game.carcassonne.core;
+
+/**
+ * Gets the changes of a game in one batch per phase, see {@link TurnDelta}.
+ */
+public interface TurnDeltaListener {
+    /**
+     * Handle the changes of one phase.
+     * @param delta the changes
+     */
+    void handleTurnDelta(TurnDelta delta);
+}
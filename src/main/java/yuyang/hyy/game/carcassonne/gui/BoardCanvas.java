@@ -0,0 +1,298 @@
+package yuyang.hyy.game.carcassonne.gui;
+
+import yuyang.hyy.game.carcassonne.core.Location;
+import yuyang.hyy.game.carcassonne.core.Meeple;
+import yuyang.hyy.game.carcassonne.core.Orientation;
+
+import javax.swing.JComponent;
+import javax.swing.JViewport;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * The game map as one custom-painted component, instead of a button per cell. Only the cells inside the clip are
+ * painted, from the images of the placed tiles, and clicks are hit-tested into locations. The component covers
+ * the placed tiles plus a margin and grows with the board in any direction, so the board has no size limit and
+ * creating it costs the same whatever the board size. While it is smaller than the viewport, it is centered.
+ * Meeples are an overlay drawn over the shared tile images at paint time, one small sprite per player colour, so
+ * no tile image is ever copied.
+ * Locations are the ones of the game: x grows to the right and y grows upwards.
+ */
+class BoardCanvas extends JComponent implements Scrollable {
+    private static final long serialVersionUID = 1L;
+    private static final int TILE_SIZE = 90, MARGIN = 2, UNIT_INCREMENT = 16, MEEPLE_RADIUS = 6;
+    // A meeple sprite per player colour, shared by all the canvases.
+    private static final Map<Color, BufferedImage> MEEPLE_SPRITES = new HashMap<>();
+    private static final Color FRONTIER_FILL = new Color(0xE8, 0xE8, 0xE8), FRONTIER_BORDER = Color.GRAY;
+    // Image of every placed tile, by packed location.
+    private final Map<Long, BufferedImage> tileImages = new HashMap<>();
+    // The empty locations the current tile may go to, by packed location.
+    private final Set<Long> frontier = new HashSet<>();
+    // The meeples on the board, in placement order.
+    private final Map<Meeple, MeepleMark> meeples = new LinkedHashMap<>();
+    // Bounds of the placed tiles.
+    private int minX, maxX, minY, maxY;
+
+    /**
+     * Constructor of a canvas with the first tile.
+     * @param firstLoc location of the first tile
+     * @param firstImage image of the first tile
+     * @param onClick called with the location of a frontier cell when it's clicked
+     */
+    BoardCanvas(Location firstLoc, BufferedImage firstImage, Consumer<Location> onClick) {
+        minX = firstLoc.getX();
+        maxX = minX;
+        minY = firstLoc.getY();
+        maxY = minY;
+        tileImages.put(firstLoc.pack(), firstImage);
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                Location loc = locationAt(e.getPoint());
+                if (frontier.contains(loc.pack()) && !tileImages.containsKey(loc.pack())) {
+                    onClick.accept(loc);
+                }
+            }
+        });
+    }
+
+    /**
+     * Show a tile, or replace its image. The canvas grows if the tile is outside the current bounds, and the view
+     * is scrolled along so that the tiles already shown don't move.
+     * @param loc location of the tile
+     * @param image image of the tile
+     */
+    void putTile(Location loc, BufferedImage image) {
+        tileImages.put(loc.pack(), image);
+        int shiftX = Math.max(minX - loc.getX(), 0) * TILE_SIZE, shiftY = Math.max(loc.getY() - maxY, 0) * TILE_SIZE;
+        boolean grows = loc.getX() < minX || loc.getX() > maxX || loc.getY() < minY || loc.getY() > maxY;
+        minX = Math.min(minX, loc.getX());
+        maxX = Math.max(maxX, loc.getX());
+        minY = Math.min(minY, loc.getY());
+        maxY = Math.max(maxY, loc.getY());
+        if (grows) {
+            resizeInViewport(shiftX, shiftY);
+        }
+        repaint();
+    }
+
+    /**
+     * A meeple drawn on a tile.
+     */
+    private static final class MeepleMark {
+        private final Location loc;
+        private final Orientation ori;
+        private final BufferedImage sprite;
+
+        MeepleMark(Location loc, Orientation ori, BufferedImage sprite) {
+            this.loc = loc;
+            this.ori = ori;
+            this.sprite = sprite;
+        }
+    }
+
+    /**
+     * Show a meeple on a placed tile.
+     * @param m the meeple
+     * @param loc location of the tile
+     * @param ori where the meeple is on the tile
+     * @param color colour of its owner
+     */
+    void addMeeple(Meeple m, Location loc, Orientation ori, Color color) {
+        meeples.put(m, new MeepleMark(loc, ori, meepleSprite(color)));
+        repaint(cellBounds(loc));
+    }
+
+    /**
+     * Stop showing a meeple, because it has been returned to its owner.
+     * @param m the meeple
+     */
+    void removeMeeple(Meeple m) {
+        MeepleMark mark = meeples.remove(m);
+        if (mark != null) {
+            repaint(cellBounds(mark.loc));
+        }
+    }
+
+    private static BufferedImage meepleSprite(Color color) {
+        synchronized (MEEPLE_SPRITES) {
+            return MEEPLE_SPRITES.computeIfAbsent(color, c -> {
+                BufferedImage sprite = new BufferedImage(2 * MEEPLE_RADIUS, 2 * MEEPLE_RADIUS,
+                        BufferedImage.TYPE_INT_ARGB);
+                Graphics2D g = sprite.createGraphics();
+                g.setColor(c);
+                g.fillOval(0, 0, 2 * MEEPLE_RADIUS, 2 * MEEPLE_RADIUS);
+                g.dispose();
+                return sprite;
+            });
+        }
+    }
+
+    /**
+     * Center of a meeple slot, relative to the top left corner of its tile.
+     * @param ori the slot
+     * @return x and y offsets
+     */
+    private static Point slotCenter(Orientation ori) {
+        switch (ori) {
+            case TOP:
+                return new Point(TILE_SIZE / 2, MEEPLE_RADIUS);
+            case RIGHT:
+                return new Point(TILE_SIZE - MEEPLE_RADIUS, TILE_SIZE / 2);
+            case DOWN:
+                return new Point(TILE_SIZE / 2, TILE_SIZE - MEEPLE_RADIUS);
+            case LEFT:
+                return new Point(MEEPLE_RADIUS, TILE_SIZE / 2);
+            default:
+                return new Point(TILE_SIZE / 2, TILE_SIZE / 2);
+        }
+    }
+
+    /**
+     * Replace the highlighted frontier cells.
+     * @param locations the empty locations the current tile may go to
+     */
+    void setFrontier(Collection<Location> locations) {
+        frontier.clear();
+        for (Location loc : locations) {
+            frontier.add(loc.pack());
+        }
+        repaint();
+    }
+
+    private void resizeInViewport(int shiftX, int shiftY) {
+        if (!(getParent() instanceof JViewport)) {
+            revalidate();
+            return;
+        }
+        JViewport viewport = (JViewport) getParent();
+        Dimension size = getPreferredSize();
+        setSize(Math.max(size.width, viewport.getWidth()), Math.max(size.height, viewport.getHeight()));
+        Point pos = viewport.getViewPosition();
+        int x = Math.min(Math.max(pos.x + shiftX, 0), Math.max(getWidth() - viewport.getWidth(), 0));
+        int y = Math.min(Math.max(pos.y + shiftY, 0), Math.max(getHeight() - viewport.getHeight(), 0));
+        viewport.setViewPosition(new Point(x, y));
+        revalidate();
+    }
+
+    private int noOfColumns() {
+        return maxX - minX + 1 + 2 * MARGIN;
+    }
+
+    private int noOfRows() {
+        return maxY - minY + 1 + 2 * MARGIN;
+    }
+
+    // Pixel position of column 0 and row 0, which are off center while the canvas is larger than its content.
+    private int originX() {
+        return Math.max((getWidth() - noOfColumns() * TILE_SIZE) / 2, 0);
+    }
+
+    private int originY() {
+        return Math.max((getHeight() - noOfRows() * TILE_SIZE) / 2, 0);
+    }
+
+    /**
+     * Pixel bounds of a cell.
+     * @param loc location of the cell
+     * @return its rectangle in this component
+     */
+    Rectangle cellBounds(Location loc) {
+        return new Rectangle(originX() + (loc.getX() - minX + MARGIN) * TILE_SIZE,
+                originY() + (maxY - loc.getY() + MARGIN) * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+    }
+
+    /**
+     * Hit-test a point into the cell under it.
+     * @param p a point in this component
+     * @return the location of the cell
+     */
+    Location locationAt(Point p) {
+        int col = Math.floorDiv(p.x - originX(), TILE_SIZE);
+        int row = Math.floorDiv(p.y - originY(), TILE_SIZE);
+        return new Location(minX - MARGIN + col, maxY + MARGIN - row);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        // Only the cells overlapping the clip.
+        Location topLeft = locationAt(clip.getLocation());
+        Location bottomRight = locationAt(new Point(clip.x + clip.width - 1, clip.y + clip.height - 1));
+        for (int y = topLeft.getY(); y >= bottomRight.getY(); y--) {
+            for (int x = topLeft.getX(); x <= bottomRight.getX(); x++) {
+                long key = Location.pack(x, y);
+                BufferedImage image = tileImages.get(key);
+                if (image == null && !frontier.contains(key)) {
+                    continue;
+                }
+                Rectangle cell = cellBounds(new Location(x, y));
+                if (image != null) {
+                    g.drawImage(image, cell.x, cell.y, TILE_SIZE, TILE_SIZE, null);
+                } else {
+                    g.setColor(FRONTIER_FILL);
+                    g.fillRect(cell.x, cell.y, TILE_SIZE, TILE_SIZE);
+                    g.setColor(FRONTIER_BORDER);
+                    g.drawRect(cell.x, cell.y, TILE_SIZE - 1, TILE_SIZE - 1);
+                }
+            }
+        }
+        for (MeepleMark mark : meeples.values()) {
+            Rectangle cell = cellBounds(mark.loc);
+            if (cell.intersects(clip)) {
+                Point slot = slotCenter(mark.ori);
+                g.drawImage(mark.sprite, cell.x + slot.x - MEEPLE_RADIUS, cell.y + slot.y - MEEPLE_RADIUS, null);
+            }
+        }
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        return new Dimension(noOfColumns() * TILE_SIZE, noOfRows() * TILE_SIZE);
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return UNIT_INCREMENT;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        int extent = orientation == SwingConstants.HORIZONTAL ? visibleRect.width : visibleRect.height;
+        return Math.max(extent - TILE_SIZE, UNIT_INCREMENT);
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return getParent() instanceof JViewport && getParent().getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return getParent() instanceof JViewport && getParent().getHeight() > getPreferredSize().height;
+    }
+}
@@ -1,7 +1,8 @@
 package yuyang.hyy.game.carcassonne.gui;
 
-import yuyang.hyy.game.carcassonne.core.Game;
 import yuyang.hyy.game.carcassonne.core.GameBoardChangeListener;
+import yuyang.hyy.game.carcassonne.core.GameEngine;
+import yuyang.hyy.game.carcassonne.core.GameSnapshot;
 import yuyang.hyy.game.carcassonne.core.Location;
 import yuyang.hyy.game.carcassonne.core.Meeple;
 import yuyang.hyy.game.carcassonne.core.Orientation;
@@ -25,62 +26,56 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Dimension;
-import java.awt.Graphics2D;
-import java.awt.GridLayout;
-import java.awt.Point;
-import java.awt.Rectangle;
-import java.awt.geom.AffineTransform;
-import java.awt.image.AffineTransformOp;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 /**
- * The main game panel, containing the game map, tile and meeple placement.
+ * The main game panel, containing the game map, tile and meeple placement. The game runs on the thread of a
+ * {@link GameEngine}: this panel only sends it actions, and reads the latest {@link GameSnapshot} on the EDT.
  */
 public class GameBoardPanel extends JPanel implements GameBoardChangeListener {
 
-    private final Game game;
-    private final List<BufferedImage> images;
-    private BufferedImage lastTileImage;
-    private final JButton[][] squares;
-    private final Map<Meeple, ButtonImagePair> meeples;
-    private JButton rotateClockwiseButton, rotateAntiClockwiseButton, placeMeeple, latestTile, endTurn;
+    private final GameEngine engine;
+    // Latest state of the game, only replaced on the EDT.
+    private GameSnapshot snapshot;
+    private final TileImages tileImages;
+    private final BoardCanvas boardCanvas;
+    private Location latestTileLoc;
+    private JButton rotateClockwiseButton, rotateAntiClockwiseButton, placeMeeple, endTurn;
     private JLabel nextTile;
     private final JLabel errorBar;
     private final PlayerStatusPanel playerStatusPanel;
     private final Color[] colors;
 
-    private static final int NINTY = 90, BOARD_LENGTH = 143, SEVENTY_ONE = 71, FOUR = 4, SIX = 6;
+    private static final int NINTY = 90, FOUR = 4, SIX = 6;
     // Allow player status panel to use the colors
     static final Color[] ALL_COLORS = {Color.CYAN, Color.red, Color.yellow, Color.green, Color.orange};
 
     /**
      * Constructor of the game board panel.
-     * @param newGame Carcassone game system
+     * @param newEngine engine of a Carcassone game, not started yet
      */
-    public GameBoardPanel(Game newGame) {
-        game = newGame;
-        game.addGameBoardChangeListener(this);
-        images = cropImages();
-        meeples = new HashMap<>();
-        colors = new Color[game.getPlayerList().size()];
+    public GameBoardPanel(GameEngine newEngine) {
+        engine = newEngine;
+        snapshot = engine.start();
+        engine.addSnapshotListener(s -> snapshot = s);
+        engine.addGameBoardChangeListener(this);
+        tileImages = TileImages.getDefault();
+        colors = new Color[snapshot.getPlayers().size()];
         // According to the game rule, we have utmost 5 players.
         System.arraycopy(ALL_COLORS, 0, colors, 0, colors.length);
 
         // Set up the game map.
-        squares = new JButton[BOARD_LENGTH][BOARD_LENGTH];
-        JPanel gameMap = createBoardPanel();
-        JScrollPane scroller = new JScrollPane(gameMap);
-        game.gameStart();
+        boardCanvas = createBoardCanvas();
+        JScrollPane scroller = new JScrollPane(boardCanvas);
+        updateBoard();
 
         errorBar = new JLabel("Welcome to Carcassonne!");
 
-        playerStatusPanel = new PlayerStatusPanel(game);
+        playerStatusPanel = new PlayerStatusPanel(engine, snapshot);
 
         JPanel tilePlacement = createTilePlacementPanel();
         JPanel meeplePlacement = createMeeplePlacementPanel();
@@ -110,58 +105,17 @@ public class GameBoardPanel extends JPanel implements GameBoardChangeListener {
         setLayout(new BorderLayout());
         add(scroller, BorderLayout.CENTER);
         add(sideBoard, BorderLayout.LINE_END);
-        Rectangle bounds = scroller.getViewport().getViewRect();
-        Dimension size = scroller.getViewport().getViewSize();
-        int x = (size.width - bounds.width) / 2;
-        int y = (size.height - bounds.height) / 2;
-        scroller.getViewport().setViewPosition(new Point(x - 300, y - 300));
-        scroller.getVerticalScrollBar().setUnitIncrement(16);
-        scroller.getHorizontalScrollBar().setUnitIncrement(16);
     }
 
-    private JPanel createBoardPanel() {
-        JPanel panel = new JPanel();
-        panel.setLayout(new GridLayout(BOARD_LENGTH, BOARD_LENGTH));
-
-        JButton firstTile = new JButton();
-        firstTile.setPreferredSize(new Dimension(NINTY, NINTY));
-        firstTile.setIcon(new ImageIcon(getTileImage(game.getCurrTile(), game.getRotationTimes())));
-
-        // Create all of the squares and display them.
-        for (int row = 0; row < BOARD_LENGTH; row++) {
-            for (int col = 0; col < BOARD_LENGTH; col++) {
-                if (row == SEVENTY_ONE && col == SEVENTY_ONE) {
-                    panel.add(firstTile);
-                } else {
-                    squares[row][col] = new JButton();
-                    squares[row][col].setPreferredSize(new Dimension(0, 0));
-                    squares[row][col].setVisible(false);
-
-                    int r = row;
-                    int c = col;
-                    squares[row][col].addActionListener(e -> {
-                        try {
-                            if (game.isTilePlaced()) {
-                                return;
-                            }
-                            game.placeTile(game.getCurrTile(), frontToBack(new Location(r, c)));
-                        } catch (AssertionError ae) {
-                            showError("Tile has been placed this turn!");
-                        }
-
-                    });
-                    panel.add(squares[row][col]);
-                }
-
-            }
-        }
-        updateBoard();
-        return panel;
+    private BoardCanvas createBoardCanvas() {
+        // The first tile is the only tile on the board when the game starts.
+        Tile firstTile = snapshot.getLastPlacedTile();
+        return new BoardCanvas(firstTile.getLoc(), getTileImage(firstTile), engine::placeTile);
     }
 
     private JPanel createTilePlacementPanel() {
         JPanel tmpPanel = new JPanel();
-        nextTile = new JLabel(new ImageIcon(getTileImage(game.getCurrTile(), game.getRotationTimes())));
+        nextTile = new JLabel(getCurrTileIcon());
         JLabel nextTileInstruction = new JLabel("Next Tile:");
         rotateClockwiseButton = new JButton("Rotate Clockwise");
         rotateAntiClockwiseButton = new JButton("Rotate Anticlockwise");
@@ -169,11 +123,11 @@ public class GameBoardPanel extends JPanel implements GameBoardChangeListener {
         rotateAntiClockwiseButton.setPreferredSize(new Dimension(NINTY, NINTY));
 
         rotateClockwiseButton.addActionListener(e -> {
-            game.rotateCurrTileClockwise();
+            engine.rotateClockwise();
         });
 
         rotateAntiClockwiseButton.addActionListener(e -> {
-            game.rotateCurrTileAntiClockwise();
+            engine.rotateAntiClockwise();
         });
 
         // https://docs.oracle.com/javase/tutorial/uiswing/layout/group.html
@@ -217,36 +171,23 @@ public class GameBoardPanel extends JPanel implements GameBoardChangeListener {
 
         endTurn = new JButton("End Turn");
         endTurn.addActionListener(e -> {
-            try {
-                game.endTurnUpdate();
-                game.nextTurn();
-            } catch (AssertionError ae) {
-                showError("You must place a tile before finishing the turn!");
-            }
-
+            engine.endTurn();
         });
 
         placeMeeple.addActionListener(e -> {
-            try {
-                if (top.isSelected()) {
-                    game.placeMeeple(Orientation.TOP);
-                } else if (right.isSelected()) {
-                    game.placeMeeple(Orientation.RIGHT);
-                } else if (down.isSelected()) {
-                    game.placeMeeple(Orientation.DOWN);
-                } else if (left.isSelected()) {
-                    game.placeMeeple(Orientation.LEFT);
-                } else if (center.isSelected()) {
-                    game.placeMeeple(Orientation.CENTER);
-                } else {
-                    showError("You must select an orientation to place the meeple!");
-                }
-            } catch (AssertionError ae) {
-                showError("You must place a tile before the meeple placement!");
-            } catch (IndexOutOfBoundsException ie) {
-                showError("You don't have a meeple!");
+            if (top.isSelected()) {
+                engine.placeMeeple(Orientation.TOP);
+            } else if (right.isSelected()) {
+                engine.placeMeeple(Orientation.RIGHT);
+            } else if (down.isSelected()) {
+                engine.placeMeeple(Orientation.DOWN);
+            } else if (left.isSelected()) {
+                engine.placeMeeple(Orientation.LEFT);
+            } else if (center.isSelected()) {
+                engine.placeMeeple(Orientation.CENTER);
+            } else {
+                showError("You must select an orientation to place the meeple!");
             }
-
         });
 
 
@@ -295,26 +236,7 @@ public class GameBoardPanel extends JPanel implements GameBoardChangeListener {
     }
 
     private void updateBoard() {
-        List<Location> availableLoc = game.getAllNeighboringLoc();
-        for (Location eachLoc : availableLoc) {
-            Location boardLoc = backToFront(eachLoc);
-            //squares[boardLoc.getX()][boardLoc.getY()].setPreferredSize(new Dimension(NINTY, NINTY));
-            squares[boardLoc.getX()][boardLoc.getY()].setVisible(true);
-            squares[boardLoc.getX()][boardLoc.getY()].setEnabled(true);
-        }
-    }
-
-    /**
-     * Private helper to handle the difference between the index of Location class and that of JButton 2d arrays.
-     * @param frontLoc the location index in the "frontend"
-     * @return the location index in the "backend"
-     */
-    private Location frontToBack(Location frontLoc) {
-        return new Location(frontLoc.getY() - SEVENTY_ONE, SEVENTY_ONE - frontLoc.getX());
-    }
-
-    private Location backToFront(Location backLoc) {
-        return new Location(SEVENTY_ONE - backLoc.getY(), SEVENTY_ONE + backLoc.getX());
+        boardCanvas.setFrontier(snapshot.getFrontier());
     }
 
     /**
@@ -342,10 +264,8 @@ public class GameBoardPanel extends JPanel implements GameBoardChangeListener {
     public void handleTilePlacement(Tile t, Location loc) {
         clearError();
         nextTile.setIcon(null);
-        Location locOnBoard = backToFront(loc);
-        lastTileImage = getTileImage(t, game.getRotationTimes());
-        squares[locOnBoard.getX()][locOnBoard.getY()].setIcon(new ImageIcon(lastTileImage));
-        latestTile = squares[locOnBoard.getX()][locOnBoard.getY()];
+        boardCanvas.putTile(loc, getTileImage(t));
+        latestTileLoc = loc;
         rotateAntiClockwiseButton.setEnabled(false);
         rotateClockwiseButton.setEnabled(false);
         placeMeeple.setEnabled(true);
@@ -355,35 +275,7 @@ public class GameBoardPanel extends JPanel implements GameBoardChangeListener {
     @Override
     public void handleMeeplePlacement(Meeple m, Orientation ori) {
         clearError();
-        int xAxis = 0, yAxis = 0;
-        switch (ori) {
-            case CENTER:
-                xAxis = NINTY / 2;
-                yAxis = NINTY / 2;
-                break;
-            case TOP:
-                xAxis = NINTY / 2;
-                yAxis = SIX;
-                break;
-            case RIGHT:
-                xAxis = NINTY - SIX;
-                yAxis = NINTY / 2;
-                break;
-            case DOWN:
-                xAxis = NINTY / 2;
-                yAxis = NINTY - SIX;
-                break;
-            case LEFT:
-                xAxis = SIX;
-                yAxis = NINTY / 2;
-                break;
-            default:
-                showError("You should choose an orientation!");
-        }
-        ButtonImagePair buttonImagePair = new ButtonImagePair(latestTile, lastTileImage);
-        meeples.put(m, buttonImagePair);
-        latestTile.setIcon(new ImageIcon(withCircle(lastTileImage, getColor(), xAxis, yAxis, SIX)));
-        playerStatusPanel.scoreMeepleUpdated(game.getCurrPlayer());
+        boardCanvas.addMeeple(m, latestTileLoc, ori, getColor(m));
         placeMeeple.setEnabled(false);
     }
 
@@ -393,23 +285,18 @@ public class GameBoardPanel extends JPanel implements GameBoardChangeListener {
         updateBoard();
         rotateClockwiseButton.setEnabled(true);
         rotateAntiClockwiseButton.setEnabled(true);
-        playerStatusPanel.updateCurrPlayer();
         placeMeeple.setEnabled(false);
         endTurn.setEnabled(false);
     }
 
     @Override
     public void clearMeeple(Meeple meepleReturned) {
-        playerStatusPanel.scoreMeepleUpdated(meepleReturned.getOwner());
-        ButtonImagePair newPair = meeples.get(meepleReturned);
-        JButton oriButton = newPair.getButton();
-        BufferedImage oriImage = newPair.getImage();
-        oriButton.setIcon(new ImageIcon(oriImage));
+        boardCanvas.removeMeeple(meepleReturned);
     }
 
     @Override
     public void updateNextTileImage() {
-        nextTile.setIcon(new ImageIcon(getTileImage(game.getCurrTile(), game.getRotationTimes())));
+        nextTile.setIcon(getCurrTileIcon());
     }
 
     @Override
@@ -419,9 +306,6 @@ public class GameBoardPanel extends JPanel implements GameBoardChangeListener {
 
     @Override
     public void gameOver(List<Player> winners) {
-        for (Player p : game.getPlayerList()) {
-            playerStatusPanel.scoreMeepleUpdated(p);
-        }
         rotateAntiClockwiseButton.setEnabled(false);
         rotateClockwiseButton.setEnabled(false);
         endTurn.setEnabled(false);
@@ -432,55 +316,21 @@ public class GameBoardPanel extends JPanel implements GameBoardChangeListener {
 
     }
 
-    /**
-     * Method from piazza. Rotate the buffered image.
-     * @param src buffered image to be rotated
-     * @param n rotation times (clockwise)
-     * @return the buffered image after rotation
-     */
-    public static BufferedImage rotateClockwise(BufferedImage src, int n) {
-        int weight = src.getWidth();
-        int height = src.getHeight();
-
-        AffineTransform at = AffineTransform.getQuadrantRotateInstance(n, weight / 2.0, height / 2.0);
-        AffineTransformOp op = new AffineTransformOp(at, AffineTransformOp.TYPE_BILINEAR);
-
-        BufferedImage dest = new BufferedImage(weight, height, src.getType());
-        op.filter(src, dest);
-        return dest;
-    }
-
-    /**
-     * Method from piazza. Draw a circle to represent a meeple.
-     * @param src source image
-     * @param color color of the circle
-     * @param x x index of circle position
-     * @param y y index of circle position
-     * @param radius radius of the circle
-     * @return the image after drawing a circle
-     */
-    public static BufferedImage withCircle(BufferedImage src, Color color, int x, int y, int radius) {
-        BufferedImage dest = new BufferedImage(src.getWidth(), src.getHeight(), src.getType());
-
-        Graphics2D g = (Graphics2D) dest.getGraphics();
-        g.drawImage(src, 0, 0, null);
-        g.setColor(color);
-        g.fillOval(x - radius, y - radius, 2 * radius, 2 * radius);
-        g.dispose();
-
-        return dest;
+    // A placed tile is never rotated again, so it can be read here.
+    private BufferedImage getTileImage(Tile placedTile) {
+        return tileImages.get(placedTile.getIndex(), placedTile.getRotationNo());
     }
 
-    private BufferedImage getTileImage(Tile tile, int rotationTimes) {
-        BufferedImage tmpImage = images.get(tile.getIndex());
-        if (rotationTimes % FOUR != 0) {
-            tmpImage = rotateClockwise(tmpImage, rotationTimes);
+    private ImageIcon getCurrTileIcon() {
+        if (snapshot.getCurrTileIndex() < 0) {
+            return null;
         }
-        return tmpImage;
+        return tileImages.getIcon(snapshot.getCurrTileIndex(), snapshot.getCurrTileRotation());
     }
 
-    private Color getColor() {
-        return colors[game.getCurrPlayerIndex()];
+    // From the owner, not the current player: a resumed game delivers all its turns with the last snapshot.
+    private Color getColor(Meeple meeple) {
+        return colors[snapshot.indexOf(meeple.getOwner())];
     }
 
     private void clearError() {
@@ -1,24 +1,42 @@
 package yuyang.hyy.game.carcassonne.gui;
 
 import yuyang.hyy.game.carcassonne.core.Game;
+import yuyang.hyy.game.carcassonne.core.GameEngine;
+import yuyang.hyy.game.carcassonne.core.MoveLogReader;
+import yuyang.hyy.game.carcassonne.core.MoveLogWriter;
 import yuyang.hyy.game.carcassonne.core.Player;
+import yuyang.hyy.game.carcassonne.core.TurnDelta;
 
 import javax.swing.JButton;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 import java.awt.BorderLayout;
+import java.awt.GridLayout;
 import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
- * A JPanel to let users add player names and start the game.
+ * A JPanel to let users add player names and start the game, or resume a saved game. A game is saved as it's
+ * played, in the move log format of {@link MoveLogWriter}, to the file chosen when it starts or is resumed.
  */
 public class GameStart extends JPanel {
 
     private static final String GAME_NAME = "Carcassonne";
+    private static final String SAVE_TITLE = "Save the game to (cancel to play without saving)";
 
     /** The JFrame from which this chat is established. */
     private JFrame parentFrame;
@@ -72,10 +90,16 @@ public class GameStart extends JPanel {
             }
         });
 
+        JButton resumeButton = new JButton("Resume Game");
+        resumeButton.addActionListener(e -> resumeGame());
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 2));
+        buttonPanel.add(createButton);
+        buttonPanel.add(resumeButton);
+
         // Adds the components we've created to the panel (and to the window).
         setLayout(new BorderLayout());
         add(participantPanel, BorderLayout.NORTH);
-        add(createButton, BorderLayout.SOUTH);
+        add(buttonPanel, BorderLayout.SOUTH);
         setVisible(true);
     }
 
@@ -83,22 +107,131 @@ public class GameStart extends JPanel {
      * Starts a new Carcassone game.
      */
     private void startNewGame() {
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle(SAVE_TITLE);
+        Path saveFile = null;
+        if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+            saveFile = chooser.getSelectedFile().toPath();
+            try {
+                // The log of another game would be appended to.
+                if (Files.exists(saveFile) && Files.size(saveFile) > 0) {
+                    if (JOptionPane.showConfirmDialog(this, saveFile + " exists. Replace it?", GAME_NAME,
+                            JOptionPane.YES_NO_OPTION) != JOptionPane.YES_OPTION) {
+                        return;
+                    }
+                    Files.delete(saveFile);
+                }
+            } catch (IOException e) {
+                showError("Cannot save the game to " + saveFile + ": " + e.getMessage());
+                return;
+            }
+        }
+        showGame(new Game(playerList), null, saveFile);
+    }
+
+    /**
+     * Resumes a saved game: its turns are played again on the board, and the next ones are appended to its file.
+     */
+    private void resumeGame() {
+        JFileChooser chooser = new JFileChooser();
+        if (chooser.showOpenDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        Path saveFile = chooser.getSelectedFile().toPath();
+        ByteBuffer log;
+        Game game;
+        try {
+            byte[] bytes = Files.readAllBytes(saveFile);
+            // Check the whole log before the board is shown.
+            MoveLogReader.load(ByteBuffer.wrap(bytes));
+            log = ByteBuffer.wrap(bytes);
+            game = MoveLogReader.newGame(log);
+        } catch (IOException | IllegalArgumentException e) {
+            showError("Cannot resume " + saveFile + ": " + e.getMessage());
+            return;
+        }
+        showGame(game, log, saveFile);
+    }
+
+    /**
+     * Shows the game in a new window.
+     * @param game a game, not started yet
+     * @param turns the saved turns to play again, or null
+     * @param saveFile where the game is saved, or null
+     */
+    private void showGame(Game game, ByteBuffer turns, Path saveFile) {
         parentFrame.dispose();
         parentFrame = null;
 
-        Game gameSystem = new Game(playerList);
+        // The game runs on the engine thread, and the listeners are called back on the EDT.
+        GameEngine engine = new GameEngine(game, SwingUtilities::invokeLater);
 
         // Creates a new window.
 
         JFrame frame = new JFrame(GAME_NAME);
         frame.setSize(1280, 720);
-        GameBoardPanel gameBoardPanel = new GameBoardPanel(gameSystem);
+        GameBoardPanel gameBoardPanel = new GameBoardPanel(engine);
+        // Queued before any action of the players, so no turn is missed.
+        CompletableFuture<MoveLogWriter> writer = engine.call(g -> openLog(g, turns, saveFile));
 
         frame.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+        frame.addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                // Wait for the log to be closed: the engine thread doesn't keep the application running.
+                engine.call(g -> closeLog(writer.exceptionally(error -> null).getNow(null), saveFile)).join();
+                engine.close();
+            }
+        });
 
         frame.setContentPane(gameBoardPanel);
         frame.setResizable(true);
         frame.setVisible(true);
 
     }
+
+    // On the engine thread.
+    private static MoveLogWriter openLog(Game game, ByteBuffer turns, Path saveFile) {
+        if (turns != null) {
+            MoveLogReader.playTurns(game, turns);
+        }
+        if (saveFile == null || !game.isRunning()) {
+            return null;
+        }
+        try {
+            MoveLogWriter writer = MoveLogWriter.open(game, saveFile);
+            // Unlike a simulation, a game played by people is worth a write per turn.
+            game.addTurnDeltaListener(delta -> {
+                if (delta.getPhase() == TurnDelta.Phase.TURN_END) {
+                    try {
+                        writer.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Error when writing the move log", e);
+                    }
+                }
+            });
+            return writer;
+        } catch (IOException e) {
+            SwingUtilities.invokeLater(() -> showError("Cannot save the game to " + saveFile + ": "
+                    + e.getMessage()));
+            return null;
+        }
+    }
+
+    // On the engine thread.
+    private static Void closeLog(MoveLogWriter writer, Path saveFile) {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                SwingUtilities.invokeLater(() -> showError("Cannot save the game to " + saveFile + ": "
+                        + e.getMessage()));
+            }
+        }
+        return null;
+    }
+
+    private static void showError(String message) {
+        JOptionPane.showMessageDialog(null, message, GAME_NAME, JOptionPane.ERROR_MESSAGE);
+    }
 }
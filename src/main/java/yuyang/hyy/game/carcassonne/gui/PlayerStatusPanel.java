@@ -1,6 +1,7 @@
 package yuyang.hyy.game.carcassonne.gui;
 
-import yuyang.hyy.game.carcassonne.core.Game;
+import yuyang.hyy.game.carcassonne.core.GameEngine;
+import yuyang.hyy.game.carcassonne.core.GameSnapshot;
 import yuyang.hyy.game.carcassonne.core.Player;
 import yuyang.hyy.game.carcassonne.core.PlayerStatusChangeListener;
 
@@ -17,26 +18,30 @@ public class PlayerStatusPanel extends JPanel implements PlayerStatusChangeListe
 
     private final JLabel currentPlayer;
     private final Map<Player, JLabel> playerStatusMap;
-    private final Game game;
+    // Latest state of the game, only replaced on the EDT.
+    private GameSnapshot snapshot;
 
     /**
      * Constructor containing the initial player information.
-     * @param newGame Carcassone game system.
+     * @param engine engine of the Carcassone game.
+     * @param initial state of the started game.
      */
-    public PlayerStatusPanel(Game newGame) {
-        game = newGame;
-        game.addPlayerStatusChangeListener(this);
-        currentPlayer = new JLabel("This is " + game.getCurrPlayer().toString() + "'s turn | Turn No. 1");
+    public PlayerStatusPanel(GameEngine engine, GameSnapshot initial) {
+        snapshot = initial;
+        engine.addSnapshotListener(s -> snapshot = s);
+        engine.addPlayerStatusChangeListener(this);
+        currentPlayer = new JLabel("This is " + snapshot.getCurrPlayer().toString() + "'s turn | Turn No. 1");
         playerStatusMap = new HashMap<>();
 
         this.setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
         this.add(currentPlayer);
         JLabel gameStatus = new JLabel("Game status:");
         this.add(gameStatus);
-        for (Player player : game.getPlayerList()) {
+        for (Player player : snapshot.getPlayers()) {
+            int seat = snapshot.indexOf(player);
             JLabel info = new JLabel(String.format("Player %s  Score: %d, Remaining Meeples: %d",
-                    player, player.getScore(), player.getMeeples().size()));
-            info.setForeground(GameBoardPanel.ALL_COLORS[game.getPlayerList().indexOf(player)]);
+                    player, snapshot.getScore(seat), snapshot.getNoOfMeeples(seat)));
+            info.setForeground(GameBoardPanel.ALL_COLORS[seat]);
             playerStatusMap.put(player, info);
             this.add(info);
         }
@@ -48,13 +53,15 @@ public class PlayerStatusPanel extends JPanel implements PlayerStatusChangeListe
      */
     @Override
     public void scoreMeepleUpdated(Player player) {
+        int seat = snapshot.indexOf(player);
         playerStatusMap.get(player).setText(String.format("Player %s  Score: %d, Remaining Meeples: %d",
-                player, player.getScore(), player.getMeeples().size()));
+                player, snapshot.getScore(seat), snapshot.getNoOfMeeples(seat)));
     }
 
     @Override
     public void updateCurrPlayer() {
-        currentPlayer.setText("This is " + game.getCurrPlayer().toString() + "'s turn | Turn No. " + game.getNoOfTurns());
+        currentPlayer.setText("This is " + snapshot.getCurrPlayer().toString() + "'s turn | Turn No. "
+                + snapshot.getNoOfTurns());
     }
 
 
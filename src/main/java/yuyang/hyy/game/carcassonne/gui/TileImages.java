@@ -0,0 +1,78 @@
+package yuyang.hyy.game.carcassonne.gui;
+
+import javax.swing.ImageIcon;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
+import java.awt.GraphicsEnvironment;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+/**
+ * The tile images in all 4 clockwise rotations, cropped and rotated once and shared by every panel and game.
+ * The images are compatible with the screen, so that drawing them can be accelerated, and an icon is kept per
+ * image, so that showing a tile in any rotation allocates nothing.
+ */
+final class TileImages {
+    private static final int FOUR = 4;
+    // images[index][r]: the tile of this image index after r clockwise rotations.
+    private final BufferedImage[][] images;
+    private final ImageIcon[][] icons;
+
+    /**
+     * Lazily created on first use, see {@link #getDefault()}.
+     */
+    private static final class Holder {
+        private static final TileImages DEFAULT = new TileImages(GameBoardPanel.cropImages());
+    }
+
+    private TileImages(List<BufferedImage> originals) {
+        images = new BufferedImage[originals.size()][FOUR];
+        icons = new ImageIcon[originals.size()][FOUR];
+        GraphicsConfiguration config = GraphicsEnvironment.isHeadless() ? null
+                : GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        for (int i = 0; i < originals.size(); i++) {
+            BufferedImage src = originals.get(i);
+            for (int r = 0; r < FOUR; r++) {
+                BufferedImage dest = config == null
+                        ? new BufferedImage(src.getWidth(), src.getHeight(), BufferedImage.TYPE_INT_RGB)
+                        : config.createCompatibleImage(src.getWidth(), src.getHeight(), Transparency.OPAQUE);
+                Graphics2D g = dest.createGraphics();
+                // A quarter turn about the center maps pixels onto pixels, so no interpolation is needed.
+                g.rotate(r * Math.PI / 2, src.getWidth() / 2.0, src.getHeight() / 2.0);
+                g.drawImage(src, 0, 0, null);
+                g.dispose();
+                images[i][r] = dest;
+                icons[i][r] = new ImageIcon(dest);
+            }
+        }
+    }
+
+    /**
+     * The images of the default tile set, created on the first call.
+     * @return shared instance
+     */
+    static TileImages getDefault() {
+        return Holder.DEFAULT;
+    }
+
+    /**
+     * Get a tile image.
+     * @param index 0-based image index, see {@link yuyang.hyy.game.carcassonne.core.Tile#getIndex()}
+     * @param rotation no. of clockwise rotations
+     * @return the shared image, which must not be drawn on
+     */
+    BufferedImage get(int index, int rotation) {
+        return images[index][rotation % FOUR];
+    }
+
+    /**
+     * Get the icon of a tile image.
+     * @param index 0-based image index
+     * @param rotation no. of clockwise rotations
+     * @return the shared icon
+     */
+    ImageIcon getIcon(int index, int rotation) {
+        return icons[index][rotation % FOUR];
+    }
+}
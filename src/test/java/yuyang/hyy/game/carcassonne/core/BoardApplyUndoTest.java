@@ -0,0 +1,145 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link Board#apply(Move, Meeple)} followed by {@link Board#undo()} leaves the board as it was.
+ */
+public class BoardApplyUndoTest {
+    private static final int NO_OF_PLAYERS = 2, NO_OF_BOARDS = 3, NO_OF_TURNS = 25, NESTED_STRIDE = 7;
+    private static final double MEEPLE_PROBABILITY = 0.5;
+    private static final PlayerPolicy POLICY = new RandomPolicy(MEEPLE_PROBABILITY);
+
+    /**
+     * Every legal move of the current tile, with and without a meeple, and every legal move of another tile nested
+     * under some of them, is undone back to the same tiles, frontier, features, monasteries and meeples.
+     */
+    @Test
+    public void testUndoRestoresTheBoard() {
+        List<TileType> types = TileCatalogue.getDefault().getTypes();
+        for (long seed = 0; seed < NO_OF_BOARDS; seed++) {
+            Game game = playedGame(seed);
+            Board board = game.getBoard();
+            List<Player> players = game.getPlayerList();
+            List<Object> before = state(board);
+
+            MoveBuffer moves = new MoveBuffer();
+            board.collectMoves(game.getCurrTile().getType(), true, moves);
+            assertTrue(moves.size() > 0);
+            for (int i = 0; i < moves.size(); i++) {
+                assertTrue(board.apply(moves.getMove(i), players.get(0).getOneMeeple()));
+                if (i % NESTED_STRIDE == 0) {
+                    List<Object> afterMove = state(board);
+                    MoveBuffer nested = new MoveBuffer();
+                    board.collectMoves(types.get(i % types.size()), true, nested);
+                    for (int j = 0; j < nested.size(); j++) {
+                        assertTrue(board.apply(nested.getMove(j), players.get(1).getOneMeeple()));
+                        board.undo();
+                        assertEquals(afterMove, state(board));
+                    }
+                }
+                board.undo();
+                assertEquals(0, board.getNoOfAppliedMoves());
+                assertEquals(before, state(board));
+            }
+        }
+    }
+
+    /**
+     * An illegal move changes nothing, and the board refuses to be changed outside apply and undo while a move is
+     * applied.
+     */
+    @Test
+    public void testAppliedMoveGuards() {
+        Game game = playedGame(0);
+        Board board = game.getBoard();
+        List<Object> before = state(board);
+        MoveBuffer moves = new MoveBuffer();
+        board.collectMoves(game.getCurrTile().getType(), false, moves);
+        Move move = moves.getMove(0);
+        Location occupied = board.getCurrPlacedTile().getLoc();
+        Move illegal = new Move(move.getType(), new Placement(occupied, move.getPlacement().getRotation()), null);
+        assertFalse(board.apply(illegal, null));
+        assertEquals(before, state(board));
+
+        assertTrue(board.apply(move, null));
+        assertThrows(IllegalStateException.class, board::clearCompletedFeatures);
+        assertThrows(IllegalStateException.class, board::clearIncompleteFeatures);
+        assertThrows(IllegalStateException.class, board::fork);
+        board.undo();
+        assertThrows(IllegalStateException.class, board::undo);
+        assertEquals(before, state(board));
+    }
+
+    private static Game playedGame(long seed) {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < NO_OF_PLAYERS; i++) {
+            players.add(new Player("Player " + i));
+        }
+        Game game = new Game(players, seed);
+        Random random = new Random(seed);
+        game.gameStart();
+        for (int i = 0; i < NO_OF_TURNS && game.isRunning(); i++) {
+            Simulator.playTurn(game, POLICY, random);
+        }
+        assertTrue(game.isRunning());
+        return game;
+    }
+
+    /**
+     * What a board looks like from outside, independent of the iteration order of its collections.
+     */
+    private static List<Object> state(Board board) {
+        List<Object> state = new ArrayList<>();
+        state.add(new HashMap<>(board.getGameMap()));
+        state.add(new HashSet<>(board.getAllNeighboringLoc()));
+        state.add(board.getCurrPlacedTile());
+        state.add(features(board.getIncompleteFea()));
+        state.add(features(board.getCompletedFea()));
+        state.add(monasteries(board.getIncompleteMons()));
+        state.add(monasteries(board.getCompletedMons()));
+        HashSet<Object> sides = new HashSet<>();
+        for (Tile tile : board.getGameMap().values()) {
+            for (Orientation side : Board.DIRECTIONS) {
+                BasicFeature fea = board.getFeatureAt(tile.getLoc(), side);
+                sides.add(List.of(tile.getLoc(), side, fea == null ? List.of() : feature((ContinuousFeature) fea)));
+            }
+        }
+        state.add(sides);
+        return state;
+    }
+
+    private static HashSet<Object> features(Iterable<ContinuousFeature> features) {
+        HashSet<Object> set = new HashSet<>();
+        for (ContinuousFeature fea : features) {
+            set.add(feature(fea));
+        }
+        return set;
+    }
+
+    private static List<Object> feature(ContinuousFeature fea) {
+        return List.of(fea.getType(), fea.isComplete(), fea.getTileCount(), fea.getScore(), fea.getEndScore(),
+                new HashSet<>(fea.getAllPoints()), new HashSet<>(fea.getUnfinishedPoints()),
+                new HashSet<>(fea.getMeeples()), fea.getMeeples().size());
+    }
+
+    private static HashSet<Object> monasteries(Iterable<Monastery> monasteries) {
+        HashSet<Object> set = new HashSet<>();
+        for (Monastery mon : monasteries) {
+            set.add(List.of(mon.getCenterLoc(), mon.isComplete(), new HashSet<>(mon.getUnfinishedLocList()),
+                    new HashSet<>(mon.getMeeples()), mon.getMeeples().size()));
+        }
+        return set;
+    }
+}
@@ -0,0 +1,78 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Forked games must not share any state that either game can still change.
+ */
+public class BoardForkTest {
+    private static final int MAX_SEEDS = 2000, MONASTERY_SCORE = 9;
+
+    /**
+     * A monastery completed by the tile just placed can still take a meeple this turn, so a fork must not share it.
+     */
+    @Test
+    public void testMonasteryCompletedThisTurnIsNotShared() {
+        Game game = playUntilMonasteryCompletedByPlacedTile();
+        assertNotNull(game, "No monastery completed by the placed tile in " + MAX_SEEDS + " games");
+        Location loc = game.getBoard().getCurrPlacedTile().getLoc();
+        List<Integer> parentScores = scores(game);
+
+        Game child = game.fork();
+        assertTrue(child.placeMeeple(Orientation.CENTER));
+        assertTrue(child.getFeatureAt(loc, Orientation.CENTER).hasMeeple());
+        assertFalse(game.getFeatureAt(loc, Orientation.CENTER).hasMeeple());
+
+        game.endTurnUpdate();
+        assertEquals(parentScores, scores(game));
+        int seat = child.getCurrPlayerIndex();
+        int before = child.getPlayerList().get(seat).getScore();
+        child.endTurnUpdate();
+        assertEquals(before + MONASTERY_SCORE, child.getPlayerList().get(seat).getScore());
+    }
+
+    private static Game playUntilMonasteryCompletedByPlacedTile() {
+        for (long seed = 0; seed < MAX_SEEDS; seed++) {
+            List<Player> players = new ArrayList<>();
+            players.add(new Player("a"));
+            players.add(new Player("b"));
+            Game game = new Game(players, TileCatalogue.getDefault(), seed, Board.StorageMode.PACKED);
+            Random random = new Random(seed);
+            game.gameStart();
+            while (game.isRunning()) {
+                List<Placement> placements = game.getLegalPlacements();
+                if (placements.isEmpty()) {
+                    break;
+                }
+                Placement p = placements.get(random.nextInt(placements.size()));
+                while (game.getRotationTimes() != p.getRotation()) {
+                    game.rotateCurrTileClockwise();
+                }
+                game.placeTile(game.getCurrTile(), p.getLoc());
+                BasicFeature mon = game.getFeatureAt(p.getLoc(), Orientation.CENTER);
+                if (mon != null && mon.isComplete() && game.getCurrPlayer().hasMeeple()) {
+                    return game;
+                }
+                game.nextTurn();
+            }
+        }
+        return null;
+    }
+
+    private static List<Integer> scores(Game game) {
+        List<Integer> scores = new ArrayList<>();
+        for (Player p : game.getPlayerList()) {
+            scores.add(p.getScore());
+        }
+        return scores;
+    }
+}
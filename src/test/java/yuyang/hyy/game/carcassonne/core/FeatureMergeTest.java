@@ -0,0 +1,75 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Road and city features merged in the feature forest of a small board.
+ */
+public class FeatureMergeTest {
+    private static final int OPEN_U_TILES = 3, U_TILES = 4, U_SHIELDS = 2, COMPLETE_U_SCORE = 12;
+
+    /**
+     * A U-shaped city closed by a tile with two separate city ends completes, its totals are the sums of the merged
+     * parts, and the closing tile counts once, also in the evaluation of its move.
+     * <pre>
+     *   A B    A: city right and down, with a shield   B: city left and down
+     *   C D    C: city top and right                   D: city ends top and left, with a shield
+     * </pre>
+     */
+    @Test
+    public void testUShapedCityCompletes() {
+        Board board = new Board(Board.StorageMode.PACKED);
+        Tile a = new Tile(Segment.FIELD, Segment.CITY, Segment.CITY, Segment.FIELD, Segment.CITY, true);
+        board.placeFirstTile(a);
+        Location locA = a.getLoc();
+        Location locB = neighbor(locA, Orientation.RIGHT), locC = neighbor(locA, Orientation.DOWN);
+        Location locD = neighbor(locB, Orientation.DOWN);
+        assertEquals(neighbor(locC, Orientation.RIGHT), locD);
+
+        assertTrue(board.placeTile(new Tile(Segment.FIELD, Segment.FIELD, Segment.CITY, Segment.CITY, Segment.CITY,
+                false), locB));
+        assertTrue(board.placeTile(new Tile(Segment.CITY, Segment.CITY, Segment.FIELD, Segment.FIELD, Segment.CITY,
+                false), locC));
+        ContinuousFeature city = (ContinuousFeature) board.getFeatureAt(locA, Orientation.RIGHT);
+        assertSame(city, board.getFeatureAt(locC, Orientation.TOP));
+        assertEquals(OPEN_U_TILES, city.getTileCount());
+        assertEquals(1, ((City) city).getNoOfShields());
+        assertEquals(2, city.getUnfinishedPoints().size());
+        assertEquals(1, board.getIncompleteFea().size());
+
+        Tile d = new Tile(Segment.CITY_END, Segment.FIELD, Segment.FIELD, Segment.CITY_END, Segment.FIELD, true);
+        MoveEvaluation evaluation = new MoveEvaluation();
+        List<Player> players = List.of(new Player("a"), new Player("b"));
+        board.evaluate(d.getType(), 0, locD.pack(), Orientation.TOP, players, 0, evaluation);
+        assertEquals(1, evaluation.getNoOfFeatures());
+        assertEquals(U_TILES, evaluation.getTileCount(0));
+        assertEquals(U_SHIELDS, evaluation.getShieldCount(0));
+        assertTrue(evaluation.isComplete(0));
+        assertEquals(COMPLETE_U_SCORE, evaluation.getScoreDelta(0));
+
+        assertTrue(board.placeTile(d, locD));
+        city = (ContinuousFeature) board.getFeatureAt(locD, Orientation.TOP);
+        assertSame(city, board.getFeatureAt(locD, Orientation.LEFT));
+        assertSame(city, board.getFeatureAt(locA, Orientation.DOWN));
+        assertTrue(city.isComplete());
+        assertEquals(U_TILES, city.getTileCount());
+        assertEquals(U_TILES, city.getTileList().size());
+        assertEquals(U_SHIELDS, ((City) city).getNoOfShields());
+        assertEquals(COMPLETE_U_SCORE, city.getScore());
+        assertTrue(city.getUnfinishedPoints().isEmpty());
+        assertEquals(List.of(city), board.getCompletedFea());
+        assertTrue(board.getIncompleteFea().isEmpty());
+        assertFalse(board.getAllNeighboringLoc().contains(locD));
+    }
+
+    private static Location neighbor(Location loc, Orientation o) {
+        return Location.unpack(Location.neighborKey(loc.pack(), o));
+    }
+}
@@ -0,0 +1,53 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The ways a game can end.
+ */
+public class GameEndTest {
+    private static final int NO_OF_PLAYERS = 3, NO_OF_MEEPLES = 7;
+    private static final long SEED = 20L;
+    private static final double MEEPLE_PROBABILITY = 0.5;
+
+    /**
+     * A last tile without a legal placement is never placed: the game still ends, scoring the incomplete features
+     * and returning every meeple.
+     */
+    @Test
+    public void testEndGameWithoutPlacement() {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < NO_OF_PLAYERS; i++) {
+            players.add(new Player("Player " + i));
+        }
+        Game game = new Game(players, SEED);
+        game.gameStart();
+        Random random = new Random(SEED);
+        PlayerPolicy policy = new RandomPolicy(MEEPLE_PROBABILITY);
+        while (game.getNoOfRemainingTiles() > 0) {
+            Simulator.playTurn(game, policy, random);
+        }
+        assertTrue(game.isRunning());
+        assertFalse(game.isTilePlaced());
+        List<Integer> scores = new ArrayList<>();
+        for (Player player : players) {
+            scores.add(player.getScore());
+        }
+
+        game.endGameWithoutPlacement();
+        assertFalse(game.isRunning());
+        assertFalse(game.getWinner().isEmpty());
+        for (int i = 0; i < NO_OF_PLAYERS; i++) {
+            assertTrue(players.get(i).getScore() >= scores.get(i));
+            assertEquals(NO_OF_MEEPLES, players.get(i).getMeeples().size());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link Game#evaluate(MoveBuffer, int, MoveEvaluation)} tells what playing a move on a fork then does.
+ */
+public class MoveEvaluationTest {
+    private static final int NO_OF_PLAYERS = 3, NO_OF_GAMES = 3;
+    private static final double MEEPLE_PROBABILITY = 0.5;
+    private static final PlayerPolicy POLICY = new RandomPolicy(MEEPLE_PROBABILITY);
+
+    /**
+     * For every legal move in every turn of a few games, the evaluated score and projected score deltas of every
+     * seat are those of a fork after playing the move and scoring the turn, where the projected score counts the
+     * incomplete features at their end value. The evaluated features and monasteries are those around the placed
+     * tile of the fork.
+     */
+    @Test
+    public void testEvaluationMatchesPlayedMove() {
+        MoveBuffer moves = new MoveBuffer();
+        MoveEvaluation evaluation = new MoveEvaluation(), sameMove = new MoveEvaluation();
+        int noOfScoringMoves = 0;
+        for (long seed = 0; seed < NO_OF_GAMES; seed++) {
+            Game game = newGame(seed);
+            Random random = new Random(seed);
+            game.gameStart();
+            while (game.isRunning()) {
+                int[] scores = scores(game), projected = projectedScores(game);
+                game.getLegalMoves(moves);
+                for (int i = 0; i < moves.size(); i++) {
+                    game.evaluate(moves, i, evaluation);
+                    game.evaluate(moves.getMove(i), sameMove);
+                    Game played = game.fork();
+                    Location loc = moves.getLoc(i);
+                    while (played.getRotationTimes() != moves.getRotation(i)) {
+                        played.rotateCurrTileClockwise();
+                    }
+                    assertTrue(played.placeTile(played.getCurrTile(), loc));
+                    if (moves.getMeepleOri(i) != null) {
+                        assertTrue(played.placeMeeple(moves.getMeepleOri(i)));
+                    }
+                    assertEquals(playedFeatures(played, loc), evaluatedFeatures(evaluation));
+                    assertEquals(evaluatedFeatures(evaluation), evaluatedFeatures(sameMove));
+                    checkMonasteries(played, loc, evaluation);
+
+                    played.endTurnUpdate();
+                    int[] scoreDeltas = new int[NO_OF_PLAYERS], projectedDeltas = new int[NO_OF_PLAYERS];
+                    int[] playedScores = scores(played), playedProjected = projectedScores(played);
+                    for (int seat = 0; seat < NO_OF_PLAYERS; seat++) {
+                        assertEquals(evaluation.getScoreDelta(seat), sameMove.getScoreDelta(seat));
+                        scoreDeltas[seat] = playedScores[seat] - scores[seat];
+                        projectedDeltas[seat] = playedProjected[seat] - projected[seat];
+                        noOfScoringMoves += scoreDeltas[seat] > 0 ? 1 : 0;
+                    }
+                    assertArrayEquals(scoreDeltas, deltas(evaluation, false));
+                    assertArrayEquals(projectedDeltas, deltas(evaluation, true));
+                }
+                Simulator.playTurn(game, POLICY, random);
+            }
+        }
+        assertTrue(noOfScoringMoves > 0);
+    }
+
+    private static int[] deltas(MoveEvaluation evaluation, boolean projected) {
+        int[] deltas = new int[NO_OF_PLAYERS];
+        for (int seat = 0; seat < NO_OF_PLAYERS; seat++) {
+            deltas[seat] = projected ? evaluation.getProjectedDelta(seat) : evaluation.getScoreDelta(seat);
+        }
+        return deltas;
+    }
+
+    /**
+     * The monasteries around the placed tile, including its own, advanced by the move.
+     */
+    private static void checkMonasteries(Game played, Location loc, MoveEvaluation evaluation) {
+        int advanced = 0, completed = 0;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                BasicFeature mon = played.getFeatureAt(new Location(loc.getX() + dx, loc.getY() + dy),
+                        Orientation.CENTER);
+                if (mon != null) {
+                    advanced++;
+                    completed += mon.isComplete() ? 1 : 0;
+                }
+            }
+        }
+        assertEquals(advanced, evaluation.getNoOfAdvancedMonasteries());
+        assertEquals(completed, evaluation.getNoOfCompletedMonasteries());
+    }
+
+    /**
+     * The road and city features on the sides of the placed tile, each counted once.
+     */
+    private static Map<List<Object>, Integer> playedFeatures(Game played, Location loc) {
+        Map<List<Object>, Integer> features = new HashMap<>();
+        Set<Set<LocOriPair>> seen = new HashSet<>();
+        for (Orientation side : Board.DIRECTIONS) {
+            ContinuousFeature fea = (ContinuousFeature) played.getFeatureAt(loc, side);
+            if (fea == null || !seen.add(new HashSet<>(fea.getAllPoints()))) {
+                continue;
+            }
+            int shields = fea instanceof City ? ((City) fea).getNoOfShields() : 0;
+            int owners = 0;
+            for (Player owner : fea.getScoreOwner()) {
+                owners |= 1 << played.getPlayerList().indexOf(owner);
+            }
+            features.merge(List.of(fea.getType(), fea.getTileCount(), shields, fea.isComplete(), owners), 1,
+                    Integer::sum);
+        }
+        return features;
+    }
+
+    private static Map<List<Object>, Integer> evaluatedFeatures(MoveEvaluation evaluation) {
+        Map<List<Object>, Integer> features = new HashMap<>();
+        for (int i = 0; i < evaluation.getNoOfFeatures(); i++) {
+            features.merge(List.of(evaluation.getFeatureType(i), evaluation.getTileCount(i),
+                    evaluation.getShieldCount(i), evaluation.isComplete(i), evaluation.getOwnerMask(i)), 1,
+                    Integer::sum);
+        }
+        return features;
+    }
+
+    private static int[] scores(Game game) {
+        int[] scores = new int[NO_OF_PLAYERS];
+        for (int seat = 0; seat < NO_OF_PLAYERS; seat++) {
+            scores[seat] = game.getPlayerList().get(seat).getScore();
+        }
+        return scores;
+    }
+
+    /**
+     * The scores if the game ended now, as {@link Game#endGameUpdate()} would count the incomplete features.
+     */
+    private static int[] projectedScores(Game game) {
+        int[] projected = scores(game);
+        List<BasicFeature> features = new ArrayList<>(game.getBoard().getIncompleteFea());
+        features.addAll(game.getBoard().getIncompleteMons());
+        for (BasicFeature fea : features) {
+            if (!fea.hasMeeple()) {
+                continue;
+            }
+            for (Player owner : fea.getScoreOwner()) {
+                projected[game.getPlayerList().indexOf(owner)] += fea.getEndScore();
+            }
+        }
+        return projected;
+    }
+
+    private static Game newGame(long seed) {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < NO_OF_PLAYERS; i++) {
+            players.add(new Player("Player " + i));
+        }
+        return new Game(players, seed);
+    }
+}
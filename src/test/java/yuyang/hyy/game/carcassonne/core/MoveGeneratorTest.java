@@ -0,0 +1,128 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link Game#getLegalMoves(MoveBuffer)} lists exactly the moves that placing the tile and the meeple accept.
+ */
+public class MoveGeneratorTest {
+    private static final int NO_OF_PLAYERS = 2, NO_OF_GAMES = 3, FOUR = 4;
+    private static final double MEEPLE_PROBABILITY = 0.3;
+    private static final PlayerPolicy POLICY = new RandomPolicy(MEEPLE_PROBABILITY);
+    private static final String NO_MEEPLE = "none";
+
+    /**
+     * In every turn of a few games, and on a fork of each, the generated moves are the placements accepted by
+     * {@link Game#placeTile} in each rotation that looks different, each with the meeple options accepted by
+     * {@link Game#placeMeeple}, tried on forks. Sides of the placed tile ending up in one feature, also two ends
+     * joined through the features around it, give one move, on the first such side.
+     */
+    @Test
+    public void testMovesMatchTrialPlacements() {
+        MoveBuffer buffer = new MoveBuffer();
+        int noOfTurns = 0, noOfJoinedEnds = 0;
+        for (long seed = 0; seed < NO_OF_GAMES; seed++) {
+            Game game = newGame(seed);
+            Random random = new Random(seed);
+            game.gameStart();
+            while (game.isRunning()) {
+                Set<List<Object>> generated = moveSet(game.getLegalMoves(buffer));
+                assertEquals(generated, moveSet(game.fork().getLegalMoves(new MoveBuffer())));
+                noOfJoinedEnds += tryEveryMove(game, generated);
+                noOfTurns++;
+                Simulator.playTurn(game, POLICY, random);
+            }
+        }
+        assertTrue(noOfTurns > 0);
+        assertTrue(noOfJoinedEnds > 0, "No tile joined one feature with two ends");
+    }
+
+    /**
+     * The moves of a buffer, each listed once.
+     */
+    private static Set<List<Object>> moveSet(MoveBuffer moves) {
+        Set<List<Object>> set = new HashSet<>();
+        for (int i = 0; i < moves.size(); i++) {
+            Orientation ori = moves.getMeepleOri(i);
+            set.add(List.of(moves.getLoc(i), moves.getRotation(i), ori == null ? NO_MEEPLE : ori));
+        }
+        assertEquals(moves.size(), set.size());
+        return set;
+    }
+
+    /**
+     * Check the generated moves of the current tile against trial placements.
+     * @return no. of meeple options on a road or city end left out because another end of the tile is in the same
+     *         feature
+     */
+    private static int tryEveryMove(Game game, Set<List<Object>> generated) {
+        TileType type = game.getCurrTile().getType();
+        Set<List<Object>> expected = new HashSet<>();
+        List<Set<List<Object>>> byRotation = new ArrayList<>();
+        int noOfJoinedEnds = 0;
+        for (int r = 0; r < FOUR; r++) {
+            Set<List<Object>> moves = new HashSet<>();
+            for (Location loc : new ArrayList<>(game.getBoard().getAllNeighboringLoc())) {
+                Game placed = game.fork();
+                while (placed.getRotationTimes() != r) {
+                    placed.rotateCurrTileClockwise();
+                }
+                if (!placed.placeTile(placed.getCurrTile(), loc)) {
+                    continue;
+                }
+                moves.add(List.of(loc, NO_MEEPLE));
+                if (!placed.getCurrPlayer().hasMeeple()) {
+                    continue;
+                }
+                if (placed.fork().placeMeeple(Orientation.CENTER)) {
+                    moves.add(List.of(loc, Orientation.CENTER));
+                }
+                List<Set<LocOriPair>> taken = new ArrayList<>();
+                for (Orientation side : Board.DIRECTIONS) {
+                    if (!placed.fork().placeMeeple(side)) {
+                        continue;
+                    }
+                    Set<LocOriPair> points = new HashSet<>(
+                            ((ContinuousFeature) placed.getFeatureAt(loc, side)).getAllPoints());
+                    if (!taken.contains(points)) {
+                        taken.add(points);
+                        moves.add(List.of(loc, side));
+                    } else if (isEnd(placed.getCurrTile().getEdgeSeg(side))) {
+                        noOfJoinedEnds++;
+                    }
+                }
+            }
+            if (type.isRepeatedRotation(r)) {
+                assertTrue(byRotation.contains(moves), "Rotation " + r + " of " + type + " isn't repeated");
+            } else {
+                for (List<Object> move : moves) {
+                    expected.add(List.of(move.get(0), r, move.get(1)));
+                }
+            }
+            byRotation.add(moves);
+        }
+        assertEquals(expected, generated);
+        return noOfJoinedEnds;
+    }
+
+    private static boolean isEnd(Segment seg) {
+        return seg == Segment.CITY_END || seg == Segment.ROAD_END;
+    }
+
+    private static Game newGame(long seed) {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < NO_OF_PLAYERS; i++) {
+            players.add(new Player("Player " + i));
+        }
+        return new Game(players, seed);
+    }
+}
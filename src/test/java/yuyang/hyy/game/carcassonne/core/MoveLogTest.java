@@ -0,0 +1,129 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Saving a game with {@link MoveLogWriter} and loading it with {@link MoveLogReader}.
+ */
+public class MoveLogTest {
+    private static final int NO_OF_PLAYERS = 3, NO_OF_GAMES = 20, RESUME_TURN = 30;
+    private static final double MEEPLE_PROBABILITY = 0.5;
+    private static final PlayerPolicy POLICY = new RandomPolicy(MEEPLE_PROBABILITY);
+
+    /**
+     * A loaded game is in the state of the saved one.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        for (long seed = 0; seed < NO_OF_GAMES; seed++) {
+            Game game = newGame(seed);
+            byte[] log = playAndSave(game, new Random(seed));
+            Game loaded = MoveLogReader.load(ByteBuffer.wrap(log));
+            assertFalse(loaded.isRunning());
+            assertEquals(state(game), state(loaded));
+        }
+    }
+
+    /**
+     * A game saved to a file, loaded and played on, with its new turns appended to the same file, is saved as if it
+     * had never stopped.
+     */
+    @Test
+    public void testResumeThenAppend(@TempDir Path dir) throws IOException {
+        for (long seed = 0; seed < NO_OF_GAMES; seed++) {
+            byte[] whole = playAndSave(newGame(seed), new Random(seed));
+
+            Path file = dir.resolve("game" + seed);
+            Game game = newGame(seed);
+            Random random = new Random(seed);
+            try (MoveLogWriter writer = MoveLogWriter.open(game, file)) {
+                game.gameStart();
+                for (int i = 0; i < RESUME_TURN; i++) {
+                    Simulator.playTurn(game, POLICY, random);
+                }
+            }
+            Game resumed = MoveLogReader.load(file);
+            assertEquals(state(game), state(resumed));
+            try (MoveLogWriter writer = MoveLogWriter.open(resumed, file)) {
+                while (resumed.isRunning()) {
+                    Simulator.playTurn(resumed, POLICY, random);
+                }
+            }
+            assertArrayEquals(whole, Files.readAllBytes(file));
+            assertEquals(state(resumed), state(MoveLogReader.load(file)));
+        }
+    }
+
+    /**
+     * A log cut anywhere but between two turns is refused.
+     */
+    @Test
+    public void testTruncatedLog() throws IOException {
+        byte[] log = playAndSave(newGame(0), new Random(0));
+        int noOfLoaded = 0;
+        for (int length = 0; length < log.length; length++) {
+            try {
+                MoveLogReader.load(ByteBuffer.wrap(log, 0, length));
+                noOfLoaded++;
+            } catch (IllegalArgumentException e) {
+                // Cut inside the header or a turn.
+            }
+        }
+        assertTrue(noOfLoaded > 0);
+        assertThrows(IllegalArgumentException.class, () -> MoveLogReader.load(ByteBuffer.wrap(log, 0, 1)));
+    }
+
+    private static Game newGame(long seed) {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < NO_OF_PLAYERS; i++) {
+            players.add(new Player("Player " + i));
+        }
+        return new Game(players, seed);
+    }
+
+    private static byte[] playAndSave(Game game, Random random) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MoveLogWriter writer = new MoveLogWriter(game, Channels.newChannel(out))) {
+            game.addTurnDeltaListener(writer);
+            game.gameStart();
+            while (game.isRunning()) {
+                Simulator.playTurn(game, POLICY, random);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * What two games in the same state have in common.
+     */
+    static List<Object> state(Game game) {
+        GameSnapshot snapshot = game.getSnapshot();
+        List<Object> state = new ArrayList<>();
+        for (int seat = 0; seat < snapshot.getPlayers().size(); seat++) {
+            state.add(snapshot.getPlayers().get(seat).toString());
+            state.add(snapshot.getScore(seat));
+            state.add(snapshot.getNoOfMeeples(seat));
+        }
+        state.addAll(Arrays.asList(snapshot.isRunning(), snapshot.getNoOfTurns(), snapshot.getCurrPlayerIndex(),
+                snapshot.getCurrTileIndex(), snapshot.getNoOfRemainingTiles(), snapshot.getFrontier()));
+        return state;
+    }
+}
@@ -0,0 +1,57 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * The packed tile storage gives back the tiles it was given.
+ */
+public class PackedTileStorageTest {
+    private static final int FOUR = 4;
+
+    /**
+     * A stored tile comes back with its own shared type, rotation, location and edges, also from a fork, and a type
+     * first stored by a fork stays out of its parent.
+     */
+    @Test
+    public void testTilesKeepTheirType() {
+        List<TileType> types = TileCatalogue.getDefault().getTypes();
+        PackedTileStorage storage = new PackedTileStorage();
+        for (int i = 0; i < types.size() - 1; i++) {
+            storage.put(Location.pack(i, 0), newTile(types.get(i), i % FOUR));
+        }
+        TileType last = types.get(types.size() - 1);
+        TileStorage child = storage.fork();
+        child.put(Location.pack(-1, 0), newTile(last, 1));
+        storage.put(Location.pack(-1, 1), newTile(types.get(0), 2));
+
+        for (int i = 0; i < types.size() - 1; i++) {
+            for (TileStorage s : List.of(storage, child)) {
+                Tile tile = s.get(Location.pack(i, 0));
+                assertSame(types.get(i), tile.getType());
+                assertEquals(i % FOUR, tile.getRotationNo());
+                assertEquals(new Location(i, 0), tile.getLoc());
+                for (Orientation side : Board.DIRECTIONS) {
+                    assertEquals(tile.getEdgeSeg(side), s.getEdgeSeg(Location.pack(i, 0), side));
+                }
+            }
+        }
+        assertSame(last, child.get(Location.pack(-1, 0)).getType());
+        assertNull(storage.get(Location.pack(-1, 0)));
+        assertSame(types.get(0), storage.get(Location.pack(-1, 1)).getType());
+        assertNull(child.get(Location.pack(-1, 1)));
+    }
+
+    private static Tile newTile(TileType type, int rotation) {
+        Tile tile = new Tile(type);
+        for (int i = 0; i < rotation; i++) {
+            tile.rotateClockwise();
+        }
+        return tile;
+    }
+}
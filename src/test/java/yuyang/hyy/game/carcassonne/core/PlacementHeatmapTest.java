@@ -0,0 +1,98 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * {@link Game#getPlacementHeatmap(ForkJoinPool)} ranks the placements as evaluating the moves one by one does.
+ */
+public class PlacementHeatmapTest {
+    private static final int NO_OF_PLAYERS = 2, NO_OF_GAMES = 2, NO_OF_THREADS = 4, MANY_MOVES = 100;
+    private static final double MEEPLE_PROBABILITY = 0.5;
+    private static final PlayerPolicy POLICY = new RandomPolicy(MEEPLE_PROBABILITY);
+
+    /**
+     * In every turn of a few games, the heatmap built in parallel lists every placement once, ranked by projected
+     * score delta then score delta of its best move, ties kept in move order, as a sequential ranking of
+     * {@link Game#evaluate(MoveBuffer, int, MoveEvaluation)} results does. The heat of every frontier cell is its best
+     * projected delta.
+     */
+    @Test
+    public void testParallelRankingMatchesSequential() {
+        ForkJoinPool pool = new ForkJoinPool(NO_OF_THREADS);
+        MoveBuffer moves = new MoveBuffer();
+        MoveEvaluation evaluation = new MoveEvaluation();
+        int noOfLongLists = 0;
+        try {
+            for (long seed = 0; seed < NO_OF_GAMES; seed++) {
+                Game game = newGame(seed);
+                Random random = new Random(seed);
+                game.gameStart();
+                while (game.isRunning()) {
+                    game.getLegalMoves(moves);
+                    noOfLongLists += moves.size() >= MANY_MOVES ? 1 : 0;
+                    int seat = game.getCurrPlayerIndex();
+                    Map<Placement, List<Integer>> best = new HashMap<>();
+                    Map<Location, Integer> heat = new HashMap<>();
+                    for (int i = 0; i < moves.size(); i++) {
+                        game.evaluate(moves, i, evaluation);
+                        List<Integer> move = List.of(evaluation.getProjectedDelta(seat),
+                                evaluation.getScoreDelta(seat), -i);
+                        best.merge(moves.getPlacement(i), move, (a, b) -> compare(a, b) <= 0 ? a : b);
+                        heat.merge(moves.getLoc(i), evaluation.getProjectedDelta(seat), Math::max);
+                    }
+                    List<List<Integer>> ranked = new ArrayList<>(best.values());
+                    ranked.sort(PlacementHeatmapTest::compare);
+
+                    for (PlacementHeatmap heatmap : List.of(game.getPlacementHeatmap(pool),
+                            game.getPlacementHeatmap())) {
+                        assertEquals(ranked.size(), heatmap.size());
+                        for (int rank = 0; rank < ranked.size(); rank++) {
+                            int i = -ranked.get(rank).get(2);
+                            assertEquals(moves.getPlacement(i), heatmap.getPlacement(rank));
+                            assertEquals(moves.getMeepleOri(i), heatmap.getMeepleOri(rank));
+                            assertEquals(ranked.get(rank).get(0), heatmap.getProjectedDelta(rank));
+                            assertEquals(ranked.get(rank).get(1), heatmap.getScoreDelta(rank));
+                        }
+                        for (Location loc : game.getBoard().getAllNeighboringLoc()) {
+                            assertEquals(heat.get(loc), heatmap.getBestProjectedDelta(loc));
+                        }
+                    }
+                    Simulator.playTurn(game, POLICY, random);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertTrue(noOfLongLists > 0, "No turn with " + MANY_MOVES + " moves to split between threads");
+    }
+
+    /**
+     * Better moves first, each move given as (projected delta, score delta, minus its index).
+     */
+    private static int compare(List<Integer> a, List<Integer> b) {
+        for (int k = 0; k < a.size(); k++) {
+            if (!a.get(k).equals(b.get(k))) {
+                return Integer.compare(b.get(k), a.get(k));
+            }
+        }
+        return 0;
+    }
+
+    private static Game newGame(long seed) {
+        List<Player> players = new ArrayList<>();
+        for (int i = 0; i < NO_OF_PLAYERS; i++) {
+            players.add(new Player("Player " + i));
+        }
+        return new Game(players, seed);
+    }
+}
@@ -0,0 +1,103 @@
+package yuyang.hyy.game.carcassonne.core;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Recording games to a {@link ReplayArchive} with a {@link ReplayArchiveWriter}.
+ */
+public class ReplayArchiveTest {
+    private static final int NO_OF_PLAYERS = 3, NO_OF_GAMES = 200, NO_OF_THREADS = 4;
+    private static final long SEED = 42L;
+    private static final double MEEPLE_PROBABILITY = 0.5;
+
+    /**
+     * The archive of a simulation holds its games in order, whatever the no. of threads, and replaying them gives
+     * the scores of the simulation.
+     */
+    @Test
+    public void testSimulatorArchive(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("games");
+        SimulationResult result;
+        try (ReplayArchiveWriter writer = new ReplayArchiveWriter(file)) {
+            result = newSimulator(NO_OF_THREADS).run(NO_OF_GAMES, SEED, writer);
+        }
+        Path singleThreaded = dir.resolve("games1");
+        try (ReplayArchiveWriter writer = new ReplayArchiveWriter(singleThreaded)) {
+            newSimulator(1).run(NO_OF_GAMES, SEED, writer);
+        }
+        assertArrayEquals(Files.readAllBytes(singleThreaded), Files.readAllBytes(file));
+
+        ReplayArchive archive = ReplayArchive.open(file);
+        assertEquals(NO_OF_GAMES, archive.size());
+        long[] sums = new long[NO_OF_PLAYERS];
+        archive.scan(record -> {
+            assertTrue(record.isGameOver());
+            assertEquals(NO_OF_PLAYERS, record.getNoOfPlayers());
+            Game game = record.replay();
+            assertFalse(game.isRunning());
+            for (int seat = 0; seat < NO_OF_PLAYERS; seat++) {
+                sums[seat] += game.getPlayerList().get(seat).getScore();
+            }
+        });
+        for (int seat = 0; seat < NO_OF_PLAYERS; seat++) {
+            assertEquals(result.getScoreStatistics(seat).getSum(), sums[seat]);
+        }
+    }
+
+    /**
+     * Games appended after the archive is reopened follow the ones written before, and every record is the move
+     * log it was given.
+     */
+    @Test
+    public void testAppendAfterReopen(@TempDir Path dir) throws IOException {
+        Simulator simulator = newSimulator(1);
+        List<ByteBuffer> logs = new ArrayList<>();
+        for (int i = 0; i < NO_OF_GAMES; i++) {
+            ByteArrayOutputStream log = new ByteArrayOutputStream();
+            simulator.playGame(SEED + i, log);
+            logs.add(ByteBuffer.wrap(log.toByteArray()));
+        }
+        Path file = dir.resolve("games");
+        try (ReplayArchiveWriter writer = new ReplayArchiveWriter(file)) {
+            for (int i = 0; i < NO_OF_GAMES / 2; i++) {
+                assertEquals(i, writer.append(logs.get(i)));
+            }
+        }
+        assertEquals(NO_OF_GAMES / 2, ReplayArchive.open(file).size());
+        try (ReplayArchiveWriter writer = new ReplayArchiveWriter(file)) {
+            for (int i = NO_OF_GAMES / 2; i < NO_OF_GAMES; i++) {
+                assertEquals(i, writer.append(logs.get(i)));
+            }
+        }
+
+        ReplayArchive archive = ReplayArchive.open(file);
+        assertEquals(NO_OF_GAMES, archive.size());
+        for (int i = 0; i < NO_OF_GAMES; i++) {
+            assertEquals(logs.get(i), archive.get(i).getMoveLog());
+            assertEquals(MoveLogTest.state(MoveLogReader.load(logs.get(i).duplicate())),
+                    MoveLogTest.state(archive.get(i).replay()));
+        }
+    }
+
+    private static Simulator newSimulator(int noOfThreads) {
+        List<PlayerPolicy> policies = new ArrayList<>();
+        for (int i = 0; i < NO_OF_PLAYERS; i++) {
+            policies.add(new RandomPolicy(MEEPLE_PROBABILITY));
+        }
+        return new Simulator(policies, TileCatalogue.getDefault(), noOfThreads);
+    }
+}